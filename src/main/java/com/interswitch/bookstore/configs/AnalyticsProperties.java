@@ -0,0 +1,23 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.analytics")
+public class AnalyticsProperties {
+    // Directory of the sales counter checkpoint read at startup instead of rescanning the purchases. Without it
+    // nothing is checkpointed and the retained purchases are replayed at every startup
+    private Path checkpointDir;
+
+    // How often the sales counters are checkpointed; purchases made since the last checkpoint are replayed at startup
+    private Duration checkpointInterval = Duration.ofMinutes(1);
+
+    // Number of hourly, daily and weekly periods kept in memory, the current one included
+    private int retainedHours = 48;
+    private int retainedDays = 14;
+    private int retainedWeeks = 8;
+}
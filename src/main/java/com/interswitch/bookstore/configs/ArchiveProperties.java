@@ -0,0 +1,30 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.archive")
+public class ArchiveProperties {
+    // Moves settled purchases out of the purchase tables into segment files, and reads them back from there
+    private boolean enabled = false;
+
+    // Directory of the archive segment files, required when enabled. Archived purchases exist nowhere else, so
+    // it must survive restarts
+    private Path directory;
+
+    // Settled purchases created longer ago than this are archived
+    private Duration age = Duration.ofDays(365);
+
+    // How often the archiver looks for purchases to archive
+    private Duration interval = Duration.ofHours(1);
+
+    // Maximum number of purchases written to one segment file, and deleted from the tables in one transaction
+    private int segmentSize = 10_000;
+
+    // Number of purchases per compressed block, the unit the sparse user index points to
+    private int blockSize = 256;
+}
@@ -0,0 +1,64 @@
+package com.interswitch.bookstore.configs;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.interswitch.bookstore.domains.Book;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.util.List;
+import java.util.OptionalLong;
+
+@EnableCaching
+@Configuration
+public class CacheConfig {
+    // Second-level cache regions of the entities annotated with @Cache
+    private static final List<String> ENTITY_REGIONS = List.of(Book.CACHE_REGION);
+
+    /**
+     * Creates the JCache manager holding Hibernate's second-level cache, with a bounded Caffeine cache per
+     * region. The manager belongs to this context alone, so several contexts can run side by side.
+     *
+     * @param properties The region settings
+     * @return CacheManager with every entity region created
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(EntityCacheProperties properties) {
+        var cacheManager = new CaffeineCachingProvider().getCacheManager();
+        ENTITY_REGIONS.forEach(name -> {
+            var region = properties.region(name);
+            var configuration = new CaffeineConfiguration<>()
+                    // Hibernate stores immutable cache entries, so they are not copied on every read and write
+                    .setStoreByValue(false)
+                    .setMaximumSize(OptionalLong.of(region.getMaximumSize()));
+            if (!region.getExpireAfterWrite().isZero() && !region.getExpireAfterWrite().isNegative()) {
+                configuration.setExpireAfterWrite(OptionalLong.of(region.getExpireAfterWrite().toNanos()));
+            }
+            cacheManager.createCache(name, configuration);
+        });
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+    }
+
+    @Bean
+    public MeterBinder entityCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            if (statistics.isStatisticsEnabled()) {
+                ENTITY_REGIONS.forEach(region ->
+                        new EntityCacheMetrics(statistics.getDomainDataRegionStatistics(region)).bindTo(registry));
+            }
+        };
+    }
+}
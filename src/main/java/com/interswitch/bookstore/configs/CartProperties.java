@@ -0,0 +1,19 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.cart")
+public class CartProperties {
+    // Takes the copies added to a cart out of stock until checkout or until the reservation expires
+    private boolean reservationEnabled = false;
+
+    // How long the copies added to a cart stay reserved, extended whenever more copies of the book are added
+    private Duration reservationTtl = Duration.ofMinutes(15);
+
+    // Resolution of the timer expiring reservations; a reservation is released up to one tick late
+    private Duration reservationTick = Duration.ofMillis(100);
+}
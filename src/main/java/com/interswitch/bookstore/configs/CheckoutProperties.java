@@ -0,0 +1,43 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.checkout")
+public class CheckoutProperties {
+    // Attempts of a checkout failing on a transient database error (lock timeout, deadlock) before giving up
+    private int maxAttempts = 3;
+
+    // Base delay before retrying, multiplied by the attempt number with random jitter on top
+    private Duration retryBackoff = Duration.ofMillis(20);
+
+    // Longest a stock update waits for the row locks held by other checkouts
+    private Duration stockUpdateTimeout = Duration.ofSeconds(2);
+
+    // Worker threads of the asynchronous checkout, each holding at most one database transaction at a time
+    private int asyncWorkers = 4;
+
+    // Accepted asynchronous checkouts waiting for a worker, further ones are rejected until the queue drains
+    private int asyncQueueCapacity = 200;
+
+    // How long the status of an asynchronous checkout can be polled after its last change
+    private Duration asyncStatusTtl = Duration.ofHours(1);
+
+    // Collects concurrent checkouts into one transaction, so they share a single commit
+    private boolean batchEnabled = false;
+
+    // Longest a checkout waits for others to join its batch
+    private Duration batchWindow = Duration.ofMillis(2);
+
+    // Most checkouts committed together in one batch
+    private int batchMaxSize = 32;
+
+    // Threads forming and committing batches, each running one batch transaction at a time
+    private int batchDispatchers = 2;
+
+    // Longest a batched checkout waits for its purchase before the request gives up on it
+    private Duration batchWaitTimeout = Duration.ofSeconds(30);
+}
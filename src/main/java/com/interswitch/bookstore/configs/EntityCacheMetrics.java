@@ -0,0 +1,53 @@
+package com.interswitch.bookstore.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.hibernate.stat.CacheRegionStatistics;
+
+/**
+ * Publishes the statistics Hibernate keeps for a second-level cache region under the same {@code cache.*}
+ * meters as the Spring caches, tagged with the region name.
+ */
+class EntityCacheMetrics extends CacheMeterBinder<CacheRegionStatistics> {
+
+    EntityCacheMetrics(CacheRegionStatistics statistics) {
+        super(statistics, statistics.getRegionName(), Tags.of("cacheManager", "hibernate"));
+    }
+
+    @Override
+    protected Long size() {
+        var statistics = getCache();
+        var size = statistics == null ? CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN
+                : statistics.getElementCountInMemory();
+        return size == CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN ? null : size;
+    }
+
+    @Override
+    protected long hitCount() {
+        var statistics = getCache();
+        return statistics == null ? 0 : statistics.getHitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        var statistics = getCache();
+        return statistics == null ? null : statistics.getMissCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        // Evictions happen inside the JCache provider, Hibernate does not see them
+        return null;
+    }
+
+    @Override
+    protected long putCount() {
+        var statistics = getCache();
+        return statistics == null ? 0 : statistics.getPutCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+    }
+}
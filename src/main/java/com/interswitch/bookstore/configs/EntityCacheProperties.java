@@ -0,0 +1,34 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.entity-cache")
+public class EntityCacheProperties {
+    // Settings per second-level cache region, regions not listed use the defaults
+    private Map<String, Region> regions = new HashMap<>();
+
+    /**
+     * Returns the settings of a second-level cache region.
+     *
+     * @param name The name of the region
+     * @return Region settings configured for the region, or the defaults
+     */
+    public Region region(String name) {
+        return regions.getOrDefault(name, new Region());
+    }
+
+    @Data
+    public static class Region {
+        // Entities kept in the region before the least valuable ones are evicted
+        private long maximumSize = 10000;
+
+        // How long an entity stays cached after it was loaded or written, zero keeps it until evicted
+        private Duration expireAfterWrite = Duration.ZERO;
+    }
+}
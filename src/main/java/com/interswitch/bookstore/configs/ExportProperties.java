@@ -0,0 +1,11 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.export")
+public class ExportProperties {
+    // Rows the JDBC driver fetches per round trip while streaming the catalog
+    private int fetchSize = 1000;
+}
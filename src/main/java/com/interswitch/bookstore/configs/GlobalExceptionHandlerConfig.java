@@ -1,9 +1,13 @@
 package com.interswitch.bookstore.configs;
 
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.exceptions.ConflictException;
 import com.interswitch.bookstore.exceptions.NotFoundException;
 import com.interswitch.bookstore.responses.ApiResponse;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.coyote.BadRequestException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -16,6 +20,8 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import java.util.HashMap;
+import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
 
 @ControllerAdvice
 @Slf4j
@@ -28,6 +34,17 @@ public class GlobalExceptionHandlerConfig extends ResponseEntityExceptionHandler
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    // Request parameters rejected by the constraints of a @Validated controller
+    @ExceptionHandler({ConstraintViolationException.class})
+    public final ResponseEntity<?> handleConstraintViolationException(ConstraintViolationException ex) {
+        var message = ex.getConstraintViolations().stream()
+                .map(ConstraintViolation::getMessage)
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(" "));
+        return handleBadRequestException(new BadRequestException(message));
+    }
+
     @ExceptionHandler({NotFoundException.class})
     public final ResponseEntity<?> handleNotFoundException(NotFoundException ex) {
         logException(ex);
@@ -35,6 +52,21 @@ public class GlobalExceptionHandlerConfig extends ResponseEntityExceptionHandler
         return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler({ConflictException.class})
+    public final ResponseEntity<?> handleConflictException(ConflictException ex) {
+        logException(ex);
+        var response = new ApiResponse<>(HttpStatus.CONFLICT.value(), ex.getMessage(), null);
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler({TransientDataAccessException.class, RejectedExecutionException.class})
+    public final ResponseEntity<?> handleServiceUnavailableException(Exception ex) {
+        logException(ex);
+        var response = new ApiResponse<>(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "The service is busy, please try again.", null);
+        return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleServerErrorException(Exception ex) {
         logException(ex);
@@ -0,0 +1,19 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.idempotency")
+public class IdempotencyProperties {
+    // Most idempotency keys remembered at once, the least recently used ones are dropped first
+    private long maximumSize = 100_000;
+
+    // How long a completed checkout is returned again for its key
+    private Duration expireAfterWrite = Duration.ofHours(24);
+
+    // How long a duplicate request waits for the original one still in progress
+    private Duration waitTimeout = Duration.ofSeconds(30);
+}
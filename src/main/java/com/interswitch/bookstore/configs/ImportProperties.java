@@ -0,0 +1,17 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.import")
+public class ImportProperties {
+    // Rows sent to the database per JDBC batch
+    private int batchSize = 500;
+
+    // Rows written per transaction; they are kept until committed, to be written again if a later batch fails
+    private int commitInterval = 10000;
+
+    // Per-row errors kept in the import report; further errors are only counted
+    private int maxReportedErrors = 100;
+}
@@ -0,0 +1,27 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.inventory")
+public class InventoryProperties {
+    // How often the in-memory engine writes the coalesced stock changes back to the database
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    // Directory of the journal replayed after a crash, holding the stock changes not yet written back; required
+    // by the memory engine, and must survive restarts as long as the database does
+    private Path journalDir;
+
+    // Forces every journal append to disk, so a checkout survives a power loss and not just a process crash
+    private boolean journalSync = false;
+
+    // How often the stock of books on flash sale is copied from their shards into the book rows
+    private Duration flashSaleSyncInterval = Duration.ofSeconds(1);
+
+    // Upper bound of the number of shards a flash sale may split a book's stock into
+    private int flashSaleMaxShards = 64;
+}
@@ -0,0 +1,74 @@
+package com.interswitch.bookstore.configs;
+
+import com.interswitch.bookstore.enums.PaymentMethod;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.payment")
+public class PaymentProperties {
+    // How often the relay looks for pending payments
+    private Duration relayInterval = Duration.ofMillis(200);
+
+    // Pending payments in flight at once; a relay run only claims as many as the ones in flight leave room for
+    private int relayBatchSize = 50;
+
+    // Threads settling the payments taken by the relay
+    private int relayWorkers = 8;
+
+    // How long a claimed payment is held before another relay run may retry it; must exceed the gateway timeouts
+    private Duration lease = Duration.ofSeconds(30);
+
+    // Attempts of a payment failing for other reasons than a decline before the purchase is cancelled
+    private int maxAttempts = 5;
+
+    // How long a payment rejected by a saturated gateway or an open circuit waits before it is tried again
+    private Duration unavailableRetryDelay = Duration.ofSeconds(1);
+
+    // Gateway settings per payment method, methods not listed use the defaults
+    private Map<PaymentMethod, Gateway> gateways = new EnumMap<>(PaymentMethod.class);
+
+    /**
+     * Returns the gateway settings of a payment method.
+     *
+     * @param method The payment method
+     * @return Gateway settings configured for the method, or the defaults
+     */
+    public Gateway gateway(PaymentMethod method) {
+        return gateways.getOrDefault(method, new Gateway());
+    }
+
+    @Data
+    public static class Gateway {
+        // Payments of the method taken at once
+        private int concurrency = 8;
+
+        // Payments of the method waiting for a free slot before new ones are rejected
+        private int queueCapacity = 100;
+
+        // Deadline of a single payment of the method, counted from when it starts running on a slot
+        private Duration timeout = Duration.ofSeconds(5);
+
+        // Consecutive failed payments that open the circuit of the method
+        private int failureThreshold = 5;
+
+        // How long an open circuit rejects payments before letting a trial payment through
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        // Fixed latency of the simulated gateway
+        private Duration simulatedLatency = Duration.ZERO;
+
+        // Mean of the exponentially distributed latency the simulated gateway adds on top of the fixed latency
+        private Duration simulatedLatencyJitter = Duration.ZERO;
+
+        // Share of payments the simulated gateway fails with an error, from 0 to 1
+        private double simulatedFailureRate = 0;
+
+        // Share of payments the simulated gateway declines, from 0 to 1
+        private double simulatedDeclineRate = 0;
+    }
+}
@@ -0,0 +1,36 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.datasource.replica")
+public class ReplicaProperties {
+    // JDBC URL of the read replica; when unset every transaction uses the primary database
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    // Connections kept to the replica
+    private int maximumPoolSize = 10;
+
+    // How long after a user's write their read-only transactions still go to the primary, so they see their own
+    // writes despite replication lag; zero lets them read from the replica straight away
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    // Users whose recent writes are tracked at once, the oldest are forgotten first
+    private long readYourWritesMaximumSize = 100000;
+
+    /**
+     * Tells whether read-only transactions are routed to a replica.
+     *
+     * @return boolean true if a replica is configured
+     */
+    public boolean isEnabled() {
+        return url != null && !url.isBlank();
+    }
+}
@@ -0,0 +1,81 @@
+package com.interswitch.bookstore.configs;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Routes the connections of read-only transactions to the replica and every other connection to the primary.
+ * The route is chosen when a connection is taken, so this data source has to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} that only takes it once the
+ * transaction has started and its read-only flag is known.
+ * <p>
+ * A transaction routed to the replica only reads the second-level cache and never puts into it, so a lagging
+ * replica cannot leave an entity cached in a state the primary has already moved past.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+    // Bound to a read-only transaction that has to see the latest writes
+    private static final Object PRIMARY_PIN = new Object();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Sends the current read-only transaction to the primary. Must be called before the transaction runs its
+     * first statement; does nothing outside a transaction.
+     */
+    public static void pinToPrimary() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(PRIMARY_PIN)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(PRIMARY_PIN, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PRIMARY_PIN);
+            }
+        });
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || TransactionSynchronizationManager.hasResource(PRIMARY_PIN)) {
+            return PRIMARY;
+        }
+        TransactionSynchronizationManager.getResourceMap().values().stream()
+                .filter(EntityManagerHolder.class::isInstance)
+                .map(holder -> ((EntityManagerHolder) holder).getEntityManager().unwrap(Session.class))
+                .forEach(ReplicaRoutingDataSource::readSecondLevelCacheOnly);
+        return REPLICA;
+    }
+
+    // The session may outlive the transaction when it is kept open for the whole request
+    private static void readSecondLevelCacheOnly(Session session) {
+        var cacheMode = session.getCacheMode();
+        if (cacheMode == CacheMode.GET || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        session.setCacheMode(CacheMode.GET);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (session.isOpen()) {
+                    session.setCacheMode(cacheMode);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,18 @@
+package com.interswitch.bookstore.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bookstore.search.cache")
+public class SearchCacheProperties {
+    private boolean enabled = true;
+
+    private long maximumSize = 1000;
+
+    private Duration expireAfterWrite = Duration.ofMinutes(2);
+
+    private Duration refreshAfterWrite = Duration.ofSeconds(30);
+}
@@ -0,0 +1,63 @@
+package com.interswitch.bookstore.controllers;
+
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.SalesWindow;
+import com.interswitch.bookstore.responses.ApiResponse;
+import com.interswitch.bookstore.services.SalesAnalytics;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for sales analytics. Rankings are served from the in-memory sales counters and never touch
+ * the database.
+ */
+@Tag(name = "Sales Analytics APIs", description = "API for best seller rankings")
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+@RestController
+public class AnalyticsController {
+    private final SalesAnalytics salesAnalytics;
+
+    /**
+     * Ranks the books by copies sold in an hour, day or week.
+     *
+     * @param window the length of the period: HOUR, DAY or WEEK (default is WEEK)
+     * @param genre  the genre to rank the books of (optional, all genres by default)
+     * @param ago    the number of periods before the current one (default is 0, the current period)
+     * @param limit  the maximum number of books to return (default is 10)
+     * @return a {@link ResponseEntity} containing an {@link ApiResponse} with the best selling books
+     */
+    @GetMapping("/top-sellers")
+    @Operation(summary = "Get the best selling books of a period")
+    public ResponseEntity<ApiResponse<?>> topSellers(@RequestParam(defaultValue = "WEEK") SalesWindow window,
+                                                     @RequestParam(required = false) Genre genre,
+                                                     @RequestParam(defaultValue = "0") int ago,
+                                                     @RequestParam(defaultValue = "10") int limit) {
+        var topSellers = salesAnalytics.topSellers(window, genre, ago, limit);
+        var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Top sellers retrieved successfully.", topSellers);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    /**
+     * Ranks the genres by copies sold in an hour, day or week.
+     *
+     * @param window the length of the period: HOUR, DAY or WEEK (default is WEEK)
+     * @param ago    the number of periods before the current one (default is 0, the current period)
+     * @return a {@link ResponseEntity} containing an {@link ApiResponse} with the genres with sales
+     */
+    @GetMapping("/top-genres")
+    @Operation(summary = "Get the best selling genres of a period")
+    public ResponseEntity<ApiResponse<?>> topGenres(@RequestParam(defaultValue = "WEEK") SalesWindow window,
+                                                    @RequestParam(defaultValue = "0") int ago) {
+        var topGenres = salesAnalytics.topGenres(window, ago);
+        var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Top genres retrieved successfully.", topGenres);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+}
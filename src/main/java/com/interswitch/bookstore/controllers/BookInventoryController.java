@@ -1,42 +1,67 @@
 package com.interswitch.bookstore.controllers;
 
+import com.interswitch.bookstore.enums.FileFormat;
+import com.interswitch.bookstore.exceptions.BadRequestException;
 import com.interswitch.bookstore.requests.BookAddDTO;
 import com.interswitch.bookstore.requests.BookUpdateDTO;
 import com.interswitch.bookstore.responses.ApiResponse;
+import com.interswitch.bookstore.services.BookExportService;
+import com.interswitch.bookstore.services.BookImportService;
 import com.interswitch.bookstore.services.BookService;
+import com.interswitch.bookstore.services.InventoryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.JpaSort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
 
 @Tag(name = "Book Store Inventory Service APIs", description = "API for management book inventory")
 @RequestMapping("/api/inventories")
 @RequiredArgsConstructor
+@Validated
 @RestController
 public class BookInventoryController {
+    private static final int MAXIMUM_SIZE = 100;
+    private static final String SIZE_MESSAGE = "size must be between 1 and " + MAXIMUM_SIZE + ".";
+    private static final String MINIMUM_SIZE_MESSAGE = "size must be at least 1.";
+
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final BookExportService bookExportService;
+    private final InventoryService inventoryService;
 
     /**
      * Searches for books in the inventory based on a search term with pagination and sorting options.
      *
      * @param searchTerm    The term to search for in book attributes (optional)
      * @param page          The page number to retrieve (default: 0)
-     * @param size          The number of items per page (default: 10)
+     * @param size          The number of items per page, at least 1 (default: 10)
      * @param sortBy        The field to sort by (default: "createdAt")
      * @param sortDirection The sort direction ("asc" or "desc", default: "desc")
      * @return ResponseEntity containing ApiResponse with search results
+     * @throws jakarta.validation.ConstraintViolationException if the size is below 1
      */
     @Operation(summary = "Search books by search term")
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<?>> searchBooks(@RequestParam(required = false) String searchTerm,
                                                       @RequestParam(value = "page", defaultValue = "0") int page,
-                                                      @RequestParam(value = "size", defaultValue = "10") int size,
+                                                      @RequestParam(value = "size", defaultValue = "10")
+                                                      @Min(value = 1, message = MINIMUM_SIZE_MESSAGE) int size,
                                                       @RequestParam(value = "sortBy", defaultValue = "createdAt") String sortBy,
                                                       @RequestParam(value = "sort-direction", defaultValue = "desc") String sortDirection) {
         var direction =
@@ -47,6 +72,32 @@ public class BookInventoryController {
         return new ResponseEntity<>(apiResponse, HttpStatus.OK);
     }
 
+    /**
+     * Searches for books in the inventory using keyset pagination ordered by creation time.
+     * Unlike {@link #searchBooks}, no total count is computed and deep slices cost the same as the first one.
+     *
+     * @param searchTerm    The term to search for in book attributes (optional)
+     * @param cursor        The continuation token returned with the previous slice (optional)
+     * @param size          The number of items per slice, between 1 and 100 (default: 10)
+     * @param sortDirection The creation time sort direction ("asc" or "desc", default: "desc")
+     * @return ResponseEntity containing ApiResponse with the slice and its continuation token
+     * @throws jakarta.validation.ConstraintViolationException if the size is out of range
+     */
+    @Operation(summary = "Search books by search term with cursor pagination")
+    @GetMapping("/search/cursor")
+    public ResponseEntity<ApiResponse<?>> scrollBooks(@RequestParam(required = false) String searchTerm,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(value = "size", defaultValue = "10")
+                                                      @Min(value = 1, message = SIZE_MESSAGE)
+                                                      @Max(value = MAXIMUM_SIZE, message = SIZE_MESSAGE) int size,
+                                                      @RequestParam(value = "sort-direction", defaultValue = "desc") String sortDirection) {
+        var direction =
+                "desc".equalsIgnoreCase(sortDirection) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        var books = bookService.scrollBooks(searchTerm, cursor, size, direction);
+        var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Books retrieved successfully.", books);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
     /**
      * Retrieves a specific book from the inventory by its ID.
      *
@@ -75,6 +126,53 @@ public class BookInventoryController {
         return new ResponseEntity<>(apiResponse, HttpStatus.CREATED);
     }
 
+    /**
+     * Imports books in bulk from a newline delimited JSON or CSV request body. Each record is validated like
+     * a {@link BookAddDTO}; invalid records are reported without aborting the import.
+     *
+     * @param contentType The request content type, either application/x-ndjson or text/csv
+     * @param body        The request body containing one book per line (CSV starts with a header row)
+     * @return ResponseEntity containing ApiResponse with the import report
+     * @throws IOException if the request body cannot be read
+     */
+    @Operation(summary = "Bulk import books from NDJSON or CSV")
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ApiResponse<?>> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                      InputStream body) throws IOException {
+        var format = "csv".equalsIgnoreCase(contentType.getSubtype()) ? FileFormat.CSV : FileFormat.NDJSON;
+        var report = bookImportService.importBooks(body, format);
+        var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Books imported.", report);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    /**
+     * Streams the whole catalog as newline delimited JSON or CSV. The response is written while the catalog
+     * is read, so its size is not limited by available memory.
+     *
+     * @param format The export format ("ndjson" or "csv", default: "ndjson")
+     * @return ResponseEntity streaming the catalog as an attachment
+     * @throws BadRequestException if the format is not supported
+     */
+    @Operation(summary = "Export the catalog as NDJSON or CSV")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        FileFormat fileFormat;
+        try {
+            fileFormat = FileFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid format. Allowed formats are ndjson and csv only.");
+        }
+        var contentType = fileFormat == FileFormat.CSV
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+        StreamingResponseBody body = output -> bookExportService.exportBooks(output, fileFormat);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"books." + fileFormat.name().toLowerCase(Locale.ROOT) + "\"")
+                .body(body);
+    }
+
     /**
      * Updates an existing book in the inventory.
      *
@@ -89,4 +187,35 @@ public class BookInventoryController {
         var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Book retrieved successfully.", updatedBook);
         return new ResponseEntity<>(apiResponse, HttpStatus.OK);
     }
-}
\ No newline at end of file
+
+    /**
+     * Puts a book on flash sale, splitting its stock over several counters so concurrent checkouts of the
+     * book do not queue on a single stock row.
+     *
+     * @param id     The ID of the book
+     * @param shards The number of counters to split the stock over (default: 8)
+     * @return ResponseEntity containing ApiResponse confirming the flash sale
+     */
+    @Operation(summary = "Start flash sale of book")
+    @PutMapping("/{id}/flash-sale")
+    public ResponseEntity<ApiResponse<?>> startFlashSale(@PathVariable Long id,
+                                                         @RequestParam(defaultValue = "8") int shards) {
+        inventoryService.startFlashSale(id, shards);
+        var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Flash sale started successfully.", null);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    /**
+     * Takes a book off flash sale, joining its stock back into the book.
+     *
+     * @param id The ID of the book
+     * @return ResponseEntity containing ApiResponse confirming the end of the flash sale
+     */
+    @Operation(summary = "End flash sale of book")
+    @DeleteMapping("/{id}/flash-sale")
+    public ResponseEntity<ApiResponse<?>> endFlashSale(@PathVariable Long id) {
+        inventoryService.endFlashSale(id);
+        var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Flash sale ended successfully.", null);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+}
@@ -2,18 +2,27 @@ package com.interswitch.bookstore.controllers;
 
 import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
 import com.interswitch.bookstore.responses.ApiResponse;
+import com.interswitch.bookstore.services.AsyncCheckoutService;
+import com.interswitch.bookstore.services.PurchaseHistoryService;
 import com.interswitch.bookstore.services.PurchaseService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.JpaSort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.time.LocalDate;
+
 /**
  * REST controller for managing book purchases.
  * Provides endpoints for retrieving a user's purchase history and processing checkout operations.
@@ -22,26 +31,35 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "Purchase Service APIs", description = "API for book purchase management")
 @RequestMapping("/api/purchases")
 @RequiredArgsConstructor
+@Validated
 @RestController
 public class PurchaseController {
+    private static final int MAXIMUM_SIZE = 100;
+    private static final String SIZE_MESSAGE = "size must be between 1 and " + MAXIMUM_SIZE + ".";
+    private static final String MINIMUM_SIZE_MESSAGE = "size must be at least 1.";
+
     private final PurchaseService purchaseService;
+    private final AsyncCheckoutService asyncCheckoutService;
+    private final PurchaseHistoryService purchaseHistoryService;
 
     /**
      * Retrieves the purchase history for a specified user, paginated and sorted based on request parameters.
      *
      * @param userId the ID of the user whose purchase history is to be retrieved
      * @param page the page number to retrieve (default is 0)
-     * @param size the number of records per page (default is 10)
+     * @param size the number of records per page, at least 1 (default is 10)
      * @param sortBy the field to sort by (default is "createdAt")
      * @param sortDirection the direction of sorting ("asc" or "desc", default is "desc")
      * @return a {@link ResponseEntity} containing an {@link ApiResponse} with the purchase history data
      * @throws IllegalArgumentException if the pagination or sorting parameters are invalid
+     * @throws jakarta.validation.ConstraintViolationException if the size is below 1
      */
     @GetMapping("/{userId}")
     @Operation(summary = "Get purchase history")
     public ResponseEntity<ApiResponse<?>> getPurchaseHistory(@PathVariable Long userId,
                                                              @RequestParam(value = "page", defaultValue = "0") int page,
-                                                             @RequestParam(value = "size", defaultValue = "10") int size,
+                                                             @RequestParam(value = "size", defaultValue = "10")
+                                                             @Min(value = 1, message = MINIMUM_SIZE_MESSAGE) int size,
                                                              @RequestParam(value = "sortBy", defaultValue = "createdAt") String sortBy,
                                                              @RequestParam(value = "sort-direction", defaultValue = "desc") String sortDirection) {
         var direction =
@@ -52,21 +70,116 @@ public class PurchaseController {
         return new ResponseEntity<>(apiResponse, HttpStatus.OK);
     }
 
+    /**
+     * Retrieves the purchase history for a specified user using keyset pagination ordered by creation time.
+     * Unlike {@link #getPurchaseHistory}, no total count is computed and deep slices cost the same as the first one.
+     *
+     * @param userId the ID of the user whose purchase history is to be retrieved
+     * @param cursor the continuation token returned with the previous slice (optional)
+     * @param size the number of records per slice, between 1 and 100 (default is 10)
+     * @param sortDirection the creation time sort direction ("asc" or "desc", default is "desc")
+     * @return a {@link ResponseEntity} containing an {@link ApiResponse} with the slice and its continuation token
+     * @throws jakarta.validation.ConstraintViolationException if the size is out of range
+     */
+    @GetMapping("/{userId}/cursor")
+    @Operation(summary = "Get purchase history with cursor pagination")
+    public ResponseEntity<ApiResponse<?>> scrollPurchaseHistory(@PathVariable Long userId,
+                                                                @RequestParam(required = false) String cursor,
+                                                                @RequestParam(value = "size", defaultValue = "10")
+                                                             @Min(value = 1, message = SIZE_MESSAGE)
+                                                             @Max(value = MAXIMUM_SIZE, message = SIZE_MESSAGE) int size,
+                                                                @RequestParam(value = "sort-direction", defaultValue = "desc") String sortDirection) {
+        var direction =
+                "desc".equalsIgnoreCase(sortDirection) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        var purchaseHistory = purchaseService.scrollPurchaseHistory(userId, cursor, size, direction);
+        var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Purchase history retrieved successfully.", purchaseHistory);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves the purchase history for a specified user from the purchase history read model, newest first.
+     * Each purchase carries its items with the titles and prices they were sold at, and a slice is read with a
+     * single range scan whatever the size of the history. Purchases placed before the read model existed were
+     * backfilled from the books as they were at that time, so their prices may differ from those paid.
+     *
+     * @param userId the ID of the user whose purchase history is to be retrieved
+     * @param from the first day of purchases to include, as yyyy-MM-dd (optional)
+     * @param to the last day of purchases to include, as yyyy-MM-dd (optional)
+     * @param cursor the continuation token returned with the previous slice (optional)
+     * @param size the number of records per slice, between 1 and 100 (default is 10)
+     * @return a {@link ResponseEntity} containing an {@link ApiResponse} with the slice and its continuation token
+     * @throws jakarta.validation.ConstraintViolationException if the size is out of range
+     */
+    @GetMapping("/{userId}/history")
+    @Operation(summary = "Get purchase history within a date range")
+    public ResponseEntity<ApiResponse<?>> getHistory(@PathVariable Long userId,
+                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(value = "size", defaultValue = "10")
+                                                     @Min(value = 1, message = SIZE_MESSAGE)
+                                                     @Max(value = MAXIMUM_SIZE, message = SIZE_MESSAGE) int size) {
+        var purchaseHistory = purchaseHistoryService.getHistory(userId, from, to, cursor, size);
+        var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Purchase history retrieved successfully.", purchaseHistory);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
     /**
      * Processes a checkout request using the provided payment method and cart details.
      * The request is validated before processing, and the result is returned as a DTO.
+     * Retries sending the same Idempotency-Key header get the original result back.
      *
      * @param request the {@link PurchaseCheckoutDTO} containing the user ID and payment method
      *                for the checkout process
+     * @param idempotencyKey the client chosen key identifying retries of the same checkout (optional)
      * @return a {@link ResponseEntity} containing an {@link ApiResponse} with the checkout result
      * @throws jakarta.validation.ConstraintViolationException if the request data is invalid
      * @throws NullPointerException if the request is null
      */
     @PostMapping("/checkout")
     @Operation(summary = "Checkout with selected payment method")
-    public ResponseEntity<ApiResponse<?>> checkout(@Valid @RequestBody PurchaseCheckoutDTO request) {
-        var checkout = purchaseService.checkout(request);
+    public ResponseEntity<ApiResponse<?>> checkout(@Valid @RequestBody PurchaseCheckoutDTO request,
+                                                   @RequestHeader(value = "Idempotency-Key", required = false)
+                                                   String idempotencyKey) {
+        var checkout = purchaseService.checkout(request, idempotencyKey);
         var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Purchase checkout successful.", checkout);
         return new ResponseEntity<>(apiResponse, HttpStatus.OK);
     }
+
+    /**
+     * Queues a checkout request for asynchronous processing and returns immediately.
+     * The result is polled from the status endpoint named in the Location header.
+     *
+     * @param request the {@link PurchaseCheckoutDTO} containing the user ID and payment method
+     *                for the checkout process
+     * @param idempotencyKey the client chosen key identifying retries of the same checkout (optional)
+     * @return a {@link ResponseEntity} with status 202 containing an {@link ApiResponse} with the checkout ID
+     * @throws java.util.concurrent.RejectedExecutionException if the checkout queue is full
+     */
+    @PostMapping("/checkout/async")
+    @Operation(summary = "Queue a checkout with selected payment method")
+    public ResponseEntity<ApiResponse<?>> checkoutAsync(@Valid @RequestBody PurchaseCheckoutDTO request,
+                                                        @RequestHeader(value = "Idempotency-Key", required = false)
+                                                        String idempotencyKey) {
+        var status = asyncCheckoutService.submit(request, idempotencyKey);
+        var apiResponse = new ApiResponse<>(HttpStatus.ACCEPTED.value(), "Purchase checkout accepted.", status);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/purchases/checkout/" + status.getCheckoutId()))
+                .body(apiResponse);
+    }
+
+    /**
+     * Retrieves the status of an asynchronous checkout, including the purchase once it has completed.
+     *
+     * @param checkoutId the ID returned when the checkout was queued
+     * @return a {@link ResponseEntity} containing an {@link ApiResponse} with the checkout status
+     * @throws com.interswitch.bookstore.exceptions.NotFoundException if the checkout is unknown or has expired
+     */
+    @GetMapping("/checkout/{checkoutId}")
+    @Operation(summary = "Get checkout status")
+    public ResponseEntity<ApiResponse<?>> getCheckoutStatus(@PathVariable String checkoutId) {
+        var status = asyncCheckoutService.getStatus(checkoutId);
+        var apiResponse = new ApiResponse<>(HttpStatus.OK.value(), "Checkout status retrieved successfully.", status);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
 }
\ No newline at end of file
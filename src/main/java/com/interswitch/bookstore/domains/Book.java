@@ -4,22 +4,36 @@ import com.interswitch.bookstore.enums.Genre;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
+/**
+ * A book of the catalog. Books are kept in the second-level cache, while their stock is also written by JDBC
+ * statements that bypass it, so updates only write the changed columns and never a cached stock level.
+ */
 @EqualsAndHashCode(callSuper = true)
 @Data
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Book.CACHE_REGION)
 @Table(name = "tbl_books",
         indexes = {
                 @Index(name = "idx_book_title", columnList = "title"),
                 @Index(name = "idx_book_author", columnList = "author"),
                 @Index(name = "idx_book_publication_year", columnList = "publicationYear"),
-                @Index(name = "idx_book_genre", columnList = "genre")
+                @Index(name = "idx_book_genre", columnList = "genre"),
+                @Index(name = "idx_book_created_at", columnList = "created_at, id")
         }
 )
 @Entity
 public class Book extends Domain{
+    public static final String CACHE_REGION = "book";
 
     private String title;
 
@@ -34,15 +48,23 @@ public class Book extends Domain{
 
     private BigDecimal price;
 
+    // Stock is only changed by conditional JDBC updates, so an entity update never writes back a stale level
+    @Column(updatable = false)
     private int quantityInStock;
 
+    // Number of flash-sale stock shards, 0 when the stock is held in quantityInStock alone
+    @ColumnDefault("0")
+    @Column(updatable = false)
+    private int stockShards;
+
+    // Timestamps are kept at the precision the database stores, so the search index sorts like the table
     @PrePersist
     public void onPrePersist() {
-        this.setCreatedAt(LocalDateTime.now());
+        this.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
     }
 
     @PreUpdate
     public void onPreUpdate() {
-        this.setUpdatedAt(LocalDateTime.now());
+        this.setUpdatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
     }
 }
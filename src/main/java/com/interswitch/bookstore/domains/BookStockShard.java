@@ -0,0 +1,30 @@
+package com.interswitch.bookstore.domains;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Part of the stock of a book on flash sale. The book's stock is split over several shard rows, so concurrent
+ * checkouts of the book decrement different rows instead of queueing on one. Shards are only written through
+ * {@link com.interswitch.bookstore.repositories.BookStockRepository}.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Table(name = "tbl_book_stock_shards",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_book_stock_shard", columnNames = {"book_id", "shard"})
+        }
+)
+@Entity
+public class BookStockShard extends Domain {
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(nullable = false)
+    private int shard;
+
+    @Column(nullable = false)
+    private int quantity;
+}
@@ -22,7 +22,7 @@ public class Cart extends Domain {
         this.userId = userId;
     }
 
-    @OneToMany(cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL)
     private List<CartItem> items = new ArrayList<>();
 
     @PrePersist
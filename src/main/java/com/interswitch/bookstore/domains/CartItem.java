@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -13,14 +15,22 @@ import java.time.LocalDateTime;
 @Table(name = "tbl_cart_items")
 @Entity
 public class CartItem extends Domain {
-    private Long id;
-
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Book book;
 
     private int quantity;
 
-    @ManyToOne
+    // Copies of the book held back for this item until reservedUntil, written by CartReservationRepository only
+    @ColumnDefault("0")
+    @Column(insertable = false, updatable = false)
+    private int reservedQuantity;
+
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime reservedUntil;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     private Cart cart;
 
     public CartItem(Cart cart, Book book, int quantity) {
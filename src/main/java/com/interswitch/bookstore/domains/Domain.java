@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
 @MappedSuperclass
 public abstract class Domain {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence
     private Long id;
 
     @Column(name = "created_at", updatable = false)
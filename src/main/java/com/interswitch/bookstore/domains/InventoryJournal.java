@@ -0,0 +1,22 @@
+package com.interswitch.bookstore.domains;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Progress of the in-memory inventory engine writing its journal back to the database, held in a single row.
+ * The row is updated in the transaction that writes a journal segment's stock changes back, so a segment
+ * left on disk by a crash is never applied twice. Only written through
+ * {@link com.interswitch.bookstore.repositories.BookStockRepository}.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Table(name = "tbl_inventory_journal")
+@Entity
+public class InventoryJournal extends Domain {
+
+    // Generation of the last journal segment whose stock changes are in the book rows
+    @Column(nullable = false)
+    private long flushedGeneration;
+}
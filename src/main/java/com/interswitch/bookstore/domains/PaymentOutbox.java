@@ -0,0 +1,44 @@
+package com.interswitch.bookstore.domains;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Payment still to be taken for a pending purchase. The entry is written in the checkout transaction and
+ * removed once the payment relay has settled the purchase.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@NoArgsConstructor
+@Table(name = "tbl_payment_outbox",
+        indexes = {
+                @Index(name = "idx_payment_outbox_available_at", columnList = "availableAt, id")
+        }
+)
+@Entity
+public class PaymentOutbox extends Domain {
+
+    @Column(nullable = false, unique = true)
+    private Long purchaseId;
+
+    // Payment attempts started so far
+    private int attempts;
+
+    // When the entry can next be claimed by the relay, pushed into the future while a relay holds it
+    @Column(nullable = false)
+    private LocalDateTime availableAt;
+
+    public PaymentOutbox(Long purchaseId, LocalDateTime availableAt) {
+        this.purchaseId = purchaseId;
+        this.availableAt = availableAt;
+    }
+
+    @PrePersist
+    public void onPrePersist() {
+        this.setCreatedAt(LocalDateTime.now());
+    }
+}
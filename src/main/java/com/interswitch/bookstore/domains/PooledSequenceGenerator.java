@@ -0,0 +1,37 @@
+package com.interswitch.bookstore.domains;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Sequence generator behind {@link PooledSequence}. Each entity gets its own {@code <table>_SEQ} sequence
+ * incremented by the allocation size, and the pooled optimizer hands out the IDs in between from memory.
+ * Unlike identity columns, IDs are known before the insert, so Hibernate can send inserts as JDBC batches.
+ * <p>
+ * The allocation size is read from the {@value #ALLOCATION_SIZE} Hibernate setting. Changing it needs the
+ * sequences to be altered to the new increment.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+    public static final String ALLOCATION_SIZE = "bookstore.id.allocation-size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    private int allocationSize = DEFAULT_ALLOCATION_SIZE;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        allocationSize = serviceRegistry.requireService(ConfigurationService.class)
+                .getSetting(ALLOCATION_SIZE, StandardConverters.INTEGER, DEFAULT_ALLOCATION_SIZE);
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    @Override
+    protected int determineIncrementSize(Properties parameters) {
+        return allocationSize;
+    }
+}
@@ -1,6 +1,7 @@
 package com.interswitch.bookstore.domains;
 
 import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.enums.PurchaseStatus;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -10,23 +11,27 @@ import java.util.List;
 
 @EqualsAndHashCode(callSuper = true)
 @Data
-@Table(name = "tbl_purchases")
+@Table(name = "tbl_purchases",
+        indexes = {
+                @Index(name = "idx_purchase_user_created_at", columnList = "userId, created_at, id")
+        }
+)
 @Entity
 public class Purchase extends Domain{
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-
     private Long userId;
 
     private LocalDateTime purchaseDate;
 
-    @OneToMany(cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "purchase", cascade = CascadeType.ALL)
     private List<PurchaseItem> items;
 
     @Enumerated(EnumType.STRING)
     private PaymentMethod paymentMethod;
 
+    // PENDING until the payment relay has taken the payment
+    @Enumerated(EnumType.STRING)
+    private PurchaseStatus status;
+
     @PrePersist
     public void onPrePersist() {
         this.setCreatedAt(LocalDateTime.now());
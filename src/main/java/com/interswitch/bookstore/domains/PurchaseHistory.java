@@ -0,0 +1,64 @@
+package com.interswitch.bookstore.domains;
+
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.projections.PurchaseHistoryLine;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read model of a purchase for its buyer's history, written once at checkout. Its lines are stored pre-joined
+ * in a single JSON column together with the titles and prices they were sold at, so a page of history is one
+ * range scan of the (userId, purchaseDate) index and does not change when a book is later edited.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@NoArgsConstructor
+@Table(name = "tbl_purchase_history",
+        indexes = {
+                @Index(name = "idx_purchase_history_user_date", columnList = "userId, purchaseDate, purchaseId")
+        }
+)
+@Entity
+public class PurchaseHistory extends Domain {
+
+    @Column(nullable = false, unique = true)
+    private Long purchaseId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private LocalDateTime purchaseDate;
+
+    @Enumerated(EnumType.STRING)
+    private PaymentMethod paymentMethod;
+
+    // Follows the purchase as the payment relay settles it
+    @Enumerated(EnumType.STRING)
+    private PurchaseStatus status;
+
+    private BigDecimal total;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    private List<PurchaseHistoryLine> lines = new ArrayList<>();
+
+    @PrePersist
+    public void onPrePersist() {
+        this.setCreatedAt(LocalDateTime.now());
+    }
+
+    @PreUpdate
+    public void onPreUpdate() {
+        this.setUpdatedAt(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,5 @@
+package com.interswitch.bookstore.enums;
+
+public enum FileFormat {
+    NDJSON, CSV
+}
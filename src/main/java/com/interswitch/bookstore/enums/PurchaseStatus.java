@@ -0,0 +1,5 @@
+package com.interswitch.bookstore.enums;
+
+public enum PurchaseStatus {
+    PENDING, PAID, FAILED
+}
@@ -0,0 +1,21 @@
+package com.interswitch.bookstore.exceptions;
+
+import com.interswitch.bookstore.responses.PurchaseDTO;
+import lombok.Getter;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Thrown when a checkout was still being placed once its caller stopped waiting. The checkout may yet be
+ * placed; its outcome completes once it is known.
+ */
+@Getter
+public class CheckoutPendingException extends QueryTimeoutException {
+    private final transient CompletableFuture<PurchaseDTO> outcome;
+
+    public CheckoutPendingException(String message, CompletableFuture<PurchaseDTO> outcome) {
+        super(message);
+        this.outcome = outcome;
+    }
+}
@@ -0,0 +1,10 @@
+package com.interswitch.bookstore.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.interswitch.bookstore.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class PaymentDeclinedException extends RuntimeException {
+    public PaymentDeclinedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.interswitch.bookstore.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class PaymentUnavailableException extends RuntimeException {
+    public PaymentUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,133 @@
+package com.interswitch.bookstore.mappers;
+
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.requests.BookAddDTO;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+@Component
+public class BookCsvMapper {
+
+    /**
+     * Reads the next record from a CSV stream. Fields may be quoted, with embedded quotes doubled, and a quoted
+     * field may span several lines; the record ends at the first line break outside quotes.
+     *
+     * @param reader The reader positioned at the start of a record
+     * @return List of the unquoted field values, or null at the end of the stream
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalArgumentException if the stream ends inside a quoted field
+     */
+    public List<String> readRecord(BufferedReader reader) throws IOException {
+        var c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var quoted = false;
+        for (; c != -1; c = reader.read()) {
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                    continue;
+                }
+                reader.mark(1);
+                if (reader.read() == '"') {
+                    field.append('"');
+                } else {
+                    reader.reset();
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Maps a CSV row onto a BookAddDTO using the column names of the header row.
+     *
+     * @param header The column names of the header row
+     * @param fields The field values of the row
+     * @return BookAddDTO populated from the row
+     * @throws IllegalArgumentException if a numeric or genre column cannot be parsed
+     */
+    public BookAddDTO toAddDTO(List<String> header, List<String> fields) {
+        var values = new HashMap<String, String>();
+        for (int i = 0; i < header.size() && i < fields.size(); i++) {
+            values.put(header.get(i).trim(), fields.get(i));
+        }
+        var dto = new BookAddDTO();
+        dto.setTitle(values.get("title"));
+        dto.setGenre(parse(values, "genre", Genre::valueOf));
+        dto.setIsbn(values.get("isbn"));
+        dto.setAuthor(values.get("author"));
+        dto.setPublicationYear(parse(values, "publicationYear", Integer::parseInt, 0));
+        dto.setQuantityInStock(parse(values, "quantityInStock", Integer::parseInt, 0));
+        dto.setPrice(parse(values, "price", Double::parseDouble, 0d));
+        return dto;
+    }
+
+    /**
+     * Formats the given values as a CSV line, quoting values that contain separators, quotes or line breaks.
+     *
+     * @param values The values of the row (null values are written as empty fields)
+     * @return The CSV line without a line terminator
+     */
+    public String formatLine(Object... values) {
+        var line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            var value = values[i] == null ? "" : values[i].toString();
+            if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        return line.toString();
+    }
+
+    private static <T> T parse(Map<String, String> values, String column, Function<String, T> parser) {
+        return parse(values, column, parser, null);
+    }
+
+    private static <T> T parse(Map<String, String> values, String column, Function<String, T> parser, T defaultValue) {
+        var value = values.get(column);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return parser.apply(value.trim());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+}
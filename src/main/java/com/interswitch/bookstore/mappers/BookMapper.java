@@ -1,6 +1,7 @@
 package com.interswitch.bookstore.mappers;
 
 import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.projections.BookView;
 import com.interswitch.bookstore.requests.BookAddDTO;
 import com.interswitch.bookstore.responses.BookDTO;
 import org.mapstruct.Mapper;
@@ -14,5 +15,11 @@ public interface BookMapper {
     @Mapping(target="price", source = "domain.price")
     BookDTO toDTO(Book domain);
 
+    @Mapping(target="createdAt", source = "view.createdAt",
+            dateFormat = "dd-MM-yyyy HH:mm:ss")
+    @Mapping(target="price", source = "view.price")
+    BookDTO toDTO(BookView view);
+
+    @Mapping(target = "stockShards", ignore = true)
     Book toEntity(BookAddDTO dto);
 }
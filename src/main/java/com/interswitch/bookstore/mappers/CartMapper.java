@@ -2,6 +2,8 @@ package com.interswitch.bookstore.mappers;
 
 import com.interswitch.bookstore.domains.Cart;
 import com.interswitch.bookstore.domains.CartItem;
+import com.interswitch.bookstore.projections.CartItemView;
+import com.interswitch.bookstore.projections.CartView;
 import com.interswitch.bookstore.responses.CartDTO;
 import com.interswitch.bookstore.responses.CartItemDTO;
 import org.mapstruct.Mapper;
@@ -16,4 +18,12 @@ public interface CartMapper {
     @Mapping(target="createdAt", source = "domain.createdAt",
             dateFormat = "dd-MM-yyyy HH:mm:ss")
     CartItemDTO toDTO(CartItem domain);
+
+    @Mapping(target="createdAt", source = "view.createdAt",
+            dateFormat = "dd-MM-yyyy HH:mm:ss")
+    CartDTO toDTO(CartView view);
+
+    @Mapping(target="createdAt", source = "view.createdAt",
+            dateFormat = "dd-MM-yyyy HH:mm:ss")
+    CartItemDTO toDTO(CartItemView view);
 }
@@ -2,9 +2,16 @@ package com.interswitch.bookstore.mappers;
 
 import com.interswitch.bookstore.domains.Book;
 import com.interswitch.bookstore.domains.Purchase;
+import com.interswitch.bookstore.domains.PurchaseHistory;
 import com.interswitch.bookstore.domains.PurchaseItem;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.projections.PurchaseHistoryLine;
+import com.interswitch.bookstore.projections.PurchaseItemView;
+import com.interswitch.bookstore.projections.PurchaseView;
 import com.interswitch.bookstore.responses.BookDTO;
 import com.interswitch.bookstore.responses.PurchaseDTO;
+import com.interswitch.bookstore.responses.PurchaseHistoryDTO;
+import com.interswitch.bookstore.responses.PurchaseHistoryItemDTO;
 import com.interswitch.bookstore.responses.PurchaseItemDTO;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -23,4 +30,24 @@ public interface PurchaseMapper {
     @Mapping(target="createdAt", source = "domain.createdAt",
             dateFormat = "dd-MM-yyyy HH:mm:ss")
     PurchaseItemDTO toDTO(PurchaseItem domain);
+
+    @Mapping(target="createdAt", source = "view.createdAt",
+            dateFormat = "dd-MM-yyyy HH:mm:ss")
+    PurchaseDTO toDTO(PurchaseView view);
+
+    @Mapping(target="createdAt", source = "view.createdAt",
+            dateFormat = "dd-MM-yyyy HH:mm:ss")
+    @Mapping(target="price", source = "view.price")
+    BookDTO toDTO(BookView view);
+
+    @Mapping(target="createdAt", source = "view.createdAt",
+            dateFormat = "dd-MM-yyyy HH:mm:ss")
+    PurchaseItemDTO toDTO(PurchaseItemView view);
+
+    @Mapping(target="purchaseDate", source = "domain.purchaseDate",
+            dateFormat = "dd-MM-yyyy HH:mm:ss")
+    @Mapping(target="items", source = "domain.lines")
+    PurchaseHistoryDTO toDTO(PurchaseHistory domain);
+
+    PurchaseHistoryItemDTO toDTO(PurchaseHistoryLine line);
 }
@@ -0,0 +1,81 @@
+package com.interswitch.bookstore.migrations;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves the ID sequences past the rows inserted while the tables used identity columns. Hibernate creates
+ * the sequences starting at 1, so without this the first IDs they hand out would collide with existing rows.
+ * A sequence is only ever moved forward, so the migration does nothing once it has run.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Component
+public class IdSequenceMigration implements ApplicationRunner {
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrate(sequences());
+    }
+
+    /**
+     * Restarts every sequence whose next block of IDs overlaps the rows already in its table.
+     *
+     * @param sequences The ID sequences with the tables they generate IDs for
+     */
+    public void migrate(List<IdSequence> sequences) {
+        for (var sequence : sequences) {
+            var maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + sequence.table(), Long.class);
+            var nextValue = jdbcTemplate.queryForObject("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES " +
+                    "WHERE LOWER(SEQUENCE_NAME) = LOWER(?)", Long.class, sequence.name());
+            if (maxId == null || nextValue == null || nextValue - sequence.allocationSize() >= maxId) {
+                continue;
+            }
+            // The pooled optimizer hands out the block ending at the value read, so the next block starts past maxId
+            var restartWith = maxId + sequence.allocationSize();
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence.name() + " RESTART WITH " + restartWith);
+            log.info("Restarted sequence {} at {} past the existing rows of {}", sequence.name(), restartWith,
+                    sequence.table());
+        }
+    }
+
+    private List<IdSequence> sequences() {
+        var sequences = new ArrayList<IdSequence>();
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .forEachEntityDescriptor(entity -> {
+                    if (entity.getGenerator() instanceof SequenceStyleGenerator generator
+                            && entity instanceof AbstractEntityPersister persister) {
+                        sequences.add(new IdSequence(persister.getTableName(),
+                                generator.getDatabaseStructure().getPhysicalName().render(),
+                                generator.getOptimizer().getIncrementSize()));
+                    }
+                });
+        return sequences;
+    }
+
+    /**
+     * An ID sequence and the table whose IDs it generates.
+     *
+     * @param table          The table
+     * @param name           The sequence
+     * @param allocationSize The number of IDs handed out per sequence value
+     */
+    public record IdSequence(String table, String name, int allocationSize) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.interswitch.bookstore.migrations;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves cart and purchase items off the link tables Hibernate generated for the former unidirectional
+ * {@code Cart.items} and {@code Purchase.items} associations onto the foreign keys the items now own,
+ * then drops the link tables. Runs on startup and does nothing once the link tables are gone.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Component
+public class LinkTableMigration implements ApplicationRunner {
+    static final String CART_LINKS = "tbl_carts_items";
+    static final String PURCHASE_LINKS = "tbl_purchases_items";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrate();
+    }
+
+    /**
+     * Backfills the item foreign keys from the link tables and drops them.
+     */
+    public void migrate() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (exists(CART_LINKS)) {
+                // The link table was the source of truth, items missing from it were removed by clearing the cart
+                var orphans = jdbcTemplate.update("DELETE FROM tbl_cart_items WHERE id NOT IN " +
+                        "(SELECT items_id FROM " + CART_LINKS + ")");
+                var linked = jdbcTemplate.update("UPDATE tbl_cart_items SET cart_id = " +
+                        "(SELECT l.cart_id FROM " + CART_LINKS + " l WHERE l.items_id = tbl_cart_items.id)");
+                jdbcTemplate.execute("DROP TABLE " + CART_LINKS);
+                log.info("Migrated {} cart items off {}, deleted {} cleared items", linked, CART_LINKS, orphans);
+            }
+            if (exists(PURCHASE_LINKS)) {
+                var linked = jdbcTemplate.update("UPDATE tbl_purchase_items SET purchase_id = " +
+                        "(SELECT l.purchase_id FROM " + PURCHASE_LINKS + " l WHERE l.items_id = tbl_purchase_items.id) " +
+                        "WHERE purchase_id IS NULL");
+                jdbcTemplate.execute("DROP TABLE " + PURCHASE_LINKS);
+                log.info("Migrated {} purchase items off {}", linked, PURCHASE_LINKS);
+            }
+        });
+    }
+
+    private boolean exists(String table) {
+        var count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE LOWER(TABLE_NAME) = ?", Integer.class, table);
+        return count != null && count > 0;
+    }
+}
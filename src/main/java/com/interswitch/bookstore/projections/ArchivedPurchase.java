@@ -0,0 +1,10 @@
+package com.interswitch.bookstore.projections;
+
+import java.util.List;
+
+/**
+ * A purchase and its items as stored in the purchase archive. The purchase view carries no items; they are
+ * joined with their books when read.
+ */
+public record ArchivedPurchase(PurchaseView purchase, List<ArchivedPurchaseItem> items) {
+}
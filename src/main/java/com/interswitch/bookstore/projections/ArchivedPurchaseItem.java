@@ -0,0 +1,10 @@
+package com.interswitch.bookstore.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a purchase item as stored in the purchase archive, keeping only the ID of its book.
+ */
+public record ArchivedPurchaseItem(Long purchaseId, Long bookId, int quantity, LocalDateTime createdAt,
+                                   LocalDateTime updatedAt) {
+}
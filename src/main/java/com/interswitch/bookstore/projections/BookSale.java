@@ -0,0 +1,17 @@
+package com.interswitch.bookstore.projections;
+
+import com.interswitch.bookstore.enums.Genre;
+
+import java.time.LocalDateTime;
+
+/**
+ * Copies of a book sold by a purchase, as fed to the sales analytics.
+ *
+ * @param purchaseId   the ID of the purchase
+ * @param purchaseDate when the purchase was made
+ * @param bookId       the ID of the book
+ * @param genre        the genre of the book
+ * @param quantity     the number of copies sold
+ */
+public record BookSale(Long purchaseId, LocalDateTime purchaseDate, Long bookId, Genre genre, int quantity) {
+}
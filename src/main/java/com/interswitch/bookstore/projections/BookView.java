@@ -0,0 +1,21 @@
+package com.interswitch.bookstore.projections;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a book holding only the columns returned to clients. Instances are created
+ * straight from the result set and are never managed by the persistence context.
+ */
+public record BookView(Long id, String title, Genre genre, String isbn, String author, int publicationYear,
+                       BigDecimal price, int quantityInStock, LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static BookView of(Book book) {
+        return new BookView(book.getId(), book.getTitle(), book.getGenre(), book.getIsbn(), book.getAuthor(),
+                book.getPublicationYear(), book.getPrice(), book.getQuantityInStock(), book.getCreatedAt(),
+                book.getUpdatedAt());
+    }
+}
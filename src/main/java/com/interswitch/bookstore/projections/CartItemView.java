@@ -0,0 +1,21 @@
+package com.interswitch.bookstore.projections;
+
+import com.interswitch.bookstore.enums.Genre;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a cart item and its book, selected as a single flat row.
+ */
+public record CartItemView(Long id, int quantity, LocalDateTime createdAt, LocalDateTime updatedAt,
+                           BookView book) {
+
+    public CartItemView(Long id, int quantity, LocalDateTime createdAt, LocalDateTime updatedAt,
+                        Long bookId, String title, Genre genre, String isbn, String author, int publicationYear,
+                        BigDecimal price, int quantityInStock, LocalDateTime bookCreatedAt,
+                        LocalDateTime bookUpdatedAt) {
+        this(id, quantity, createdAt, updatedAt, new BookView(bookId, title, genre, isbn, author,
+                publicationYear, price, quantityInStock, bookCreatedAt, bookUpdatedAt));
+    }
+}
@@ -0,0 +1,14 @@
+package com.interswitch.bookstore.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Copies of a book held back for a cart.
+ *
+ * @param cartId        the ID of the cart
+ * @param bookId        the ID of the book
+ * @param quantity      the number of copies held back
+ * @param reservedUntil when the copies are returned to stock unless the cart is checked out
+ */
+public record CartReservation(Long cartId, Long bookId, int quantity, LocalDateTime reservedUntil) {
+}
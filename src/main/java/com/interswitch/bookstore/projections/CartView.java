@@ -0,0 +1,20 @@
+package com.interswitch.bookstore.projections;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read-only projection of a cart. The cart row and its items are selected separately and joined
+ * with {@link #withItems(List)}.
+ */
+public record CartView(Long id, Long userId, LocalDateTime createdAt, LocalDateTime updatedAt,
+                       List<CartItemView> items) {
+
+    public CartView(Long id, Long userId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, userId, createdAt, updatedAt, List.of());
+    }
+
+    public CartView withItems(List<CartItemView> items) {
+        return new CartView(id, userId, createdAt, updatedAt, List.copyOf(items));
+    }
+}
@@ -0,0 +1,18 @@
+package com.interswitch.bookstore.projections;
+
+import java.math.BigDecimal;
+
+/**
+ * A line of a purchase as it was sold, stored inside its {@link com.interswitch.bookstore.domains.PurchaseHistory}
+ * row so history reads never join the live book table.
+ *
+ * @param bookId   the ID of the book
+ * @param title    the title of the book at checkout
+ * @param author   the author of the book at checkout
+ * @param isbn     the ISBN of the book at checkout
+ * @param price    the unit price paid
+ * @param quantity the number of copies bought
+ */
+public record PurchaseHistoryLine(Long bookId, String title, String author, String isbn, BigDecimal price,
+                                  int quantity) {
+}
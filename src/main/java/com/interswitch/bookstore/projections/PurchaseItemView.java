@@ -0,0 +1,22 @@
+package com.interswitch.bookstore.projections;
+
+import com.interswitch.bookstore.enums.Genre;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a purchase item and its book, selected as a single flat row together with the
+ * id of the purchase it belongs to.
+ */
+public record PurchaseItemView(Long purchaseId, int quantity, LocalDateTime createdAt, LocalDateTime updatedAt,
+                               BookView book) {
+
+    public PurchaseItemView(Long purchaseId, int quantity, LocalDateTime createdAt, LocalDateTime updatedAt,
+                            Long bookId, String title, Genre genre, String isbn, String author, int publicationYear,
+                            BigDecimal price, int quantityInStock, LocalDateTime bookCreatedAt,
+                            LocalDateTime bookUpdatedAt) {
+        this(purchaseId, quantity, createdAt, updatedAt, new BookView(bookId, title, genre, isbn, author,
+                publicationYear, price, quantityInStock, bookCreatedAt, bookUpdatedAt));
+    }
+}
@@ -0,0 +1,25 @@
+package com.interswitch.bookstore.projections;
+
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read-only projection of a purchase. The purchase rows of a page and their items are selected separately
+ * and joined with {@link #withItems(List)}.
+ */
+public record PurchaseView(Long id, Long userId, LocalDateTime purchaseDate, PaymentMethod paymentMethod,
+                           PurchaseStatus status, LocalDateTime createdAt, LocalDateTime updatedAt,
+                           List<PurchaseItemView> items) {
+
+    public PurchaseView(Long id, Long userId, LocalDateTime purchaseDate, PaymentMethod paymentMethod,
+                        PurchaseStatus status, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, userId, purchaseDate, paymentMethod, status, createdAt, updatedAt, List.of());
+    }
+
+    public PurchaseView withItems(List<PurchaseItemView> items) {
+        return new PurchaseView(id, userId, purchaseDate, paymentMethod, status, createdAt, updatedAt, List.copyOf(items));
+    }
+}
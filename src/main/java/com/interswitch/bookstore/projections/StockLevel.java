@@ -0,0 +1,10 @@
+package com.interswitch.bookstore.projections;
+
+/**
+ * Stock columns of a book row.
+ *
+ * @param quantityInStock the stock of the book, for a book on flash sale the total of its shards as of the last sync
+ * @param stockShards     the number of flash-sale shards, 0 when the book is not on flash sale
+ */
+public record StockLevel(int quantityInStock, int stockShards) {
+}
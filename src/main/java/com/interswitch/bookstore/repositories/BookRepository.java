@@ -1,14 +1,31 @@
 package com.interswitch.bookstore.repositories;
 
 import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.projections.BookView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookStockRepository {
+    String BOOK_COLUMNS = "b.id, b.title, b.genre, b.isbn, b.author, b.publicationYear, b.price, " +
+            "b.quantityInStock, b.createdAt, b.updatedAt";
+    String BOOK_VIEW = "new com.interswitch.bookstore.projections.BookView(" + BOOK_COLUMNS + ")";
+    // The search term is the first parameter, its wildcards are escaped so it always matches as a plain substring
+    String SEARCH_TERM = "CONCAT('%', :#{escape([0])}, '%')";
+    String SEARCH_FILTER = "(:searchTerm IS NULL OR " +
+            "LOWER(b.title) LIKE LOWER(" + SEARCH_TERM + ") ESCAPE :#{escapeCharacter()} OR " +
+            "LOWER(b.author) LIKE LOWER(" + SEARCH_TERM + ") ESCAPE :#{escapeCharacter()} OR " +
+            "CAST(b.publicationYear AS string) LIKE " + SEARCH_TERM + " ESCAPE :#{escapeCharacter()} OR " +
+            "LOWER(b.genre) LIKE LOWER(" + SEARCH_TERM + ") ESCAPE :#{escapeCharacter()})";
 
     /**
      * Searches for books matching the given search term across multiple fields.
@@ -16,13 +33,69 @@ public interface BookRepository extends JpaRepository<Book, Long> {
      *
      * @param searchTerm The term to search for (can be null for all books)
      * @param pageable Pagination information including page size and number
-     * @return Page<Book> containing the matching books with pagination applied
+     * @return Page<BookView> containing the matching books with pagination applied
+     */
+    @Query(value = "SELECT " + BOOK_VIEW + " FROM Book b WHERE " + SEARCH_FILTER,
+            countQuery = "SELECT COUNT(b) FROM Book b WHERE " + SEARCH_FILTER)
+    Page<BookView> searchBooks(String searchTerm, Pageable pageable);
+
+    /**
+     * Searches for books matching the given search term that sort after the given keyset position,
+     * newest first. No count query is issued.
+     *
+     * @param searchTerm The term to search for (can be null for all books)
+     * @param createdAt  Creation time of the last book already returned (can be null for the first slice)
+     * @param id         ID of the last book already returned (can be null for the first slice)
+     * @param pageable   Limit of the number of books to return
+     * @return List<BookView> containing the next books in (createdAt, id) descending order
+     */
+    @Query("SELECT " + BOOK_VIEW + " FROM Book b WHERE " + SEARCH_FILTER + " AND " +
+            "(CAST(:createdAt AS LocalDateTime) IS NULL OR b.createdAt < :createdAt OR " +
+            "(b.createdAt = :createdAt AND b.id < :id)) " +
+            "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookView> searchBooksBefore(String searchTerm, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    /**
+     * Searches for books matching the given search term that sort after the given keyset position,
+     * oldest first. No count query is issued.
+     *
+     * @param searchTerm The term to search for (can be null for all books)
+     * @param createdAt  Creation time of the last book already returned (can be null for the first slice)
+     * @param id         ID of the last book already returned (can be null for the first slice)
+     * @param pageable   Limit of the number of books to return
+     * @return List<BookView> containing the next books in (createdAt, id) ascending order
+     */
+    @Query("SELECT " + BOOK_VIEW + " FROM Book b WHERE " + SEARCH_FILTER + " AND " +
+            "(CAST(:createdAt AS LocalDateTime) IS NULL OR b.createdAt > :createdAt OR " +
+            "(b.createdAt = :createdAt AND b.id > :id)) " +
+            "ORDER BY b.createdAt ASC, b.id ASC")
+    List<BookView> searchBooksAfter(String searchTerm, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    /**
+     * Retrieves a slice of all books without issuing a count query.
+     *
+     * @param pageable Pagination information including page size, number and sorting
+     * @return Slice<BookView> containing the books of the requested page
+     */
+    @Query("SELECT " + BOOK_VIEW + " FROM Book b")
+    Slice<BookView> findAllBy(Pageable pageable);
+
+    /**
+     * Retrieves a book by its ID without loading it into the persistence context.
+     *
+     * @param id The ID of the book
+     * @return Optional containing the book if found, empty otherwise
+     */
+    @Query("SELECT " + BOOK_VIEW + " FROM Book b WHERE b.id = :id")
+    Optional<BookView> findViewById(Long id);
+
+    /**
+     * Retrieves the books with the given IDs without loading them into the persistence context.
+     * The books are returned in no particular order.
+     *
+     * @param ids The IDs of the books
+     * @return List<BookView> containing the books found
      */
-    @Query("SELECT b FROM Book b WHERE " +
-            ":searchTerm IS NULL OR " +
-            "LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(b.author) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "CAST(b.publicationYear AS string) LIKE CONCAT('%', :searchTerm, '%') OR " +
-            "LOWER(b.genre) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<Book> searchBooks(String searchTerm, Pageable pageable);
-}
\ No newline at end of file
+    @Query("SELECT " + BOOK_VIEW + " FROM Book b WHERE b.id IN :ids")
+    List<BookView> findViewsByIdIn(Collection<Long> ids);
+}
@@ -0,0 +1,140 @@
+package com.interswitch.bookstore.repositories;
+
+import com.interswitch.bookstore.projections.StockLevel;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+
+public interface BookStockRepository {
+
+    /**
+     * Takes the given quantities out of stock. Each book is decremented by a single conditional
+     * {@code UPDATE ... WHERE quantity_in_stock >= ?}, so stock can never go negative and no decrement is lost
+     * to a concurrent one. All updates are sent as one JDBC batch in ascending book ID order, which keeps
+     * the order row locks are taken in the same across transactions. Books on flash sale are never
+     * decremented here, their stock is held in their shards.
+     *
+     * @param quantities The quantity to take out of stock per book ID
+     * @return List of the IDs of the books that were not decremented, because they have insufficient stock,
+     * are on flash sale or do not exist
+     * @throws org.springframework.dao.QueryTimeoutException if the row locks are not acquired in time
+     */
+    List<Long> decrementStock(SortedMap<Long, Integer> quantities);
+
+    /**
+     * Subtracts the given deltas from the stock without checking it, for stock changes that were already
+     * validated elsewhere. A negative delta adds stock. All updates are sent as one JDBC batch in ascending
+     * book ID order.
+     *
+     * @param deltas The quantity to subtract from the stock per book ID
+     */
+    void subtractStock(SortedMap<Long, Integer> deltas);
+
+    /**
+     * Reads the generation of the last in-memory inventory journal segment written back to the stock.
+     *
+     * @return Optional containing the generation, empty if no journal was ever written back to this database
+     */
+    Optional<Long> findFlushedJournalGeneration();
+
+    /**
+     * Records the generation of the last in-memory inventory journal segment written back to the stock. Called
+     * in the transaction subtracting the segment's changes, so the two are committed together.
+     *
+     * @param generation The generation of the segment
+     */
+    void updateFlushedJournalGeneration(long generation);
+
+    /**
+     * Reads the stock columns of a book.
+     *
+     * @param bookId The ID of the book
+     * @return Optional containing the stock columns, empty if the book does not exist
+     */
+    Optional<StockLevel> findStockLevel(Long bookId);
+
+    /**
+     * Reads the stock columns of a book and locks its row until the end of the transaction.
+     *
+     * @param bookId The ID of the book
+     * @return Optional containing the stock columns, empty if the book does not exist
+     */
+    Optional<StockLevel> lockStockLevel(Long bookId);
+
+    /**
+     * Sets the stock columns of a book.
+     *
+     * @param bookId          The ID of the book
+     * @param quantityInStock The stock of the book
+     * @param stockShards     The number of flash-sale shards, 0 to hold the stock in the book row
+     */
+    void updateStockLevel(Long bookId, int quantityInStock, int stockShards);
+
+    /**
+     * Retrieves the books on flash sale.
+     *
+     * @return Map of the number of shards per book ID
+     */
+    Map<Long, Integer> findShardedBooks();
+
+    /**
+     * Takes a quantity out of one shard of a book with a conditional update.
+     *
+     * @param bookId   The ID of the book
+     * @param shard    The index of the shard
+     * @param quantity The quantity to take out
+     * @return true if the shard held enough stock and was decremented
+     */
+    boolean decrementShard(Long bookId, int shard, int quantity);
+
+    /**
+     * Adds a quantity to one shard of a book.
+     *
+     * @param bookId   The ID of the book
+     * @param shard    The index of the shard
+     * @param quantity The quantity to add
+     * @return true if the shard exists and was incremented
+     */
+    boolean incrementShard(Long bookId, int shard, int quantity);
+
+    /**
+     * Reads the shards of a book and locks them until the end of the transaction.
+     *
+     * @param bookId The ID of the book
+     * @return List of the quantity per shard in shard order, empty if the book is not on flash sale
+     */
+    List<Integer> lockShards(Long bookId);
+
+    /**
+     * Replaces the shards of a book.
+     *
+     * @param bookId     The ID of the book
+     * @param quantities The quantity per shard in shard order, empty to remove the shards
+     */
+    void replaceShards(Long bookId, List<Integer> quantities);
+
+    /**
+     * Overwrites the quantities of the existing shards of a book in one batch.
+     *
+     * @param bookId     The ID of the book
+     * @param quantities The quantity per shard in shard order
+     */
+    void updateShards(Long bookId, List<Integer> quantities);
+
+    /**
+     * Retrieves the books on flash sale with a drained shard while another shard still holds more than one copy.
+     *
+     * @return List of the IDs of the books whose shards should be rebalanced
+     */
+    List<Long> findUnbalancedShardedBooks();
+
+    /**
+     * Copies the total of the shards of every book on flash sale into its stock column, so reads of the book
+     * row see the stock left.
+     *
+     * @return List of the IDs of the books whose stock column changed
+     */
+    List<Long> syncShardedStock();
+}
@@ -0,0 +1,180 @@
+package com.interswitch.bookstore.repositories;
+
+import com.interswitch.bookstore.configs.CheckoutProperties;
+import com.interswitch.bookstore.projections.StockLevel;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+public class BookStockRepositoryImpl implements BookStockRepository {
+    private static final String DECREMENT_STOCK = "UPDATE tbl_books " +
+            "SET quantity_in_stock = quantity_in_stock - ?, updated_at = ? " +
+            "WHERE id = ? AND quantity_in_stock >= ? AND stock_shards = 0";
+    private static final String SUBTRACT_STOCK = "UPDATE tbl_books " +
+            "SET quantity_in_stock = quantity_in_stock - ?, updated_at = ? WHERE id = ?";
+    private static final String FIND_FLUSHED_JOURNAL_GENERATION =
+            "SELECT flushed_generation FROM tbl_inventory_journal";
+    private static final String UPDATE_FLUSHED_JOURNAL_GENERATION = "UPDATE tbl_inventory_journal " +
+            "SET flushed_generation = ?, updated_at = ?";
+    private static final String INSERT_FLUSHED_JOURNAL_GENERATION = "INSERT INTO tbl_inventory_journal " +
+            "(id, flushed_generation, created_at) VALUES (NEXT VALUE FOR tbl_inventory_journal_SEQ, ?, ?)";
+    private static final String FIND_STOCK_LEVEL = "SELECT quantity_in_stock, stock_shards FROM tbl_books WHERE id = ?";
+    private static final String LOCK_STOCK_LEVEL = FIND_STOCK_LEVEL + " FOR UPDATE";
+    private static final String UPDATE_STOCK_LEVEL = "UPDATE tbl_books " +
+            "SET quantity_in_stock = ?, stock_shards = ?, updated_at = ? WHERE id = ?";
+    private static final String FIND_SHARDED_BOOKS = "SELECT id, stock_shards FROM tbl_books WHERE stock_shards > 0";
+    private static final String DECREMENT_SHARD = "UPDATE tbl_book_stock_shards " +
+            "SET quantity = quantity - ? WHERE book_id = ? AND shard = ? AND quantity >= ?";
+    private static final String INCREMENT_SHARD = "UPDATE tbl_book_stock_shards " +
+            "SET quantity = quantity + ? WHERE book_id = ? AND shard = ?";
+    private static final String LOCK_SHARDS = "SELECT quantity FROM tbl_book_stock_shards " +
+            "WHERE book_id = ? ORDER BY shard FOR UPDATE";
+    private static final String DELETE_SHARDS = "DELETE FROM tbl_book_stock_shards WHERE book_id = ?";
+    // Each row takes a whole block of the sequence; shards are rewritten rarely enough for the gap not to matter
+    private static final String INSERT_SHARD = "INSERT INTO tbl_book_stock_shards " +
+            "(id, book_id, shard, quantity, created_at) VALUES (NEXT VALUE FOR tbl_book_stock_shards_SEQ, ?, ?, ?, ?)";
+    private static final String UPDATE_SHARD = "UPDATE tbl_book_stock_shards " +
+            "SET quantity = ?, updated_at = ? WHERE book_id = ? AND shard = ?";
+    private static final String FIND_UNBALANCED_SHARDED_BOOKS = "SELECT book_id FROM tbl_book_stock_shards " +
+            "GROUP BY book_id HAVING MIN(quantity) = 0 AND MAX(quantity) > 1";
+    private static final String FIND_STALE_SHARDED_STOCK = "SELECT b.id, SUM(s.quantity) FROM tbl_books b " +
+            "JOIN tbl_book_stock_shards s ON s.book_id = b.id WHERE b.stock_shards > 0 " +
+            "GROUP BY b.id, b.quantity_in_stock HAVING SUM(s.quantity) <> b.quantity_in_stock";
+    private static final String SYNC_SHARDED_STOCK = "UPDATE tbl_books " +
+            "SET quantity_in_stock = ?, updated_at = ? WHERE id = ? AND stock_shards > 0";
+    private static final RowMapper<StockLevel> STOCK_LEVEL = (rs, row) -> new StockLevel(rs.getInt(1), rs.getInt(2));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookStockRepositoryImpl(JdbcTemplate jdbcTemplate, CheckoutProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setQueryTimeout((int) Math.max(1, properties.getStockUpdateTimeout().toSeconds()));
+    }
+
+    @Override
+    public List<Long> decrementStock(SortedMap<Long, Integer> quantities) {
+        var updatedAt = now();
+        var bookIds = new ArrayList<>(quantities.keySet());
+        var arguments = new ArrayList<Object[]>(quantities.size());
+        quantities.forEach((bookId, quantity) -> arguments.add(new Object[]{quantity, updatedAt, bookId, quantity}));
+
+        var updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK, arguments);
+        var rejected = new ArrayList<Long>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                rejected.add(bookIds.get(i));
+            }
+        }
+        return rejected;
+    }
+
+    @Override
+    public void subtractStock(SortedMap<Long, Integer> deltas) {
+        var updatedAt = now();
+        var arguments = new ArrayList<Object[]>(deltas.size());
+        deltas.forEach((bookId, delta) -> arguments.add(new Object[]{delta, updatedAt, bookId}));
+        jdbcTemplate.batchUpdate(SUBTRACT_STOCK, arguments);
+    }
+
+    @Override
+    public Optional<Long> findFlushedJournalGeneration() {
+        return jdbcTemplate.queryForList(FIND_FLUSHED_JOURNAL_GENERATION, Long.class).stream().findFirst();
+    }
+
+    @Override
+    public void updateFlushedJournalGeneration(long generation) {
+        var now = now();
+        if (jdbcTemplate.update(UPDATE_FLUSHED_JOURNAL_GENERATION, generation, now) == 0) {
+            jdbcTemplate.update(INSERT_FLUSHED_JOURNAL_GENERATION, generation, now);
+        }
+    }
+
+    @Override
+    public Optional<StockLevel> findStockLevel(Long bookId) {
+        return jdbcTemplate.query(FIND_STOCK_LEVEL, STOCK_LEVEL, bookId).stream().findFirst();
+    }
+
+    @Override
+    public Optional<StockLevel> lockStockLevel(Long bookId) {
+        return jdbcTemplate.query(LOCK_STOCK_LEVEL, STOCK_LEVEL, bookId).stream().findFirst();
+    }
+
+    @Override
+    public void updateStockLevel(Long bookId, int quantityInStock, int stockShards) {
+        jdbcTemplate.update(UPDATE_STOCK_LEVEL, quantityInStock, stockShards, now(), bookId);
+    }
+
+    @Override
+    public Map<Long, Integer> findShardedBooks() {
+        var books = new HashMap<Long, Integer>();
+        jdbcTemplate.query(FIND_SHARDED_BOOKS, rs -> {
+            books.put(rs.getLong(1), rs.getInt(2));
+        });
+        return books;
+    }
+
+    @Override
+    public boolean decrementShard(Long bookId, int shard, int quantity) {
+        return jdbcTemplate.update(DECREMENT_SHARD, quantity, bookId, shard, quantity) == 1;
+    }
+
+    @Override
+    public boolean incrementShard(Long bookId, int shard, int quantity) {
+        return jdbcTemplate.update(INCREMENT_SHARD, quantity, bookId, shard) == 1;
+    }
+
+    @Override
+    public List<Integer> lockShards(Long bookId) {
+        return jdbcTemplate.queryForList(LOCK_SHARDS, Integer.class, bookId);
+    }
+
+    @Override
+    public void replaceShards(Long bookId, List<Integer> quantities) {
+        jdbcTemplate.update(DELETE_SHARDS, bookId);
+        var createdAt = now();
+        var arguments = new ArrayList<Object[]>(quantities.size());
+        for (int shard = 0; shard < quantities.size(); shard++) {
+            arguments.add(new Object[]{bookId, shard, quantities.get(shard), createdAt});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SHARD, arguments);
+    }
+
+    @Override
+    public void updateShards(Long bookId, List<Integer> quantities) {
+        var updatedAt = now();
+        var arguments = new ArrayList<Object[]>(quantities.size());
+        for (int shard = 0; shard < quantities.size(); shard++) {
+            arguments.add(new Object[]{quantities.get(shard), updatedAt, bookId, shard});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SHARD, arguments);
+    }
+
+    @Override
+    public List<Long> findUnbalancedShardedBooks() {
+        return jdbcTemplate.queryForList(FIND_UNBALANCED_SHARDED_BOOKS, Long.class);
+    }
+
+    @Override
+    public List<Long> syncShardedStock() {
+        var totals = new TreeMap<Long, Integer>();
+        jdbcTemplate.query(FIND_STALE_SHARDED_STOCK, rs -> {
+            totals.put(rs.getLong(1), rs.getInt(2));
+        });
+        if (totals.isEmpty()) {
+            return List.of();
+        }
+        var updatedAt = now();
+        var arguments = new ArrayList<Object[]>(totals.size());
+        totals.forEach((bookId, total) -> arguments.add(new Object[]{total, updatedAt, bookId}));
+        jdbcTemplate.batchUpdate(SYNC_SHARDED_STOCK, arguments);
+        return List.copyOf(totals.keySet());
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+    }
+}
@@ -2,12 +2,14 @@ package com.interswitch.bookstore.repositories;
 
 import com.interswitch.bookstore.domains.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartReservationRepository {
 
     /**
      * Finds all cart items associated with the specified cart ID.
@@ -16,4 +18,14 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
      * @return List of CartItem objects associated with the given cart ID
      */
     List<CartItem> findByCartId(Long cartId);
+
+    /**
+     * Deletes all items of the specified cart with a single statement.
+     *
+     * @param cartId The ID of the cart whose items are to be deleted
+     * @return the number of deleted items
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CartItem i WHERE i.cart.id = :cartId")
+    int deleteByCartId(Long cartId);
 }
\ No newline at end of file
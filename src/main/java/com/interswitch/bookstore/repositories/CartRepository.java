@@ -1,11 +1,18 @@
 package com.interswitch.bookstore.repositories;
 
 import com.interswitch.bookstore.domains.Cart;
+import com.interswitch.bookstore.projections.CartItemView;
+import com.interswitch.bookstore.projections.CartView;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import static com.interswitch.bookstore.repositories.BookRepository.BOOK_COLUMNS;
+
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     /**
@@ -15,4 +22,47 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
      * @return Optional containing the Cart if found, empty otherwise
      */
     Optional<Cart> findByUserId(Long userId);
+
+    /**
+     * Finds a cart associated with the specified user ID together with its items and their books,
+     * in a single query.
+     *
+     * @param userId The ID of the user whose cart is to be retrieved
+     * @return Optional containing the Cart if found, empty otherwise
+     */
+    @EntityGraph(attributePaths = {"items", "items.book"})
+    Optional<Cart> findWithItemsByUserId(Long userId);
+
+    /**
+     * Finds a cart associated with the specified user ID together with its items in a single query.
+     * The books of the items are left unloaded.
+     *
+     * @param userId The ID of the user whose cart is to be retrieved
+     * @return Optional containing the Cart if found, empty otherwise
+     */
+    @EntityGraph(attributePaths = "items")
+    Optional<Cart> findForCheckoutByUserId(Long userId);
+
+    /**
+     * Finds the cart of the specified user without loading it into the persistence context.
+     * The items are not included, see {@link #findItemViews(Long)}.
+     *
+     * @param userId The ID of the user whose cart is to be retrieved
+     * @return Optional containing the cart if found, empty otherwise
+     */
+    @Query("SELECT new com.interswitch.bookstore.projections.CartView(c.id, c.userId, c.createdAt, c.updatedAt) " +
+            "FROM Cart c WHERE c.userId = :userId")
+    Optional<CartView> findViewByUserId(Long userId);
+
+    /**
+     * Retrieves the items of a cart together with their books in a single query, without loading them into
+     * the persistence context.
+     *
+     * @param cartId The ID of the cart whose items are to be retrieved
+     * @return List of the cart items in the order they were added
+     */
+    @Query("SELECT new com.interswitch.bookstore.projections.CartItemView(" +
+            "i.id, i.quantity, i.createdAt, i.updatedAt, " + BOOK_COLUMNS + ") " +
+            "FROM Cart c JOIN c.items i JOIN i.book b WHERE c.id = :cartId ORDER BY i.id")
+    List<CartItemView> findItemViews(Long cartId);
 }
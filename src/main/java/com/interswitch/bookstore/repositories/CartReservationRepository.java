@@ -0,0 +1,54 @@
+package com.interswitch.bookstore.repositories;
+
+import com.interswitch.bookstore.projections.CartReservation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface CartReservationRepository {
+
+    /**
+     * Adds copies to the reservation of a cart item and moves its expiry.
+     *
+     * @param cartId        The ID of the cart
+     * @param bookId        The ID of the book
+     * @param quantity      The number of copies to add to the reservation
+     * @param reservedUntil The new expiry of the whole reservation
+     */
+    void extendReservation(Long cartId, Long bookId, int quantity, LocalDateTime reservedUntil);
+
+    /**
+     * Reads the reservations of a cart and locks their items until the end of the transaction.
+     *
+     * @param cartId The ID of the cart
+     * @return List of the reservations of the cart, whether or not they have passed their expiry
+     */
+    List<CartReservation> lockReservations(Long cartId);
+
+    /**
+     * Reads a reservation and locks its item until the end of the transaction, provided it still expires at
+     * the given time. A reservation extended since then is left to the timer of its new expiry.
+     *
+     * @param cartId        The ID of the cart
+     * @param bookId        The ID of the book
+     * @param reservedUntil The expiry the reservation was scheduled with
+     * @return Optional containing the reservation, empty if it was extended, consumed or already released
+     */
+    Optional<CartReservation> lockExpiredReservation(Long cartId, Long bookId, LocalDateTime reservedUntil);
+
+    /**
+     * Removes the reservation of a cart item, leaving the item itself in place.
+     *
+     * @param cartId The ID of the cart
+     * @param bookId The ID of the book
+     */
+    void clearReservation(Long cartId, Long bookId);
+
+    /**
+     * Retrieves all reservations, for rescheduling their expiry after a restart.
+     *
+     * @return List of all reservations
+     */
+    List<CartReservation> findAllReservations();
+}
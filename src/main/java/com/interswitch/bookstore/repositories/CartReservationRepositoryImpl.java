@@ -0,0 +1,57 @@
+package com.interswitch.bookstore.repositories;
+
+import com.interswitch.bookstore.projections.CartReservation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public class CartReservationRepositoryImpl implements CartReservationRepository {
+    private static final String COLUMNS = "SELECT cart_id, book_id, reserved_quantity, reserved_until FROM tbl_cart_items ";
+    private static final String EXTEND_RESERVATION = "UPDATE tbl_cart_items " +
+            "SET reserved_quantity = reserved_quantity + ?, reserved_until = ? WHERE cart_id = ? AND book_id = ?";
+    private static final String LOCK_RESERVATIONS = COLUMNS +
+            "WHERE cart_id = ? AND reserved_quantity > 0 ORDER BY book_id FOR UPDATE";
+    private static final String LOCK_EXPIRED_RESERVATION = COLUMNS +
+            "WHERE cart_id = ? AND book_id = ? AND reserved_until = ? AND reserved_quantity > 0 FOR UPDATE";
+    private static final String CLEAR_RESERVATION = "UPDATE tbl_cart_items " +
+            "SET reserved_quantity = 0, reserved_until = NULL WHERE cart_id = ? AND book_id = ?";
+    private static final String FIND_ALL_RESERVATIONS = COLUMNS + "WHERE reserved_quantity > 0";
+    private static final RowMapper<CartReservation> RESERVATION = (rs, row) -> new CartReservation(
+            rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getTimestamp(4).toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CartReservationRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void extendReservation(Long cartId, Long bookId, int quantity, LocalDateTime reservedUntil) {
+        jdbcTemplate.update(EXTEND_RESERVATION, quantity, Timestamp.valueOf(reservedUntil), cartId, bookId);
+    }
+
+    @Override
+    public List<CartReservation> lockReservations(Long cartId) {
+        return jdbcTemplate.query(LOCK_RESERVATIONS, RESERVATION, cartId);
+    }
+
+    @Override
+    public Optional<CartReservation> lockExpiredReservation(Long cartId, Long bookId, LocalDateTime reservedUntil) {
+        return jdbcTemplate.query(LOCK_EXPIRED_RESERVATION, RESERVATION, cartId, bookId, Timestamp.valueOf(reservedUntil))
+                .stream().findFirst();
+    }
+
+    @Override
+    public void clearReservation(Long cartId, Long bookId) {
+        jdbcTemplate.update(CLEAR_RESERVATION, cartId, bookId);
+    }
+
+    @Override
+    public List<CartReservation> findAllReservations() {
+        return jdbcTemplate.query(FIND_ALL_RESERVATIONS, RESERVATION);
+    }
+}
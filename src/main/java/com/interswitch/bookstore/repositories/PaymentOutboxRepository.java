@@ -0,0 +1,52 @@
+package com.interswitch.bookstore.repositories;
+
+import com.interswitch.bookstore.domains.PaymentOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PaymentOutboxRepository extends JpaRepository<PaymentOutbox, Long> {
+
+    /**
+     * Retrieves the outbox entries that are due, oldest first.
+     *
+     * @param now      the current time
+     * @param pageable limit of the number of entries to return
+     * @return a List of the entries available at or before now
+     */
+    @Query("SELECT o FROM PaymentOutbox o WHERE o.availableAt <= :now ORDER BY o.availableAt, o.id")
+    List<PaymentOutbox> findDue(LocalDateTime now, Pageable pageable);
+
+    /**
+     * Claims an outbox entry by moving its availability to the end of a lease and counting the attempt.
+     * The update only matches while the entry is unchanged since it was read, so of several relays reading
+     * the same entry exactly one claims it.
+     *
+     * @param id          the ID of the entry
+     * @param availableAt the availability the entry was read with
+     * @param leaseUntil  the end of the lease
+     * @return 1 if the entry was claimed, 0 if another relay claimed it first
+     */
+    // Detaches the entries read before, so flushing them cannot write their old availability over the lease
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE PaymentOutbox o SET o.availableAt = :leaseUntil, o.attempts = o.attempts + 1 " +
+            "WHERE o.id = :id AND o.availableAt = :availableAt")
+    int claim(Long id, LocalDateTime availableAt, LocalDateTime leaseUntil);
+
+    /**
+     * Gives back a claimed outbox entry whose payment was not attempted, without counting the attempt.
+     *
+     * @param id          the ID of the entry
+     * @param availableAt when the entry can be claimed again
+     * @return 1 if the entry was given back, 0 if it no longer exists
+     */
+    @Modifying
+    @Query("UPDATE PaymentOutbox o SET o.availableAt = :availableAt, o.attempts = o.attempts - 1 WHERE o.id = :id")
+    int defer(Long id, LocalDateTime availableAt);
+}
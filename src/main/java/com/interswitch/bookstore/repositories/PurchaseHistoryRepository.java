@@ -0,0 +1,59 @@
+package com.interswitch.bookstore.repositories;
+
+import com.interswitch.bookstore.domains.PurchaseHistory;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PurchaseHistoryRepository extends JpaRepository<PurchaseHistory, Long> {
+
+    /**
+     * Retrieves the purchases of a user made within a date range that sort after the given keyset position,
+     * newest first. No count query is issued.
+     *
+     * @param userId       the ID of the user whose purchase history is to be retrieved
+     * @param from         the start of the range, inclusive
+     * @param to           the end of the range, exclusive
+     * @param purchaseDate purchase date of the last purchase already returned (can be null for the first slice)
+     * @param purchaseId   ID of the last purchase already returned (can be null for the first slice)
+     * @param pageable     limit of the number of purchases to return
+     * @return a List of history entries in (purchaseDate, purchaseId) descending order
+     */
+    @Query("SELECT h FROM PurchaseHistory h WHERE h.userId = :userId " +
+            "AND h.purchaseDate >= :from AND h.purchaseDate < :to AND " +
+            "(CAST(:purchaseDate AS LocalDateTime) IS NULL OR h.purchaseDate < :purchaseDate OR " +
+            "(h.purchaseDate = :purchaseDate AND h.purchaseId < :purchaseId)) " +
+            "ORDER BY h.purchaseDate DESC, h.purchaseId DESC")
+    List<PurchaseHistory> findHistory(Long userId, LocalDateTime from, LocalDateTime to, LocalDateTime purchaseDate,
+                                      Long purchaseId, Pageable pageable);
+
+    /**
+     * Copies a status change of a purchase onto its history entry.
+     *
+     * @param purchaseId the ID of the purchase
+     * @param status     the new status
+     * @param now        the time of the change
+     * @return 1 if the entry was updated, 0 if the purchase has none
+     */
+    @Modifying
+    @Query("UPDATE PurchaseHistory h SET h.status = :status, h.updatedAt = :now WHERE h.purchaseId = :purchaseId")
+    int updateStatus(Long purchaseId, PurchaseStatus status, LocalDateTime now);
+
+    /**
+     * Retrieves the IDs of purchases that have no history entry yet, such as those placed before the history
+     * was kept.
+     *
+     * @param pageable limit of the number of IDs to return
+     * @return a List of purchase IDs in ascending order
+     */
+    @Query("SELECT p.id FROM Purchase p WHERE NOT EXISTS " +
+            "(SELECT 1 FROM PurchaseHistory h WHERE h.purchaseId = p.id) ORDER BY p.id")
+    List<Long> findUnrecordedPurchaseIds(Pageable pageable);
+}
@@ -1,22 +1,198 @@
 package com.interswitch.bookstore.repositories;
 
 import com.interswitch.bookstore.domains.Purchase;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.projections.ArchivedPurchaseItem;
+import com.interswitch.bookstore.projections.BookSale;
+import com.interswitch.bookstore.projections.PurchaseItemView;
+import com.interswitch.bookstore.projections.PurchaseView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static com.interswitch.bookstore.repositories.BookRepository.BOOK_COLUMNS;
+
 @Repository
 public interface PurchaseRepository extends JpaRepository<Purchase, Long> {
+    String PURCHASE_VIEW = "new com.interswitch.bookstore.projections.PurchaseView(" +
+            "p.id, p.userId, p.purchaseDate, p.paymentMethod, p.status, p.createdAt, p.updatedAt)";
 
     /**
      * Retrieves a paginated list of purchase history for a specific user.
      *
      * @param userId   the ID of the user whose purchase history is to be retrieved
      * @param pageable pagination information including page number, page size, and sorting
-     * @return a Page containing Purchase entities for the specified user
+     * @return a Page containing the purchases of the specified user, without their items
+     */
+    @Query(value = "SELECT " + PURCHASE_VIEW + " FROM Purchase p WHERE p.userId = :userId",
+            countQuery = "SELECT COUNT(p) FROM Purchase p WHERE p.userId = :userId")
+    Page<PurchaseView> purchaseHistory(Long userId, Pageable pageable);
+
+    /**
+     * Retrieves the purchases of a user that sort after the given keyset position, newest first.
+     * No count query is issued.
+     *
+     * @param userId    the ID of the user whose purchase history is to be retrieved
+     * @param createdAt creation time of the last purchase already returned (can be null for the first slice)
+     * @param id        ID of the last purchase already returned (can be null for the first slice)
+     * @param pageable  limit of the number of purchases to return
+     * @return a List of purchases, without their items, in (createdAt, id) descending order
+     */
+    @Query("SELECT " + PURCHASE_VIEW + " FROM Purchase p WHERE p.userId = :userId AND " +
+            "(CAST(:createdAt AS LocalDateTime) IS NULL OR p.createdAt < :createdAt OR " +
+            "(p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PurchaseView> purchaseHistoryBefore(Long userId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    /**
+     * Retrieves the purchases of a user that sort after the given keyset position, oldest first.
+     * No count query is issued.
+     *
+     * @param userId    the ID of the user whose purchase history is to be retrieved
+     * @param createdAt creation time of the last purchase already returned (can be null for the first slice)
+     * @param id        ID of the last purchase already returned (can be null for the first slice)
+     * @param pageable  limit of the number of purchases to return
+     * @return a List of purchases, without their items, in (createdAt, id) ascending order
+     */
+    @Query("SELECT " + PURCHASE_VIEW + " FROM Purchase p WHERE p.userId = :userId AND " +
+            "(CAST(:createdAt AS LocalDateTime) IS NULL OR p.createdAt > :createdAt OR " +
+            "(p.createdAt = :createdAt AND p.id > :id)) " +
+            "ORDER BY p.createdAt ASC, p.id ASC")
+    List<PurchaseView> purchaseHistoryAfter(Long userId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    /**
+     * Retrieves the items of the given purchases together with their books in a single query.
+     *
+     * @param purchaseIds the IDs of the purchases whose items are to be retrieved
+     * @return a List of purchase items ordered by purchase and item
+     */
+    @Query("SELECT new com.interswitch.bookstore.projections.PurchaseItemView(" +
+            "p.id, i.quantity, i.createdAt, i.updatedAt, " + BOOK_COLUMNS + ") " +
+            "FROM Purchase p JOIN p.items i JOIN i.book b WHERE p.id IN :purchaseIds ORDER BY p.id, i.id")
+    List<PurchaseItemView> findItemViews(Collection<Long> purchaseIds);
+
+    /**
+     * Retrieves a purchase together with its items.
+     *
+     * @param id the ID of the purchase
+     * @return an Optional containing the purchase with its items loaded if found
+     */
+    @EntityGraph(attributePaths = "items")
+    Optional<Purchase> findWithItemsById(Long id);
+
+    /**
+     * Moves a purchase from one status to another. The update only matches while the purchase still has the
+     * expected status, so a purchase is settled at most once.
+     *
+     * @param id   the ID of the purchase
+     * @param from the status the purchase is expected to have
+     * @param to   the new status
+     * @param now  the time of the change
+     * @return 1 if the status was changed, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE Purchase p SET p.status = :to, p.updatedAt = :now WHERE p.id = :id AND p.status = :from")
+    int updateStatus(Long id, PurchaseStatus from, PurchaseStatus to, LocalDateTime now);
+
+    /**
+     * Retrieves the IDs of the settled purchases created before the given time, oldest first.
+     *
+     * @param statuses the statuses of settled purchases
+     * @param before   the creation time the purchases must precede
+     * @param pageable limit of the number of IDs to return
+     * @return a List of purchase IDs in ascending order
+     */
+    @Query("SELECT p.id FROM Purchase p WHERE p.status IN :statuses AND p.createdAt < :before ORDER BY p.id")
+    List<Long> findArchivableIds(Collection<PurchaseStatus> statuses, LocalDateTime before, Pageable pageable);
+
+    /**
+     * Retrieves the given purchases without their items.
+     *
+     * @param ids the IDs of the purchases
+     * @return a List of purchases in no particular order
+     */
+    @Query("SELECT " + PURCHASE_VIEW + " FROM Purchase p WHERE p.id IN :ids")
+    List<PurchaseView> findViewsByIdIn(Collection<Long> ids);
+
+    /**
+     * Retrieves the items of the given purchases with the IDs of their books, without joining the books.
+     *
+     * @param purchaseIds the IDs of the purchases whose items are to be retrieved
+     * @return a List of purchase items ordered by purchase and item
+     */
+    @Query("SELECT new com.interswitch.bookstore.projections.ArchivedPurchaseItem(" +
+            "i.purchase.id, i.book.id, i.quantity, i.createdAt, i.updatedAt) " +
+            "FROM PurchaseItem i WHERE i.purchase.id IN :purchaseIds ORDER BY i.purchase.id, i.id")
+    List<ArchivedPurchaseItem> findArchivedItems(Collection<Long> purchaseIds);
+
+    /**
+     * Deletes the items of the given purchases with a single statement.
+     *
+     * @param purchaseIds the IDs of the purchases whose items are to be deleted
+     * @return the number of deleted items
+     */
+    @Modifying
+    @Query("DELETE FROM PurchaseItem i WHERE i.purchase.id IN :purchaseIds")
+    int deleteItemsByPurchaseIdIn(Collection<Long> purchaseIds);
+
+    /**
+     * Deletes the given purchases with a single statement; their items must be deleted first.
+     *
+     * @param ids the IDs of the purchases to delete
+     * @return the number of deleted purchases
+     */
+    @Modifying
+    @Query("DELETE FROM Purchase p WHERE p.id IN :ids")
+    int deleteByIdIn(Collection<Long> ids);
+
+    /**
+     * Retrieves the books sold by the purchases after the given ID made since the given time, except by purchases
+     * whose payment failed.
+     *
+     * @param purchaseId the ID the purchases must be greater than
+     * @param since      the purchase date the purchases must not precede
+     * @param failed     the status of purchases whose payment failed
+     * @return a List of the copies sold per purchase and book
+     */
+    @Query("SELECT new com.interswitch.bookstore.projections.BookSale(p.id, p.purchaseDate, b.id, b.genre, i.quantity) " +
+            "FROM PurchaseItem i JOIN i.purchase p JOIN i.book b " +
+            "WHERE p.id > :purchaseId AND p.purchaseDate >= :since AND (p.status IS NULL OR p.status <> :failed)")
+    List<BookSale> findSalesAfter(Long purchaseId, LocalDateTime since, PurchaseStatus failed);
+
+    /**
+     * Retrieves the books sold by the purchases made since the given time that are in the given status.
+     *
+     * @param since  the purchase date the purchases must not precede
+     * @param status the status of the purchases
+     * @return a List of the copies sold per purchase and book
+     */
+    @Query("SELECT new com.interswitch.bookstore.projections.BookSale(p.id, p.purchaseDate, b.id, b.genre, i.quantity) " +
+            "FROM PurchaseItem i JOIN i.purchase p JOIN i.book b " +
+            "WHERE p.purchaseDate >= :since AND p.status = :status")
+    List<BookSale> findSalesByStatusSince(LocalDateTime since, PurchaseStatus status);
+
+    /**
+     * Counts the purchases among the given IDs that are still in the table.
+     *
+     * @param ids the IDs of the purchases
+     * @return the number of purchases found
+     */
+    long countByIdIn(Collection<Long> ids);
+
+    /**
+     * Retrieves the highest purchase ID in the table.
+     *
+     * @return the highest purchase ID, or 0 if there are no purchases
      */
-    @Query("SELECT p FROM Purchase p WHERE p.userId = :userId")
-    Page<Purchase> purchaseHistory(Long userId, Pageable pageable);
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Purchase p")
+    long findMaxId();
 }
@@ -0,0 +1,45 @@
+package com.interswitch.bookstore.requests;
+
+import com.interswitch.bookstore.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last row returned by a keyset paginated query, made of the sort key and the id
+ * that breaks ties between rows with the same sort key.
+ */
+public record KeysetCursor(LocalDateTime createdAt, Long id) {
+
+    /**
+     * Encodes the cursor into an opaque, URL safe continuation token.
+     *
+     * @return the continuation token
+     */
+    public String encode() {
+        var raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a continuation token produced by {@link #encode()}.
+     *
+     * @param token the continuation token (can be null for the first slice)
+     * @return the decoded cursor, or null if no token was supplied
+     * @throws BadRequestException if the token is malformed
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var separator = raw.lastIndexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (RuntimeException ex) {
+            throw new BadRequestException("Invalid cursor.");
+        }
+    }
+}
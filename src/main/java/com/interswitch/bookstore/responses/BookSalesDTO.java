@@ -0,0 +1,15 @@
+package com.interswitch.bookstore.responses;
+
+import com.interswitch.bookstore.enums.Genre;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSalesDTO {
+    private Long bookId;
+    private Genre genre;
+    private long copies;
+}
@@ -0,0 +1,17 @@
+package com.interswitch.bookstore.responses;
+
+import com.interswitch.bookstore.enums.CheckoutStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutStatusDTO {
+    private String checkoutId;
+    private Long userId;
+    private CheckoutStatus status;
+    private PurchaseDTO purchase;
+    private String error;
+}
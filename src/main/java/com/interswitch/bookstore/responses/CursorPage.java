@@ -0,0 +1,32 @@
+package com.interswitch.bookstore.responses;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A slice of results for keyset pagination. {@code nextCursor} is passed back to fetch the following slice
+ * and is null once the last slice has been returned.
+ */
+public record CursorPage<T>(List<T> content, int size, String nextCursor, boolean hasNext) {
+
+    /**
+     * Builds a slice from rows fetched with a limit of {@code size + 1}; the extra row only signals that
+     * another slice exists and is dropped.
+     *
+     * @param rows     the fetched rows, at most {@code size + 1}
+     * @param size     the requested slice size
+     * @param cursorOf encodes the continuation token of a row
+     * @return the slice with the continuation token of its last row
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, String> cursorOf) {
+        var hasNext = rows.size() > size;
+        var content = hasNext ? rows.subList(0, size) : rows;
+        var nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)) : null;
+        return new CursorPage<>(List.copyOf(content), size, nextCursor, hasNext);
+    }
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = content.stream().<R>map(mapper).toList();
+        return new CursorPage<>(mapped, size, nextCursor, hasNext);
+    }
+}
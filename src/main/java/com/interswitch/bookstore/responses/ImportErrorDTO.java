@@ -0,0 +1,13 @@
+package com.interswitch.bookstore.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ImportErrorDTO {
+    private long line;
+    private String message;
+}
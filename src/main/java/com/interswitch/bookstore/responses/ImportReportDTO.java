@@ -0,0 +1,14 @@
+package com.interswitch.bookstore.responses;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportReportDTO {
+    private long processed;
+    private long imported;
+    private long failed;
+    private List<ImportErrorDTO> errors = new ArrayList<>();
+}
@@ -1,6 +1,7 @@
 package com.interswitch.bookstore.responses;
 
 import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.enums.PurchaseStatus;
 import lombok.Data;
 
 import java.util.List;
@@ -12,6 +13,7 @@ public class PurchaseDTO {
     private String purchaseDate;
     private List<PurchaseItemDTO> items;
     private PaymentMethod paymentMethod;
+    private PurchaseStatus status;
     private String createdAt;
     private String updatedAt;
 }
@@ -0,0 +1,18 @@
+package com.interswitch.bookstore.responses;
+
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PurchaseHistoryDTO {
+    private Long purchaseId;
+    private Long userId;
+    private String purchaseDate;
+    private PaymentMethod paymentMethod;
+    private PurchaseStatus status;
+    private String total;
+    private List<PurchaseHistoryItemDTO> items;
+}
@@ -0,0 +1,13 @@
+package com.interswitch.bookstore.responses;
+
+import lombok.Data;
+
+@Data
+public class PurchaseHistoryItemDTO {
+    private Long bookId;
+    private String title;
+    private String author;
+    private String isbn;
+    private String price;
+    private int quantity;
+}
@@ -0,0 +1,293 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.projections.ArchivedPurchase;
+import com.interswitch.bookstore.projections.ArchivedPurchaseItem;
+import com.interswitch.bookstore.projections.PurchaseView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable segment file of the purchase archive, read through a memory mapping.
+ * <p>
+ * Purchases are sorted by user, creation time and ID, and cut into blocks of a fixed number of purchases.
+ * Each block stores its purchases column by column (all purchase IDs, then all user IDs, and so on, followed by
+ * the columns of their items) and is deflated on its own. A sparse index at the end of the file holds the
+ * first and last user of every block, so reading the purchases of a user only inflates the blocks that can
+ * hold them.
+ * <pre>
+ * header: magic, version, block count
+ * blocks: deflated columns of each block
+ * index:  first user, last user, offset, deflated length, inflated length, per block
+ * footer: index offset, magic
+ * </pre>
+ * Payment methods and statuses are stored by ordinal, so their enum constants may only ever be appended to.
+ */
+class ArchiveSegment {
+    private static final int MAGIC = 0x42534152;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int INDEX_ENTRY_BYTES = 32;
+    private static final int FOOTER_BYTES = 12;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final Comparator<PurchaseView> ORDER = Comparator.comparing(PurchaseView::userId)
+            .thenComparing(PurchaseView::createdAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(PurchaseView::id);
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final List<Block> blocks;
+
+    private ArchiveSegment(Path path, MappedByteBuffer buffer, List<Block> blocks) {
+        this.path = path;
+        this.buffer = buffer;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Writes purchases to a new segment file and forces it to disk.
+     *
+     * @param path      The file to create
+     * @param purchases The purchases with their items, in any order
+     * @param blockSize The number of purchases per block
+     */
+    static void write(Path path, List<ArchivedPurchase> purchases, int blockSize) {
+        var sorted = new ArrayList<>(purchases);
+        sorted.sort(Comparator.comparing(ArchivedPurchase::purchase, ORDER));
+        var out = new ByteArrayOutputStream();
+        var index = ByteBuffer.allocate(((sorted.size() + blockSize - 1) / blockSize) * INDEX_ENTRY_BYTES);
+        out.writeBytes(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION)
+                .putInt(index.capacity() / INDEX_ENTRY_BYTES).array());
+        for (int from = 0; from < sorted.size(); from += blockSize) {
+            var block = sorted.subList(from, Math.min(from + blockSize, sorted.size()));
+            var raw = encode(block);
+            var deflated = deflate(raw);
+            index.putLong(block.get(0).purchase().userId())
+                    .putLong(block.get(block.size() - 1).purchase().userId())
+                    .putLong(out.size())
+                    .putInt(deflated.length)
+                    .putInt(raw.length);
+            out.writeBytes(deflated);
+        }
+        var indexOffset = out.size();
+        out.writeBytes(index.array());
+        out.writeBytes(ByteBuffer.allocate(FOOTER_BYTES).putLong(indexOffset).putInt(MAGIC).array());
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            var content = ByteBuffer.wrap(out.toByteArray());
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(true);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Purchase archive segment cannot be written: " + path, ex);
+        }
+    }
+
+    /**
+     * Maps a segment file into memory and reads its index.
+     *
+     * @param path The segment file
+     * @return ArchiveSegment ready to be read
+     * @throws UncheckedIOException if the file cannot be read or is not a segment file
+     */
+    static ArchiveSegment open(Path path) {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            var size = buffer.capacity();
+            if (size < HEADER_BYTES + FOOTER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(size - 4) != MAGIC
+                    || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a purchase archive segment");
+            }
+            var blockCount = buffer.getInt(8);
+            var position = (int) buffer.getLong(size - FOOTER_BYTES);
+            var blocks = new ArrayList<Block>(blockCount);
+            for (int i = 0; i < blockCount; i++, position += INDEX_ENTRY_BYTES) {
+                blocks.add(new Block(buffer.getLong(position), buffer.getLong(position + 8),
+                        (int) buffer.getLong(position + 16), buffer.getInt(position + 24), buffer.getInt(position + 28)));
+            }
+            return new ArchiveSegment(path, buffer, blocks);
+        } catch (IOException | RuntimeException ex) {
+            throw new UncheckedIOException("Purchase archive segment cannot be read: " + path,
+                    ex instanceof IOException io ? io : new IOException(ex));
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Reads the purchases of a user, inflating only the blocks the index points to.
+     *
+     * @param userId The ID of the user
+     * @return List of the user's purchases with their items, by creation time and ID
+     */
+    List<ArchivedPurchase> find(Long userId) {
+        var found = new ArrayList<ArchivedPurchase>();
+        // Blocks are sorted by user, so the first block that can hold the user is found by binary search
+        int low = 0;
+        int high = blocks.size();
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (blocks.get(middle).lastUserId() < userId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        for (int i = low; i < blocks.size() && blocks.get(i).firstUserId() <= userId; i++) {
+            decode(blocks.get(i)).stream().filter(purchase -> purchase.purchase().userId().equals(userId))
+                    .forEach(found::add);
+        }
+        return found;
+    }
+
+    /**
+     * Reads every purchase of the segment.
+     *
+     * @return List of all purchases with their items
+     */
+    List<ArchivedPurchase> findAll() {
+        var found = new ArrayList<ArchivedPurchase>();
+        blocks.forEach(block -> found.addAll(decode(block)));
+        return found;
+    }
+
+    private List<ArchivedPurchase> decode(Block block) {
+        var columns = ByteBuffer.wrap(inflate(buffer.slice(block.offset(), block.deflatedLength()), block.inflatedLength()));
+        var count = columns.getInt();
+        var itemCount = columns.getInt();
+        var ids = longs(columns, count);
+        var userIds = longs(columns, count);
+        var purchaseDates = longs(columns, count);
+        var createdAts = longs(columns, count);
+        var updatedAts = longs(columns, count);
+        var paymentMethods = bytes(columns, count);
+        var statuses = bytes(columns, count);
+        var itemCounts = ints(columns, count);
+        var bookIds = longs(columns, itemCount);
+        var quantities = ints(columns, itemCount);
+        var itemCreatedAts = longs(columns, itemCount);
+        var itemUpdatedAts = longs(columns, itemCount);
+
+        var purchases = new ArrayList<ArchivedPurchase>(count);
+        var item = 0;
+        for (int i = 0; i < count; i++) {
+            var items = new ArrayList<ArchivedPurchaseItem>(itemCounts[i]);
+            for (int last = item + itemCounts[i]; item < last; item++) {
+                items.add(new ArchivedPurchaseItem(ids[i], bookIds[item], quantities[item], time(itemCreatedAts[item]),
+                        time(itemUpdatedAts[item])));
+            }
+            purchases.add(new ArchivedPurchase(new PurchaseView(ids[i], userIds[i], time(purchaseDates[i]),
+                    paymentMethods[i] < 0 ? null : PaymentMethod.values()[paymentMethods[i]],
+                    statuses[i] < 0 ? null : PurchaseStatus.values()[statuses[i]],
+                    time(createdAts[i]), time(updatedAts[i])), items));
+        }
+        return purchases;
+    }
+
+    private static byte[] encode(List<ArchivedPurchase> block) {
+        var itemCount = block.stream().mapToInt(purchase -> purchase.items().size()).sum();
+        var columns = ByteBuffer.allocate(8 + block.size() * (5 * 8 + 2 + 4) + itemCount * (3 * 8 + 4));
+        columns.putInt(block.size()).putInt(itemCount);
+        block.forEach(p -> columns.putLong(p.purchase().id()));
+        block.forEach(p -> columns.putLong(p.purchase().userId()));
+        block.forEach(p -> columns.putLong(micros(p.purchase().purchaseDate())));
+        block.forEach(p -> columns.putLong(micros(p.purchase().createdAt())));
+        block.forEach(p -> columns.putLong(micros(p.purchase().updatedAt())));
+        block.forEach(p -> columns.put(ordinal(p.purchase().paymentMethod())));
+        block.forEach(p -> columns.put(ordinal(p.purchase().status())));
+        block.forEach(p -> columns.putInt(p.items().size()));
+        block.forEach(p -> p.items().forEach(i -> columns.putLong(i.bookId())));
+        block.forEach(p -> p.items().forEach(i -> columns.putInt(i.quantity())));
+        block.forEach(p -> p.items().forEach(i -> columns.putLong(micros(i.createdAt()))));
+        block.forEach(p -> p.items().forEach(i -> columns.putLong(micros(i.updatedAt()))));
+        return columns.array();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        var deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            var out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            var chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(ByteBuffer deflated, int length) {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(deflated);
+            var raw = new byte[length];
+            var read = 0;
+            while (read < length && !inflater.finished()) {
+                read += inflater.inflate(raw, read, length - read);
+            }
+            return raw;
+        } catch (DataFormatException ex) {
+            throw new UncheckedIOException("Purchase archive segment is corrupt: " + path, new IOException(ex));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long[] longs(ByteBuffer columns, int count) {
+        var values = new long[count];
+        columns.asLongBuffer().get(values);
+        columns.position(columns.position() + count * 8);
+        return values;
+    }
+
+    private static int[] ints(ByteBuffer columns, int count) {
+        var values = new int[count];
+        columns.asIntBuffer().get(values);
+        columns.position(columns.position() + count * 4);
+        return values;
+    }
+
+    private static byte[] bytes(ByteBuffer columns, int count) {
+        var values = new byte[count];
+        columns.get(values);
+        return values;
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value == null ? -1 : (byte) value.ordinal();
+    }
+
+    private static long micros(LocalDateTime time) {
+        return time == null ? NULL_TIME : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime time(long micros) {
+        return micros == NULL_TIME ? null : LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    private record Block(long firstUserId, long lastUserId, int offset, int deflatedLength, int inflatedLength) {
+    }
+}
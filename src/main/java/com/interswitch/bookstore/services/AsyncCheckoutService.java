@@ -0,0 +1,123 @@
+package com.interswitch.bookstore.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.interswitch.bookstore.configs.CheckoutProperties;
+import com.interswitch.bookstore.enums.CheckoutStatus;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.exceptions.ConflictException;
+import com.interswitch.bookstore.exceptions.NotFoundException;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.responses.CheckoutStatusDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs checkouts on a bounded worker pool instead of the request thread. A request is only validated and
+ * queued, and the caller polls the returned checkout ID for the outcome. The pool caps the number of
+ * checkout transactions running at once, and a full queue rejects new checkouts straight away instead of
+ * letting them pile up.
+ */
+@Slf4j
+@Service
+public class AsyncCheckoutService {
+    private static final long MAXIMUM_STATUSES = 100_000;
+
+    private final PurchaseService purchaseService;
+    private final ExecutorService executor;
+    private final Cache<String, CheckoutStatusDTO> statuses;
+
+    public AsyncCheckoutService(PurchaseService purchaseService, CheckoutProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.purchaseService = purchaseService;
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, new ThreadPoolExecutor(
+                properties.getAsyncWorkers(), properties.getAsyncWorkers(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getAsyncQueueCapacity()),
+                new CustomizableThreadFactory("checkout-"), new ThreadPoolExecutor.AbortPolicy()), "checkout");
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_STATUSES)
+                .expireAfterWrite(properties.getAsyncStatusTtl())
+                .build();
+    }
+
+    /**
+     * Queues a checkout for processing by the worker pool.
+     *
+     * @param request        the {@link PurchaseCheckoutDTO} containing the user ID and payment method
+     * @param idempotencyKey the key identifying retries of the same checkout (can be null)
+     * @return a {@link CheckoutStatusDTO} holding the ID to poll the checkout with
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public CheckoutStatusDTO submit(PurchaseCheckoutDTO request, String idempotencyKey) {
+        var checkoutId = UUID.randomUUID().toString();
+        var queued = new CheckoutStatusDTO(checkoutId, request.getUserId(), CheckoutStatus.QUEUED, null, null);
+        statuses.put(checkoutId, queued);
+        try {
+            executor.execute(() -> process(queued, request, idempotencyKey));
+        } catch (RejectedExecutionException ex) {
+            statuses.invalidate(checkoutId);
+            throw ex;
+        }
+        return queued;
+    }
+
+    /**
+     * Retrieves the current status of a checkout.
+     *
+     * @param checkoutId the ID returned when the checkout was queued
+     * @return a {@link CheckoutStatusDTO} with the purchase once completed, or the error once failed
+     * @throws NotFoundException if no checkout with the ID is known, or its status has expired
+     */
+    public CheckoutStatusDTO getStatus(String checkoutId) {
+        var status = statuses.getIfPresent(checkoutId);
+        if (status == null) {
+            throw new NotFoundException("Checkout not found: " + checkoutId);
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Checkout workers did not finish within 30 seconds");
+        }
+    }
+
+    private void process(CheckoutStatusDTO queued, PurchaseCheckoutDTO request, String idempotencyKey) {
+        var checkoutId = queued.getCheckoutId();
+        statuses.put(checkoutId, update(queued, CheckoutStatus.PROCESSING));
+        try {
+            var purchase = purchaseService.checkout(request, idempotencyKey);
+            var completed = update(queued, CheckoutStatus.COMPLETED);
+            completed.setPurchase(purchase);
+            statuses.put(checkoutId, completed);
+        } catch (NotFoundException | BadRequestException | ConflictException ex) {
+            statuses.put(checkoutId, failed(queued, ex.getMessage()));
+        } catch (RuntimeException ex) {
+            log.error("Checkout {} failed", checkoutId, ex);
+            statuses.put(checkoutId, failed(queued, "Checkout could not be completed, please try again."));
+        }
+    }
+
+    private static CheckoutStatusDTO update(CheckoutStatusDTO status, CheckoutStatus next) {
+        return new CheckoutStatusDTO(status.getCheckoutId(), status.getUserId(), next, null, null);
+    }
+
+    private static CheckoutStatusDTO failed(CheckoutStatusDTO status, String error) {
+        var failed = update(status, CheckoutStatus.FAILED);
+        failed.setError(error);
+        return failed;
+    }
+}
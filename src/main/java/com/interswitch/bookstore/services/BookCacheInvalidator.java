@@ -0,0 +1,48 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+@Component
+public class BookCacheInvalidator {
+    private final CacheManager cacheManager;
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Evicts the given books from the book cache and from the second-level cache of {@link Book} entities.
+     * Inside a transaction the entries are evicted again once it completes, so a read racing with the
+     * transaction cannot leave the pre-commit state cached.
+     *
+     * @param bookIds The IDs of the books whose cached entries are stale
+     */
+    public void evict(Collection<Long> bookIds) {
+        var ids = List.copyOf(bookIds);
+        evictNow(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow(ids);
+                }
+            });
+        }
+    }
+
+    private void evictNow(List<Long> bookIds) {
+        var cache = cacheManager.getCache(BookService.BOOKS_CACHE);
+        if (cache != null) {
+            bookIds.forEach(cache::evict);
+        }
+        var entityCache = entityManagerFactory.getCache();
+        bookIds.forEach(bookId -> entityCache.evict(Book.class, bookId));
+    }
+}
@@ -0,0 +1,129 @@
+package com.interswitch.bookstore.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.interswitch.bookstore.configs.ExportProperties;
+import com.interswitch.bookstore.enums.FileFormat;
+import com.interswitch.bookstore.mappers.BookCsvMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+@RequiredArgsConstructor
+@Service
+public class BookExportService {
+    private static final String SELECT_BOOKS = "SELECT id, title, genre, isbn, author, publication_year, " +
+            "quantity_in_stock, price, created_at, updated_at FROM tbl_books ORDER BY id";
+    private static final String CSV_HEADER =
+            "id,title,genre,isbn,author,publicationYear,quantityInStock,price,createdAt,updatedAt";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final BookCsvMapper bookCsvMapper;
+    private final ExportProperties properties;
+
+    /**
+     * Writes the whole catalog to the given stream, one book per line. Rows are read through a forward-only
+     * JDBC cursor and written as they arrive, without loading entities into a persistence context, so memory
+     * use does not depend on the size of the catalog.
+     *
+     * @param output The stream to write the catalog to
+     * @param format The format to write the books in
+     * @throws IOException if the output stream cannot be written
+     */
+    public void exportBooks(OutputStream output, FileFormat format) throws IOException {
+        var writer = format == FileFormat.CSV ? new CsvWriter(output) : new NdjsonWriter(output);
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        // Some drivers (e.g. PostgreSQL) only honour the fetch size inside a transaction
+        transactionTemplate.setReadOnly(true);
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_BOOKS,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(properties.getFetchSize());
+                return statement;
+            }, resultSet -> {
+                try {
+                    writer.write(resultSet);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        writer.close();
+    }
+
+    private interface RowWriter extends Closeable {
+        void write(ResultSet row) throws SQLException, IOException;
+    }
+
+    private class CsvWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvWriter(OutputStream output) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet row) throws SQLException, IOException {
+            writer.write(bookCsvMapper.formatLine(row.getLong("id"), row.getString("title"), row.getString("genre"),
+                    row.getString("isbn"), row.getString("author"), row.getInt("publication_year"),
+                    row.getInt("quantity_in_stock"), row.getBigDecimal("price"),
+                    toText(row.getTimestamp("created_at")), toText(row.getTimestamp("updated_at"))));
+            writer.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private class NdjsonWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream output) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(output);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet row) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", row.getLong("id"));
+            generator.writeStringField("title", row.getString("title"));
+            generator.writeStringField("genre", row.getString("genre"));
+            generator.writeStringField("isbn", row.getString("isbn"));
+            generator.writeStringField("author", row.getString("author"));
+            generator.writeNumberField("publicationYear", row.getInt("publication_year"));
+            generator.writeNumberField("quantityInStock", row.getInt("quantity_in_stock"));
+            generator.writeNumberField("price", row.getBigDecimal("price"));
+            generator.writeStringField("createdAt", toText(row.getTimestamp("created_at")));
+            generator.writeStringField("updatedAt", toText(row.getTimestamp("updated_at")));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static String toText(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime().toString();
+    }
+}
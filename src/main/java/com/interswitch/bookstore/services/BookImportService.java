@@ -0,0 +1,250 @@
+package com.interswitch.bookstore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.interswitch.bookstore.configs.ImportProperties;
+import com.interswitch.bookstore.enums.FileFormat;
+import com.interswitch.bookstore.mappers.BookCsvMapper;
+import com.interswitch.bookstore.mappers.BookMapper;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.requests.BookAddDTO;
+import com.interswitch.bookstore.responses.ImportErrorDTO;
+import com.interswitch.bookstore.responses.ImportReportDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class BookImportService {
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final BookCsvMapper bookCsvMapper;
+    private final BookSearchEngine bookSearchEngine;
+    private final BookSearchCache bookSearchCache;
+    private final ImportProperties properties;
+
+    /**
+     * Imports books from an NDJSON or CSV stream. The stream is read one record at a time and valid rows are
+     * persisted and flushed as JDBC batches, committing every {@code commitInterval} rows, so memory use does not depend
+     * on the size of the input. Rows failing the same validation as {@link BookAddDTO} are reported and
+     * skipped without aborting the import. When a batch is rejected by the database, e.g. for a constraint
+     * violation, its rows are written again one per transaction, so only the offending rows fail.
+     *
+     * @param input  The stream of book records, one per line (CSV input starts with a header row, and its quoted
+     *               fields may span several lines)
+     * @param format The format of the records
+     * @return ImportReportDTO with the number of processed, imported and failed rows and the row errors
+     * @throws IOException if the input stream cannot be read
+     */
+    public ImportReportDTO importBooks(InputStream input, FileFormat format) throws IOException {
+        var run = new ImportRun();
+        var reader = new LineNumberReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<String> header = null;
+        try {
+            while (true) {
+                var lineNumber = reader.getLineNumber() + 1;
+                if (format == FileFormat.CSV) {
+                    List<String> fields;
+                    try {
+                        fields = bookCsvMapper.readRecord(reader);
+                    } catch (IllegalArgumentException ex) {
+                        run.reject(lineNumber, "Malformed record: " + ex.getMessage());
+                        continue;
+                    }
+                    if (fields == null) {
+                        break;
+                    }
+                    if (fields.size() == 1 && fields.get(0).isBlank()) {
+                        continue;
+                    }
+                    if (header == null) {
+                        header = fields;
+                        continue;
+                    }
+                    var columns = header;
+                    run.accept(lineNumber, () -> bookCsvMapper.toAddDTO(columns, fields));
+                } else {
+                    var line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    run.accept(lineNumber, () -> objectMapper.readValue(line, BookAddDTO.class));
+                }
+            }
+            run.finish();
+        } finally {
+            run.rollbackIfActive();
+            if (run.report.getImported() > 0) {
+                bookSearchEngine.rebuild();
+                bookSearchCache.catalogChanged();
+            }
+        }
+        log.info("Book import finished: {} processed, {} imported, {} failed",
+                run.report.getProcessed(), run.report.getImported(), run.report.getFailed());
+        return run.report;
+    }
+
+    private interface RecordParser {
+        BookAddDTO parse() throws IOException;
+    }
+
+    private record Row(long lineNumber, BookAddDTO book) {
+    }
+
+    private class ImportRun {
+        private final ImportReportDTO report = new ImportReportDTO();
+        private final List<Row> batch = new ArrayList<>(properties.getBatchSize());
+        // Rows flushed in the current transaction, kept to write them again if a later batch rolls it back
+        private final List<Row> uncommitted = new ArrayList<>();
+        private TransactionStatus transaction;
+
+        void accept(long lineNumber, RecordParser parser) {
+            report.setProcessed(report.getProcessed() + 1);
+            BookAddDTO book;
+            try {
+                book = parser.parse();
+            } catch (IOException | IllegalArgumentException ex) {
+                fail(lineNumber, "Malformed record: " + ex.getMessage());
+                return;
+            }
+            var violations = validator.validate(book);
+            if (!violations.isEmpty()) {
+                fail(lineNumber, violations.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+
+            batch.add(new Row(lineNumber, book));
+            if (batch.size() >= properties.getBatchSize()) {
+                flush();
+            }
+            if (uncommitted.size() >= properties.getCommitInterval()) {
+                commit();
+            }
+        }
+
+        void reject(long lineNumber, String message) {
+            report.setProcessed(report.getProcessed() + 1);
+            fail(lineNumber, message);
+        }
+
+        void finish() {
+            flush();
+            commit();
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (transaction == null) {
+                transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+            }
+            try {
+                write(batch);
+                uncommitted.addAll(batch);
+                batch.clear();
+            } catch (DataAccessException ex) {
+                // A failed flush leaves the transaction only fit for rollback, so its rows are written again
+                var flushed = List.copyOf(uncommitted);
+                var failed = List.copyOf(batch);
+                batch.clear();
+                rollbackIfActive();
+                log.warn("Book import batch ending at line {} failed, retrying its rows one at a time: {}",
+                        failed.get(failed.size() - 1).lineNumber(), ex.getMostSpecificCause().getMessage());
+                retry(flushed, failed);
+            }
+        }
+
+        // Rows flushed before the failed batch were accepted once and are written together again; the rows of
+        // the failed batch get a transaction each
+        private void retry(List<Row> flushed, List<Row> failed) {
+            var single = new ArrayList<Row>();
+            if (!flushed.isEmpty() && writeInOwnTransaction(flushed) != null) {
+                single.addAll(flushed);
+            }
+            single.addAll(failed);
+            for (var row : single) {
+                var error = writeInOwnTransaction(List.of(row));
+                if (error != null) {
+                    fail(row.lineNumber(), "Rejected by the database: " + error.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        private DataAccessException writeInOwnTransaction(List<Row> rows) {
+            var status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+            try {
+                write(rows);
+            } catch (DataAccessException ex) {
+                transactionManager.rollback(status);
+                return ex;
+            }
+            transactionManager.commit(status);
+            report.setImported(report.getImported() + rows.size());
+            return null;
+        }
+
+        private void write(List<Row> rows) {
+            // Pooled sequence IDs are assigned without a round trip, so the flush sends the batch as one JDBC batch
+            entityManager.unwrap(Session.class).setJdbcBatchSize(properties.getBatchSize());
+            bookRepository.saveAll(rows.stream().map(row -> bookMapper.toEntity(row.book())).toList());
+            bookRepository.flush();
+            // Imported books are not read back, so the persistence context is emptied to keep memory flat
+            entityManager.clear();
+        }
+
+        private void commit() {
+            if (transaction == null) {
+                return;
+            }
+            transactionManager.commit(transaction);
+            transaction = null;
+            report.setImported(report.getImported() + uncommitted.size());
+            uncommitted.clear();
+            log.info("Book import progress: {} processed, {} imported, {} failed",
+                    report.getProcessed(), report.getImported(), report.getFailed());
+        }
+
+        void rollbackIfActive() {
+            if (transaction != null) {
+                transactionManager.rollback(transaction);
+                transaction = null;
+                uncommitted.clear();
+            }
+        }
+
+        private void fail(long lineNumber, String message) {
+            report.setFailed(report.getFailed() + 1);
+            if (report.getErrors().size() < properties.getMaxReportedErrors()) {
+                report.getErrors().add(new ImportErrorDTO(lineNumber, message));
+            }
+        }
+    }
+}
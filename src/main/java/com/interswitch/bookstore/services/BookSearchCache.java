@@ -0,0 +1,82 @@
+package com.interswitch.bookstore.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.interswitch.bookstore.configs.SearchCacheProperties;
+import com.interswitch.bookstore.mappers.BookMapper;
+import com.interswitch.bookstore.responses.BookDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches search result pages keyed by the catalog version, the normalized search term, page, size and sort.
+ * Catalog writes bump the version, which makes every cached page unreachable at once without tracking
+ * the entries; they age out on their own. Concurrent misses on the same key share a single load, and hot
+ * entries are reloaded in the background once they are older than the refresh interval, so callers keep
+ * being served from memory while the page is refreshed.
+ */
+@Component
+public class BookSearchCache {
+    private final BookSearchEngine bookSearchEngine;
+    private final BookMapper bookMapper;
+    private final SearchCacheProperties properties;
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final LoadingCache<SearchKey, Page<BookDTO>> cache;
+
+    public BookSearchCache(BookSearchEngine bookSearchEngine, BookMapper bookMapper,
+                           SearchCacheProperties properties, MeterRegistry meterRegistry) {
+        this.bookSearchEngine = bookSearchEngine;
+        this.bookMapper = bookMapper;
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .refreshAfterWrite(properties.getRefreshAfterWrite())
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "book-search");
+    }
+
+    /**
+     * Returns the search result page for the given term, served from the cache when possible.
+     *
+     * @param searchTerm The term to search for in book attributes (can be null)
+     * @param pageable   Pagination and sorting information
+     * @return A Page of BookDTO objects containing the search results
+     */
+    public Page<BookDTO> search(String searchTerm, Pageable pageable) {
+        if (!properties.isEnabled() || pageable.isUnpaged()) {
+            return load(searchTerm, pageable);
+        }
+        var term = searchTerm == null ? null : searchTerm.toLowerCase(Locale.ROOT);
+        var key = new SearchKey(catalogVersion.get(), term, pageable.getPageNumber(), pageable.getPageSize(),
+                pageable.getSort());
+        return cache.get(key);
+    }
+
+    /**
+     * Invalidates every cached page by moving to a new catalog version.
+     */
+    public void catalogChanged() {
+        catalogVersion.incrementAndGet();
+    }
+
+    private Page<BookDTO> load(SearchKey key) {
+        return load(key.term(), PageRequest.of(key.page(), key.size(), key.sort()));
+    }
+
+    private Page<BookDTO> load(String searchTerm, Pageable pageable) {
+        return bookSearchEngine.search(searchTerm, pageable).map(bookMapper::toDTO);
+    }
+
+    private record SearchKey(long version, String term, int page, int size, Sort sort) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.requests.KeysetCursor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface BookSearchEngine {
+
+    /**
+     * Searches the catalog for books matching the given term across title, author, publication year and genre.
+     *
+     * @param searchTerm The term to search for (can be null for all books)
+     * @param pageable   Pagination and sorting information
+     * @return Page<BookView> containing the matching books with pagination applied
+     */
+    Page<BookView> search(String searchTerm, Pageable pageable);
+
+    /**
+     * Searches the catalog for books matching the given term that come after the given keyset position,
+     * ordered by creation time and id.
+     *
+     * @param searchTerm The term to search for (can be null for all books)
+     * @param cursor     Position of the last book already returned (can be null for the first slice)
+     * @param direction  Direction of the (createdAt, id) ordering
+     * @param limit      Maximum number of books to return
+     * @return List<BookView> containing the next matching books
+     */
+    List<BookView> scroll(String searchTerm, KeysetCursor cursor, Sort.Direction direction, int limit);
+
+    /**
+     * Adds or replaces a book in the search index so it is visible to subsequent searches.
+     *
+     * @param book The persisted book to index
+     */
+    void index(Book book);
+
+    /**
+     * Rebuilds the search index from the book repository.
+     */
+    void rebuild();
+}
@@ -1,15 +1,25 @@
 package com.interswitch.bookstore.services;
 
+import com.interswitch.bookstore.configs.ReplicaRoutingDataSource;
+import com.interswitch.bookstore.domains.Book;
 import com.interswitch.bookstore.exceptions.NotFoundException;
 import com.interswitch.bookstore.mappers.BookMapper;
 import com.interswitch.bookstore.repositories.BookRepository;
 import com.interswitch.bookstore.requests.BookAddDTO;
 import com.interswitch.bookstore.requests.BookUpdateDTO;
+import com.interswitch.bookstore.requests.KeysetCursor;
 import com.interswitch.bookstore.responses.BookDTO;
+import com.interswitch.bookstore.responses.CursorPage;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -17,30 +27,57 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 @Service
 public class BookService {
+    public static final String BOOKS_CACHE = "books";
+
     private final BookRepository bookRepository;
     private final BookMapper bookMapper;
+    private final BookSearchEngine bookSearchEngine;
+    private final BookSearchCache bookSearchCache;
 
     /**
      * Searches for books in the inventory based on a search term with pagination support.
+     * Result pages are served from the search result cache.
      *
      * @param searchTerm The term to search for in book attributes (can be null)
      * @param pageable   Pagination and sorting information
      * @return A Page of BookDTO objects containing the search results
      */
+    @Transactional(readOnly = true)
     public Page<BookDTO> searchBooks(String searchTerm, Pageable pageable) {
-        var books = bookRepository.searchBooks(searchTerm, pageable);
-        return books.map(bookMapper::toDTO);
+        return bookSearchCache.search(searchTerm, pageable);
     }
 
     /**
-     * Retrieves a specific book from the inventory by its ID.
+     * Searches for books in the inventory using keyset pagination ordered by creation time.
+     * Each slice seeks directly past the previous one and no total count is computed.
+     *
+     * @param searchTerm The term to search for in book attributes (can be null)
+     * @param cursor     The continuation token returned with the previous slice (can be null for the first slice)
+     * @param size       The number of books per slice
+     * @param direction  The direction of the creation time ordering
+     * @return A CursorPage of BookDTO objects with the continuation token of the next slice
+     * @throws com.interswitch.bookstore.exceptions.BadRequestException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<BookDTO> scrollBooks(String searchTerm, String cursor, int size, Sort.Direction direction) {
+        var books = bookSearchEngine.scroll(searchTerm, KeysetCursor.decode(cursor), direction, size + 1);
+        return CursorPage.of(books, size, book -> new KeysetCursor(book.createdAt(), book.id()).encode())
+                .map(bookMapper::toDTO);
+    }
+
+    /**
+     * Retrieves a specific book from the inventory by its ID. Results are served from the book cache, which is
+     * filled from the primary: the entry stays until the book changes, so it must not hold a lagging replica's copy.
      *
      * @param id The ID of the book to retrieve
      * @return BookDTO containing the book details
      * @throws NotFoundException if no book is found with the given ID
      */
+    @Cacheable(cacheNames = BOOKS_CACHE, key = "#id")
+    @Transactional(readOnly = true)
     public BookDTO findBookById(Long id) {
-        return bookMapper.toDTO(bookRepository.findById(id)
+        ReplicaRoutingDataSource.pinToPrimary();
+        return bookMapper.toDTO(bookRepository.findViewById(id)
                 .orElseThrow(() -> new NotFoundException("Book not found")));
     }
 
@@ -50,20 +87,25 @@ public class BookService {
      * @param request BookAddDTO containing the details of the book to add
      * @return BookDTO containing the details of the newly created book
      */
+    @CachePut(cacheNames = BOOKS_CACHE, key = "#result.id")
     public BookDTO addBook(BookAddDTO request) {
         var entity = bookMapper.toEntity(request);
         entity.setPrice(BigDecimal.valueOf(request.getPrice()));
-        return bookMapper.toDTO(bookRepository.save(entity));
+        var savedBook = bookRepository.save(entity);
+        indexAfterCommit(savedBook);
+        return bookMapper.toDTO(savedBook);
     }
 
     /**
-     * Updates an existing book in the inventory.
+     * Updates an existing book in the inventory. The search index picks up the change once it has committed.
      *
      * @param id      The ID of the book to update
      * @param request BookUpdateDTO containing the updated book details
      * @return BookDTO containing the details of the updated book
      * @throws NotFoundException if no book is found with the given ID
      */
+    @CachePut(cacheNames = BOOKS_CACHE, key = "#id")
+    @Transactional
     public BookDTO updateBook(Long id, BookUpdateDTO request) {
         var book = bookRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Book not found"));
@@ -74,6 +116,27 @@ public class BookService {
         book.setPublicationYear(request.getPublicationYear());
         book.setUpdatedAt(LocalDateTime.now());
         book.setPrice(BigDecimal.valueOf(request.getPrice()));
-        return bookMapper.toDTO(bookRepository.save(book));
+        var savedBook = bookRepository.save(book);
+        indexAfterCommit(savedBook);
+        return bookMapper.toDTO(savedBook);
+    }
+
+    // Searches must not see a change that may still roll back, so the book is indexed once it has committed
+    private void indexAfterCommit(Book book) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            index(book);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                index(book);
+            }
+        });
+    }
+
+    private void index(Book book) {
+        bookSearchEngine.index(book);
+        bookSearchCache.catalogChanged();
     }
 }
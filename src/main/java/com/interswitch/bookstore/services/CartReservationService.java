@@ -0,0 +1,216 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.CartProperties;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.projections.CartReservation;
+import com.interswitch.bookstore.repositories.CartItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the copies added to a cart back from stock until the cart is checked out or the reservation expires.
+ * Adding a book to a cart takes the copies out of stock straight away, so a shopper who got them into the cart
+ * cannot be outsold at checkout, and checkout takes the reserved copies over without checking or locking the
+ * book rows again. Every addition extends the reservation of the whole item.
+ * <p>
+ * The reservation itself lives in the cart item row. Expiry is driven by a {@link TimingWheel} in memory rather
+ * than by polling the table: every reservation schedules a timer for its expiry, and a single thread advances the
+ * wheel every tick and releases the reservations whose timers fired and that were not extended, consumed or
+ * cleared in the meantime. After a restart the wheel is rebuilt from the reservations left in the table.
+ */
+@Slf4j
+@Service
+public class CartReservationService {
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final CartItemRepository cartItemRepository;
+    private final InventoryService inventoryService;
+    private final BookCacheInvalidator bookCacheInvalidator;
+    private final TransactionTemplate transactionTemplate;
+    private final CartProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final TimingWheel<CartReservation> wheel;
+    private final ScheduledExecutorService executor;
+
+    public CartReservationService(CartItemRepository cartItemRepository, InventoryService inventoryService,
+                                  BookCacheInvalidator bookCacheInvalidator, TransactionTemplate transactionTemplate,
+                                  CartProperties properties, MeterRegistry meterRegistry) {
+        this.cartItemRepository = cartItemRepository;
+        this.inventoryService = inventoryService;
+        this.bookCacheInvalidator = bookCacheInvalidator;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.wheel = new TimingWheel<>(properties.getReservationTick(), WHEEL_SIZE, WHEEL_LEVELS, System.nanoTime());
+        if (properties.isReservationEnabled()) {
+            var tickNanos = properties.getReservationTick().toNanos();
+            this.executor = ExecutorServiceMetrics.monitor(meterRegistry, new ScheduledThreadPoolExecutor(1,
+                    new CustomizableThreadFactory("cart-reservations-")), "cart-reservations");
+            this.executor.scheduleAtFixedRate(this::expire, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+            meterRegistry.gauge("bookstore.cart.reservations.pending", wheel, TimingWheel::size);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * @return boolean true if adding to a cart reserves the copies
+     */
+    public boolean isEnabled() {
+        return properties.isReservationEnabled();
+    }
+
+    /**
+     * Takes copies of a book out of stock for a cart item as part of the current transaction, and extends the
+     * reservation of the item. The item row must already be written and flushed, so it is locked ahead of the
+     * book row like at checkout and expiry.
+     *
+     * @param cartId   The ID of the cart
+     * @param bookId   The ID of the book
+     * @param quantity The number of copies to add to the reservation
+     * @throws BadRequestException if there's insufficient stock for the requested quantity
+     */
+    public void hold(Long cartId, Long bookId, int quantity) {
+        if (!inventoryService.reserve(new TreeMap<>(Map.of(bookId, quantity))).isEmpty()) {
+            throw new BadRequestException("Insufficient stock.");
+        }
+        var reservedUntil = LocalDateTime.now().plus(properties.getReservationTtl()).truncatedTo(ChronoUnit.MICROS);
+        cartItemRepository.extendReservation(cartId, bookId, quantity, reservedUntil);
+        bookCacheInvalidator.evict(List.of(bookId));
+
+        // Only a committed reservation gets a timer; the one it replaces finds the new expiry and leaves it alone
+        var reservation = new CartReservation(cartId, bookId, quantity, reservedUntil);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(reservation);
+                }
+            });
+        } else {
+            schedule(reservation);
+        }
+        meterRegistry.counter("bookstore.cart.reservations", "outcome", "held").increment();
+    }
+
+    /**
+     * Locks the reservations of a cart for checkout. The reserved copies are already out of stock; they are
+     * consumed when the checkout deletes the cart items, and stay reserved if it rolls back.
+     *
+     * @param cartId The ID of the cart
+     * @return Map of the reserved quantity per book ID, empty if reservations are disabled
+     */
+    public Map<Long, Integer> claim(Long cartId) {
+        if (!isEnabled()) {
+            return Map.of();
+        }
+        return cartItemRepository.lockReservations(cartId).stream()
+                .collect(Collectors.toMap(CartReservation::bookId, CartReservation::quantity, Integer::sum));
+    }
+
+    /**
+     * Returns the reserved copies of a cart to stock as part of the current transaction, for example when the
+     * cart is cleared.
+     *
+     * @param cartId The ID of the cart
+     */
+    public void releaseAll(Long cartId) {
+        var quantities = new TreeMap<Long, Integer>();
+        for (var reservation : cartItemRepository.lockReservations(cartId)) {
+            cartItemRepository.clearReservation(reservation.cartId(), reservation.bookId());
+            quantities.merge(reservation.bookId(), reservation.quantity(), Integer::sum);
+        }
+        if (!quantities.isEmpty()) {
+            inventoryService.release(quantities);
+            bookCacheInvalidator.evict(List.copyOf(quantities.keySet()));
+            meterRegistry.counter("bookstore.cart.reservations", "outcome", "released").increment(quantities.size());
+        }
+    }
+
+    // Schedules the reservations left by the previous run, releasing the ones that expired while it was down;
+    // with reservations disabled all of them are released, as nothing would ever expire them
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        var now = LocalDateTime.now();
+        var reservations = cartItemRepository.findAllReservations();
+        reservations.stream()
+                .filter(reservation -> !isEnabled() || !reservation.reservedUntil().isAfter(now))
+                .forEach(this::release);
+        if (isEnabled()) {
+            reservations.stream().filter(reservation -> reservation.reservedUntil().isAfter(now)).forEach(this::schedule);
+        }
+        if (!reservations.isEmpty()) {
+            log.info("Cart reservations recovered: {}", reservations.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Cart reservation timer did not finish within 30 seconds");
+        }
+    }
+
+    private void schedule(CartReservation reservation) {
+        schedule(reservation, Duration.between(LocalDateTime.now(), reservation.reservedUntil()));
+    }
+
+    private void schedule(CartReservation reservation, Duration delay) {
+        wheel.schedule(System.nanoTime() + delay.toNanos(), reservation);
+    }
+
+    // Runs every tick on the timer thread; an exception must not escape, or no later tick would run
+    private void expire() {
+        for (var reservation : wheel.advance(System.nanoTime())) {
+            try {
+                release(reservation);
+            } catch (RuntimeException ex) {
+                log.warn("Releasing reservation of book {} in cart {} failed, retrying: {}",
+                        reservation.bookId(), reservation.cartId(), ex.getMessage());
+                schedule(reservation, RETRY_DELAY);
+            }
+        }
+    }
+
+    // Releases a reservation unless it was extended, consumed or cleared since the timer was scheduled
+    private void release(CartReservation reservation) {
+        var released = transactionTemplate.execute(status -> cartItemRepository
+                .lockExpiredReservation(reservation.cartId(), reservation.bookId(), reservation.reservedUntil())
+                .map(current -> {
+                    cartItemRepository.clearReservation(current.cartId(), current.bookId());
+                    inventoryService.release(new TreeMap<>(Map.of(current.bookId(), current.quantity())));
+                    bookCacheInvalidator.evict(List.of(current.bookId()));
+                    return true;
+                })
+                .orElse(false));
+        if (Boolean.TRUE.equals(released)) {
+            meterRegistry.counter("bookstore.cart.reservations", "outcome", "expired").increment();
+        }
+    }
+}
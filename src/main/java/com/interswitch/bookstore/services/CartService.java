@@ -6,35 +6,44 @@ import com.interswitch.bookstore.exceptions.BadRequestException;
 import com.interswitch.bookstore.exceptions.NotFoundException;
 import com.interswitch.bookstore.mappers.CartMapper;
 import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.repositories.CartItemRepository;
 import com.interswitch.bookstore.repositories.CartRepository;
 import com.interswitch.bookstore.requests.CartAddDTO;
 import com.interswitch.bookstore.responses.CartDTO;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @RequiredArgsConstructor
 @Service
 public class CartService {
     private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
     private final BookRepository bookRepository;
+    private final InventoryService inventoryService;
+    private final CartReservationService cartReservationService;
     private final CartMapper cartMapper;
+    private final ReadYourWrites readYourWrites;
 
     /**
-     * Adds a book to a user's shopping cart with specified quantity.
+     * Adds a book to a user's shopping cart with specified quantity. With cart reservations enabled the copies
+     * are taken out of stock until checkout or until the reservation expires.
      *
      * @param request The CartAddDTO containing user ID, book ID, and quantity
      * @return CartDTO representing the updated cart
      * @throws NotFoundException if the book is not found
      * @throws BadRequestException if there's insufficient stock for the requested quantity
      */
+    @Transactional
     public CartDTO addToCart(CartAddDTO request) {
-        var cart = cartRepository.findByUserId(request.getUserId())
+        var cart = cartRepository.findWithItemsByUserId(request.getUserId())
                 .orElse(new Cart(request.getUserId()));
 
         var book = bookRepository.findById(request.getBookId())
                 .orElseThrow(() -> new NotFoundException("Book not found."));
 
-        if (book.getQuantityInStock() < request.getQuantity()) {
+        var reserve = cartReservationService.isEnabled();
+        if (!reserve && inventoryService.available(book) < request.getQuantity()) {
             throw new BadRequestException("Insufficient stock.");
         }
 
@@ -49,34 +58,56 @@ public class CartService {
         }
 
         item.setQuantity(item.getQuantity() + request.getQuantity());
+        readYourWrites.wrote(request.getUserId());
 
-        var savedCart = cartRepository.save(cart);
+        if (!reserve) {
+            return cartMapper.toDTO(cartRepository.save(cart));
+        }
+        // Write the item first, so its row is locked ahead of the book row like at checkout and expiry
+        var savedCart = cartRepository.saveAndFlush(cart);
+        cartReservationService.hold(savedCart.getId(), book.getId(), request.getQuantity());
         return cartMapper.toDTO(savedCart);
     }
 
     /**
-     * Retrieves a user's shopping cart contents.
+     * Retrieves a user's shopping cart contents. Read from the replica unless the user has just written.
      *
      * @param userId The ID of the user whose cart is to be retrieved
      * @return CartDTO containing the cart details
      * @throws NotFoundException if no cart exists for the given user ID
      */
+    @Transactional(readOnly = true)
     public CartDTO getCart(Long userId) {
-        var cart = cartRepository.findByUserId(userId)
+        readYourWrites.reading(userId);
+        var cart = cartRepository.findViewByUserId(userId)
                 .orElseThrow(() -> new NotFoundException("Cart not found for user: " + userId));
-        return cartMapper.toDTO(cart);
+        return cartMapper.toDTO(cart.withItems(cartRepository.findItemViews(cart.id())));
     }
 
     /**
-     * Clears all items from a user's shopping cart.
+     * Clears all items from a user's shopping cart, returning any copies reserved for them to stock.
      *
      * @param userId The ID of the user whose cart should be cleared
      * @throws NotFoundException if no cart exists for the given user ID
      */
+    @Transactional
     public void clearCart(Long userId) {
         var cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new NotFoundException("Cart not found."));
+        cartReservationService.releaseAll(cart.getId());
+        clearCart(cart);
+        readYourWrites.wrote(userId);
+    }
+
+    /**
+     * Clears all items from an already loaded shopping cart. Copies reserved for them are consumed, not returned
+     * to stock, as this is how a checkout takes its reservations over.
+     *
+     * @param cart The cart to clear
+     */
+    @Transactional
+    public void clearCart(Cart cart) {
+        cartItemRepository.deleteByCartId(cart.getId());
         cart.getItems().clear();
-        cartRepository.save(cart);
     }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.CheckoutProperties;
+import com.interswitch.bookstore.exceptions.CheckoutPendingException;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.responses.PurchaseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Group commit for checkouts. Checkouts submitted while a dispatcher is collecting a batch join it until the
+ * batch window closes or the batch is full, and the whole batch is then placed in one transaction with a
+ * single commit. If any member of a batch fails, the batch is rolled back and its members are placed again
+ * one by one, so a failing checkout only fails itself. Every caller blocks until its own purchase is placed,
+ * or at most the batch wait timeout.
+ */
+@Slf4j
+class CheckoutBatcher {
+    private final Function<List<PurchaseCheckoutDTO>, List<PurchaseDTO>> batchCheckout;
+    private final Function<PurchaseCheckoutDTO, PurchaseDTO> singleCheckout;
+    private final BlockingQueue<Member> queue = new LinkedBlockingQueue<>();
+    private final long windowNanos;
+    private final int maxSize;
+    private final long waitTimeoutNanos;
+    private final ExecutorService dispatchers;
+    private volatile boolean running = true;
+
+    /**
+     * @param properties     Batch window, size, wait timeout and number of dispatchers
+     * @param batchCheckout  Places all checkouts of a batch in one transaction, failing if any of them fails
+     * @param singleCheckout Places a single checkout in its own transaction
+     */
+    CheckoutBatcher(CheckoutProperties properties, Function<List<PurchaseCheckoutDTO>, List<PurchaseDTO>> batchCheckout,
+                    Function<PurchaseCheckoutDTO, PurchaseDTO> singleCheckout) {
+        this.batchCheckout = batchCheckout;
+        this.singleCheckout = singleCheckout;
+        this.windowNanos = properties.getBatchWindow().toNanos();
+        this.maxSize = properties.getBatchMaxSize();
+        this.waitTimeoutNanos = properties.getBatchWaitTimeout().toNanos();
+        this.dispatchers = Executors.newFixedThreadPool(properties.getBatchDispatchers(),
+                new CustomizableThreadFactory("checkout-batch-"));
+        for (int i = 0; i < properties.getBatchDispatchers(); i++) {
+            dispatchers.execute(this::dispatch);
+        }
+    }
+
+    /**
+     * Places a checkout as part of the next batch.
+     *
+     * @param request The checkout request
+     * @return PurchaseDTO of the placed checkout
+     * @throws RejectedExecutionException if the batcher is shut down, or the checkout was still queued when
+     *                                    the wait timeout passed
+     * @throws CheckoutPendingException   if the checkout was being placed when the wait timeout passed, in which
+     *                                    case it may still be placed
+     */
+    PurchaseDTO submit(PurchaseCheckoutDTO request) {
+        if (!running) {
+            throw new RejectedExecutionException("Checkout batcher is shut down");
+        }
+        var member = new Member(request, new CompletableFuture<>());
+        queue.add(member);
+        // The dispatchers may have seen an empty queue and exited between the check above and the add
+        if (!running && queue.remove(member)) {
+            throw new RejectedExecutionException("Checkout batcher is shut down");
+        }
+        try {
+            return member.result().get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            if (queue.remove(member)) {
+                throw new RejectedExecutionException("Checkout was not picked up by a batch in time");
+            }
+            throw new CheckoutPendingException("Checkout did not complete in time, it may still be placed",
+                    member.result());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for checkout", ex);
+        }
+    }
+
+    /**
+     * Stops taking new checkouts and waits for the queued ones to be placed.
+     */
+    void shutdown() throws InterruptedException {
+        running = false;
+        dispatchers.shutdown();
+        if (!dispatchers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Checkout batch dispatchers did not finish within 30 seconds");
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while (running || !queue.isEmpty()) {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                var members = new ArrayList<Member>(maxSize);
+                members.add(first);
+                var deadline = System.nanoTime() + windowNanos;
+                while (members.size() < maxSize) {
+                    var remaining = deadline - System.nanoTime();
+                    var next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        // Still take what is already waiting, at no extra delay
+                        queue.drainTo(members, maxSize - members.size());
+                        break;
+                    }
+                    members.add(next);
+                }
+                try {
+                    place(members);
+                } catch (Throwable ex) {
+                    // Never leave a caller waiting on a batch that blew up, nor lose the dispatcher to it
+                    log.error("Checkout batch of {} failed unexpectedly", members.size(), ex);
+                    members.forEach(member -> member.result().completeExceptionally(ex));
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void place(List<Member> members) {
+        if (members.size() == 1) {
+            placeAlone(members.get(0));
+            return;
+        }
+        List<PurchaseDTO> purchases;
+        try {
+            purchases = batchCheckout.apply(members.stream().map(Member::request).toList());
+        } catch (RuntimeException ex) {
+            log.debug("Checkout batch of {} failed, placing its members one by one: {}", members.size(), ex.getMessage());
+            members.forEach(this::placeAlone);
+            return;
+        }
+        for (int i = 0; i < members.size(); i++) {
+            members.get(i).result().complete(purchases.get(i));
+        }
+    }
+
+    private void placeAlone(Member member) {
+        try {
+            member.result().complete(singleCheckout.apply(member.request()));
+        } catch (Throwable ex) {
+            member.result().completeExceptionally(ex);
+        }
+    }
+
+    private record Member(PurchaseCheckoutDTO request, CompletableFuture<PurchaseDTO> result) {
+    }
+}
@@ -0,0 +1,84 @@
+package com.interswitch.bookstore.services;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker counting consecutive failures. Once the threshold is reached the circuit opens and rejects
+ * every call until the open duration has passed; then a single trial call is let through, which closes the
+ * circuit on success and opens it again on failure.
+ */
+class CircuitBreaker {
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Asks for permission to make a call. Every permitted call must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onSkipped()}.
+     *
+     * @return true if the call may be made
+     */
+    synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt >= openNanos) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                // The trial call is still running
+                return false;
+        }
+    }
+
+    synchronized void onSuccess() {
+        // Calls permitted before the circuit opened may still finish while it is open
+        if (state != State.OPEN) {
+            failures = 0;
+            state = State.CLOSED;
+        }
+    }
+
+    synchronized void onFailure() {
+        if (state == State.OPEN) {
+            return;
+        }
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    // The permitted call was not made, a pending trial is given to the next caller
+    synchronized void onSkipped() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
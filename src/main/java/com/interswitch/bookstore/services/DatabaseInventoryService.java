@@ -0,0 +1,217 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.InventoryProperties;
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.exceptions.NotFoundException;
+import com.interswitch.bookstore.projections.StockLevel;
+import com.interswitch.bookstore.repositories.BookRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Inventory held in the book rows. A book on flash sale has its stock split over several shard rows instead,
+ * and each checkout decrements a shard picked at random, so checkouts of the same book only contend when
+ * they pick the same shard. When no single shard holds the quantity a checkout asks for, the shards are
+ * locked together and the quantity is taken from their total. The stock column of a book on flash sale is
+ * kept as the total of its shards by a periodic sync, which also evens out drained shards.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "bookstore.inventory", name = "engine", havingValue = "database", matchIfMissing = true)
+@Service
+public class DatabaseInventoryService implements InventoryService {
+    private final BookRepository bookRepository;
+    private final BookCacheInvalidator bookCacheInvalidator;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryProperties properties;
+    // Number of shards per book on flash sale, as of the last sync or a flash sale started by this instance
+    private final Map<Long, Integer> shardedBooks = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the stock from the loaded book.
+     *
+     * @param book The persisted book
+     * @return int containing the available stock of the book
+     */
+    @Override
+    public int available(Book book) {
+        return book.getQuantityInStock();
+    }
+
+    /**
+     * Decrements the stock rows with conditional updates, and the shards of books on flash sale. Returning
+     * stock on rollback is left to the database.
+     *
+     * @param quantities The quantity to take out of stock per book ID
+     * @return List of the IDs of the books that could not be taken out of stock
+     */
+    @Override
+    public List<Long> reserve(SortedMap<Long, Integer> quantities) {
+        var unsharded = new TreeMap<Long, Integer>();
+        var sharded = new TreeMap<Long, Integer>();
+        quantities.forEach((bookId, quantity) ->
+                (shardedBooks.containsKey(bookId) ? sharded : unsharded).put(bookId, quantity));
+
+        var rejected = new TreeSet<Long>();
+        if (!unsharded.isEmpty()) {
+            for (var bookId : bookRepository.decrementStock(unsharded)) {
+                // The flash sale may have been started by another instance since the last sync
+                if (shardCount(bookId) > 0) {
+                    sharded.put(bookId, unsharded.get(bookId));
+                } else {
+                    rejected.add(bookId);
+                }
+            }
+        }
+        sharded.forEach((bookId, quantity) -> {
+            if (!takeFromShards(bookId, quantity)) {
+                rejected.add(bookId);
+            }
+        });
+        return List.copyOf(rejected);
+    }
+
+    /**
+     * Increments the stock rows, or a shard of books on flash sale, as part of the current transaction.
+     *
+     * @param quantities The quantity to return to stock per book ID
+     */
+    @Override
+    public void release(SortedMap<Long, Integer> quantities) {
+        var deltas = new TreeMap<Long, Integer>();
+        quantities.forEach((bookId, quantity) -> {
+            var shards = shardedBooks.containsKey(bookId) ? shardedBooks.get(bookId) : shardCount(bookId);
+            if (shards == 0
+                    || !bookRepository.incrementShard(bookId, ThreadLocalRandom.current().nextInt(shards), quantity)) {
+                deltas.put(bookId, -quantity);
+            }
+        });
+        if (!deltas.isEmpty()) {
+            bookRepository.subtractStock(deltas);
+        }
+    }
+
+    /**
+     * Splits the stock of a book evenly over the given number of shards. A book already on flash sale is
+     * split again.
+     *
+     * @param bookId The ID of the book
+     * @param shards The number of shards
+     * @throws BadRequestException if the number of shards is out of range
+     * @throws NotFoundException if the book does not exist
+     */
+    @Override
+    public void startFlashSale(Long bookId, int shards) {
+        if (shards < 2 || shards > properties.getFlashSaleMaxShards()) {
+            throw new BadRequestException("Shards must be between 2 and " + properties.getFlashSaleMaxShards() + ".");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            var total = lockTotal(bookId);
+            bookRepository.replaceShards(bookId, split(total, shards));
+            bookRepository.updateStockLevel(bookId, total, shards);
+        });
+        shardedBooks.put(bookId, shards);
+        bookCacheInvalidator.evict(List.of(bookId));
+        log.info("Flash sale started for book {} with {} shards", bookId, shards);
+    }
+
+    /**
+     * Moves the stock of a book on flash sale back from its shards into the book row.
+     *
+     * @param bookId The ID of the book
+     * @throws NotFoundException if the book does not exist
+     */
+    @Override
+    public void endFlashSale(Long bookId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            var total = lockTotal(bookId);
+            bookRepository.replaceShards(bookId, List.of());
+            bookRepository.updateStockLevel(bookId, total, 0);
+        });
+        shardedBooks.remove(bookId);
+        bookCacheInvalidator.evict(List.of(bookId));
+        log.info("Flash sale ended for book {}", bookId);
+    }
+
+    /**
+     * Picks up flash sales started or ended by other instances, evens out the shards of books where a shard
+     * has drained, and copies the total of the shards into the stock column of every book on flash sale.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.inventory.flash-sale-sync-interval:1s}")
+    public void syncFlashSales() {
+        var books = bookRepository.findShardedBooks();
+        shardedBooks.keySet().retainAll(books.keySet());
+        shardedBooks.putAll(books);
+        if (books.isEmpty()) {
+            return;
+        }
+        for (var bookId : bookRepository.findUnbalancedShardedBooks()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                var shards = bookRepository.lockShards(bookId);
+                bookRepository.updateShards(bookId, split(sum(shards), shards.size()));
+            });
+        }
+        var changed = transactionTemplate.execute(status -> bookRepository.syncShardedStock());
+        if (changed != null && !changed.isEmpty()) {
+            bookCacheInvalidator.evict(changed);
+        }
+    }
+
+    // Tries the shards one by one from a random one, and pools them when none holds the quantity on its own
+    private boolean takeFromShards(Long bookId, int quantity) {
+        var shards = shardedBooks.getOrDefault(bookId, 0);
+        var first = shards == 0 ? 0 : ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            if (bookRepository.decrementShard(bookId, (first + i) % shards, quantity)) {
+                return true;
+            }
+        }
+        var quantities = bookRepository.lockShards(bookId);
+        if (quantities.isEmpty()) {
+            // The flash sale has ended, the stock is back in the book row
+            shardedBooks.remove(bookId);
+            return bookRepository.decrementStock(new TreeMap<>(Map.of(bookId, quantity))).isEmpty();
+        }
+        var total = sum(quantities);
+        if (total < quantity) {
+            return false;
+        }
+        bookRepository.updateShards(bookId, split(total - quantity, quantities.size()));
+        return true;
+    }
+
+    private int shardCount(Long bookId) {
+        var shards = bookRepository.findStockLevel(bookId).map(StockLevel::stockShards).orElse(0);
+        if (shards > 0) {
+            shardedBooks.put(bookId, shards);
+        }
+        return shards;
+    }
+
+    private int lockTotal(Long bookId) {
+        var level = bookRepository.lockStockLevel(bookId)
+                .orElseThrow(() -> new NotFoundException("Book not found"));
+        return level.stockShards() == 0 ? level.quantityInStock() : sum(bookRepository.lockShards(bookId));
+    }
+
+    private static List<Integer> split(int total, int shards) {
+        var quantities = new ArrayList<Integer>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            quantities.add(total / shards + (shard < total % shards ? 1 : 0));
+        }
+        return quantities;
+    }
+
+    private static int sum(List<Integer> quantities) {
+        return quantities.stream().mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,122 @@
+package com.interswitch.bookstore.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.interswitch.bookstore.configs.IdempotencyProperties;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.exceptions.CheckoutPendingException;
+import com.interswitch.bookstore.exceptions.ConflictException;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.responses.PurchaseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers checkouts by the idempotency key the client sent with them, so a retried request is answered
+ * with the original purchase instead of running the checkout again. A key is claimed before the checkout
+ * starts; duplicates arriving while it is still running wait for its outcome. Failed checkouts are
+ * forgotten, so the client can retry them with the same key. A checkout whose caller stopped waiting while it
+ * may still be placed keeps its key until its outcome is known. A key reused with a different user or payment
+ * method is rejected. Keys are held in a bounded cache that expires them after a fixed time.
+ */
+@Component
+public class IdempotencyService {
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyProperties properties;
+    private final Cache<String, Entry> cache;
+
+    public IdempotencyService(IdempotencyProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "checkout-idempotency");
+    }
+
+    /**
+     * Runs the checkout once per idempotency key and returns its purchase to every request with that key.
+     *
+     * @param idempotencyKey The key the client sent with the request
+     * @param request        The checkout request
+     * @param checkout       Runs the checkout
+     * @return PurchaseDTO of the checkout first run with this key
+     * @throws BadRequestException if the key is too long or was already used with a different user or payment
+     *                             method
+     * @throws ConflictException if the checkout first run with this key is still running after the wait timeout
+     */
+    public PurchaseDTO execute(String idempotencyKey, PurchaseCheckoutDTO request, Supplier<PurchaseDTO> checkout) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+        var entry = new Entry(Fingerprint.of(request), new CompletableFuture<>());
+        var existing = cache.asMap().putIfAbsent(idempotencyKey, entry);
+        if (existing != null) {
+            if (!existing.fingerprint().equals(entry.fingerprint())) {
+                throw new BadRequestException("Idempotency-Key was already used with a different request.");
+            }
+            return await(existing.result());
+        }
+
+        try {
+            var purchase = checkout.get();
+            entry.result().complete(purchase);
+            return purchase;
+        } catch (CheckoutPendingException ex) {
+            // Retries must wait for this checkout rather than place it a second time
+            ex.getOutcome().whenComplete((purchase, failure) -> {
+                if (failure == null) {
+                    entry.result().complete(purchase);
+                } else {
+                    cache.asMap().remove(idempotencyKey, entry);
+                    entry.result().completeExceptionally(failure);
+                }
+            });
+            throw ex;
+        } catch (Throwable ex) {
+            // Whatever ends the checkout releases the key, or every retry would wait for it until it expires
+            cache.asMap().remove(idempotencyKey, entry);
+            entry.result().completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private PurchaseDTO await(CompletableFuture<PurchaseDTO> result) {
+        try {
+            return result.get(properties.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new ConflictException("A checkout with this Idempotency-Key is still in progress.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("A checkout with this Idempotency-Key is still in progress.");
+        }
+    }
+
+    // The parts of a checkout request a retry must repeat
+    private record Fingerprint(Long userId, PaymentMethod paymentMethod) {
+        static Fingerprint of(PurchaseCheckoutDTO request) {
+            return new Fingerprint(request.getUserId(), request.getPaymentMethod());
+        }
+    }
+
+    private record Entry(Fingerprint fingerprint, CompletableFuture<PurchaseDTO> result) {
+    }
+}
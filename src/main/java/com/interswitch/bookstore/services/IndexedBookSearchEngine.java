@@ -0,0 +1,279 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.requests.KeysetCursor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory trigram index over the searchable book attributes.
+ * Every trigram of the lower-cased title, author, publication year and genre maps to the ids of the books
+ * containing it, so a search intersects the postings of the search term's trigrams and only verifies the
+ * few remaining candidates instead of scanning the whole table. Matching is substring based and therefore
+ * returns exactly what the LIKE query in {@link BookRepository#searchBooks} returns, which escapes the
+ * wildcards of the search term. Books are indexed once their change has committed.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "bookstore.search", name = "engine", havingValue = "index", matchIfMissing = true)
+@Service
+public class IndexedBookSearchEngine implements BookSearchEngine {
+    private static final int GRAM_SIZE = 3;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final Comparator<Document> KEYSET_ORDER = by(Document::createdAt).thenComparing(Document::id);
+    private static final Map<String, Comparator<Document>> SORT_KEYS = Map.of(
+            "id", by(Document::id),
+            "title", by(Document::title),
+            "author", by(Document::author),
+            "genre", by(Document::genre),
+            "isbn", by(Document::isbn),
+            "publicationYear", by(Document::publicationYear),
+            "price", by(Document::price),
+            "createdAt", by(Document::createdAt),
+            "updatedAt", by(Document::updatedAt)
+    );
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Document> documents = new HashMap<>();
+    private Map<String, Set<Long>> postings = new HashMap<>();
+
+    /**
+     * Searches the index for books matching the given term. Sorts on attributes that are not held in the
+     * index fall back to the repository query.
+     *
+     * @param searchTerm The term to search for (can be null for all books)
+     * @param pageable   Pagination and sorting information
+     * @return Page<BookView> containing the matching books with pagination applied
+     */
+    @Override
+    public Page<BookView> search(String searchTerm, Pageable pageable) {
+        var comparator = comparator(pageable.getSort());
+        if (comparator == null) {
+            return bookRepository.searchBooks(searchTerm, pageable);
+        }
+
+        List<Document> matches;
+        lock.readLock().lock();
+        try {
+            matches = match(searchTerm);
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(comparator);
+
+        var from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), matches.size()) : 0;
+        var to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), matches.size()) : matches.size();
+        var ids = matches.subList(from, to).stream().map(Document::id).toList();
+        return new PageImpl<>(load(ids), pageable, matches.size());
+    }
+
+    /**
+     * Seeks past the given keyset position in the index, so the cost of a slice does not depend on how
+     * deep into the results it is.
+     *
+     * @param searchTerm The term to search for (can be null for all books)
+     * @param cursor     Position of the last book already returned (can be null for the first slice)
+     * @param direction  Direction of the (createdAt, id) ordering
+     * @param limit      Maximum number of books to return
+     * @return List<BookView> containing the next matching books
+     */
+    @Override
+    public List<BookView> scroll(String searchTerm, KeysetCursor cursor, Sort.Direction direction, int limit) {
+        List<Document> matches;
+        lock.readLock().lock();
+        try {
+            matches = match(searchTerm);
+        } finally {
+            lock.readLock().unlock();
+        }
+        var sign = direction.isDescending() ? -1 : 1;
+        var ids = matches.stream()
+                .filter(document -> cursor == null || sign * document.compareTo(cursor) > 0)
+                .sorted((left, right) -> sign * KEYSET_ORDER.compare(left, right))
+                .limit(limit)
+                .map(Document::id)
+                .toList();
+        return load(ids);
+    }
+
+    /**
+     * Adds or replaces a book in the index. The change is visible to the next search.
+     *
+     * @param book The persisted book to index
+     */
+    @Override
+    public void index(Book book) {
+        var document = Document.of(BookView.of(book));
+        lock.writeLock().lock();
+        try {
+            add(documents, postings, document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the book repository and swaps it in once it is complete.
+     */
+    @Override
+    public void rebuild() {
+        var freshDocuments = new HashMap<Long, Document>();
+        var freshPostings = new HashMap<String, Set<Long>>();
+        Pageable pageable = PageRequest.of(0, REBUILD_BATCH_SIZE, Sort.by("id"));
+        while (true) {
+            var slice = bookRepository.findAllBy(pageable);
+            slice.forEach(book -> add(freshDocuments, freshPostings, Document.of(book)));
+            if (!slice.hasNext()) {
+                break;
+            }
+            pageable = slice.nextPageable();
+        }
+
+        lock.writeLock().lock();
+        try {
+            documents = freshDocuments;
+            postings = freshPostings;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index rebuilt with {} books", freshDocuments.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // Loads the given books in the given order
+    private List<BookView> load(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        var books = bookRepository.findViewsByIdIn(ids).stream()
+                .collect(Collectors.toMap(BookView::id, Function.identity()));
+        return ids.stream().map(books::get).filter(Objects::nonNull).toList();
+    }
+
+    private List<Document> match(String searchTerm) {
+        if (searchTerm == null) {
+            return new ArrayList<>(documents.values());
+        }
+        var needle = searchTerm.toLowerCase(Locale.ROOT);
+        Collection<Long> candidates = needle.length() < GRAM_SIZE ? documents.keySet() : candidates(needle);
+        return candidates.stream()
+                .map(documents::get)
+                .filter(document -> document.matches(needle))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private Set<Long> candidates(String needle) {
+        var grams = grams(needle).stream()
+                .map(gram -> postings.getOrDefault(gram, Set.of()))
+                .sorted(Comparator.comparingInt(Set::size))
+                .toList();
+        var candidates = new HashSet<>(grams.get(0));
+        for (int i = 1; i < grams.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(grams.get(i));
+        }
+        return candidates;
+    }
+
+    private static void add(Map<Long, Document> documents, Map<String, Set<Long>> postings, Document document) {
+        var previous = documents.put(document.id(), document);
+        if (previous != null) {
+            previous.grams().forEach(gram -> {
+                var ids = postings.get(gram);
+                ids.remove(previous.id());
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            });
+        }
+        document.grams().forEach(gram -> postings.computeIfAbsent(gram, g -> new HashSet<>()).add(document.id()));
+    }
+
+    private static Set<String> grams(String value) {
+        var grams = new HashSet<String>();
+        for (int i = 0; i + GRAM_SIZE <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private static Comparator<Document> comparator(Sort sort) {
+        Comparator<Document> comparator = null;
+        for (var order : sort) {
+            var key = SORT_KEYS.get(order.getProperty());
+            if (key == null) {
+                return null;
+            }
+            key = order.isDescending() ? key.reversed() : key;
+            comparator = comparator == null ? key : comparator.thenComparing(key);
+        }
+        var byId = SORT_KEYS.get("id");
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<Document> by(Function<Document, T> key) {
+        return Comparator.comparing(key, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    private record Document(Long id, String title, String author, String genre, String isbn,
+                            Integer publicationYear, BigDecimal price, LocalDateTime createdAt,
+                            LocalDateTime updatedAt, List<String> fields) {
+
+        static Document of(BookView book) {
+            var genre = book.genre() == null ? null : book.genre().name();
+            var fields = new ArrayList<String>();
+            if (book.title() != null) {
+                fields.add(book.title().toLowerCase(Locale.ROOT));
+            }
+            if (book.author() != null) {
+                fields.add(book.author().toLowerCase(Locale.ROOT));
+            }
+            fields.add(String.valueOf(book.publicationYear()));
+            if (genre != null) {
+                fields.add(genre.toLowerCase(Locale.ROOT));
+            }
+            return new Document(book.id(), book.title(), book.author(), genre, book.isbn(),
+                    book.publicationYear(), book.price(), book.createdAt(), book.updatedAt(),
+                    List.copyOf(fields));
+        }
+
+        int compareTo(KeysetCursor cursor) {
+            var byCreatedAt = Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder())
+                    .compare(createdAt, cursor.createdAt());
+            return byCreatedAt != 0 ? byCreatedAt : id.compareTo(cursor.id());
+        }
+
+        boolean matches(String needle) {
+            return fields.stream().anyMatch(field -> field.contains(needle));
+        }
+
+        Set<String> grams() {
+            return fields.stream()
+                    .flatMap(field -> IndexedBookSearchEngine.grams(field).stream())
+                    .collect(Collectors.toSet());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+
+import java.util.List;
+import java.util.SortedMap;
+
+public interface InventoryService {
+
+    /**
+     * Returns the number of copies of a book that can still be sold.
+     *
+     * @param book The persisted book
+     * @return int containing the available stock of the book
+     */
+    int available(Book book);
+
+    /**
+     * Takes the given quantities out of stock as part of the current transaction. Books are handled in
+     * ascending ID order. If the transaction rolls back, the quantities are returned to stock.
+     *
+     * @param quantities The quantity to take out of stock per book ID
+     * @return List of the IDs of the books that could not be taken out of stock, because they have
+     * insufficient stock or do not exist; when it is not empty the caller must roll the transaction back
+     */
+    List<Long> reserve(SortedMap<Long, Integer> quantities);
+
+    /**
+     * Returns quantities taken out of stock by an earlier, committed reservation, for example when the
+     * purchase is cancelled after its payment was declined.
+     *
+     * @param quantities The quantity to return to stock per book ID
+     */
+    void release(SortedMap<Long, Integer> quantities);
+
+    /**
+     * Puts a book on flash sale, splitting its stock over several counters so concurrent checkouts of the
+     * book do not all contend on one.
+     *
+     * @param bookId The ID of the book
+     * @param shards The number of counters to split the stock over
+     * @throws com.interswitch.bookstore.exceptions.BadRequestException if the number of shards is out of range
+     *                                                                  or the engine has no flash sale mode
+     * @throws com.interswitch.bookstore.exceptions.NotFoundException if the book does not exist
+     */
+    void startFlashSale(Long bookId, int shards);
+
+    /**
+     * Takes a book off flash sale, joining its stock back into a single counter.
+     *
+     * @param bookId The ID of the book
+     * @throws com.interswitch.bookstore.exceptions.BadRequestException if the engine has no flash sale mode
+     * @throws com.interswitch.bookstore.exceptions.NotFoundException if the book does not exist
+     */
+    void endFlashSale(Long bookId);
+}
@@ -0,0 +1,69 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.requests.KeysetCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "bookstore.search", name = "engine", havingValue = "jpa")
+@Service
+public class JpaBookSearchEngine implements BookSearchEngine {
+    private final BookRepository bookRepository;
+
+    /**
+     * Searches for books by delegating to the LIKE based repository query.
+     *
+     * @param searchTerm The term to search for (can be null for all books)
+     * @param pageable   Pagination and sorting information
+     * @return Page<BookView> containing the matching books with pagination applied
+     */
+    @Override
+    public Page<BookView> search(String searchTerm, Pageable pageable) {
+        return bookRepository.searchBooks(searchTerm, pageable);
+    }
+
+    /**
+     * Searches for books after the given keyset position by delegating to the seek based repository queries.
+     *
+     * @param searchTerm The term to search for (can be null for all books)
+     * @param cursor     Position of the last book already returned (can be null for the first slice)
+     * @param direction  Direction of the (createdAt, id) ordering
+     * @param limit      Maximum number of books to return
+     * @return List<BookView> containing the next matching books
+     */
+    @Override
+    public List<BookView> scroll(String searchTerm, KeysetCursor cursor, Sort.Direction direction, int limit) {
+        var createdAt = cursor == null ? null : cursor.createdAt();
+        var id = cursor == null ? null : cursor.id();
+        var pageable = PageRequest.of(0, limit);
+        return direction.isDescending()
+                ? bookRepository.searchBooksBefore(searchTerm, createdAt, id, pageable)
+                : bookRepository.searchBooksAfter(searchTerm, createdAt, id, pageable);
+    }
+
+    /**
+     * No-op, the repository query always reads the live table.
+     *
+     * @param book The persisted book to index
+     */
+    @Override
+    public void index(Book book) {
+    }
+
+    /**
+     * No-op, the repository query always reads the live table.
+     */
+    @Override
+    public void rebuild() {
+    }
+}
@@ -0,0 +1,376 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.InventoryProperties;
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.repositories.BookRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Inventory held in memory as the authoritative stock of every book. Each book has its own counter that
+ * is decremented with compare-and-set, so checkouts of different books never contend and checkouts of the
+ * same book never block. Stock changes are appended to a journal once their transaction commits and
+ * coalesced per book until the next flush writes them back to the database in one batch. On startup the
+ * journal segments left behind by a crash are replayed onto the database before any counter is loaded. The
+ * database records the last segment written back in the same transaction as its stock changes, so no
+ * segment is ever applied twice.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "bookstore.inventory", name = "engine", havingValue = "memory")
+@Service
+public class MemoryInventoryService implements InventoryService {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final String FLASH_SALE_UNSUPPORTED =
+            "Flash sale mode is only available with the database inventory engine.";
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryProperties properties;
+    private final BookCacheInvalidator bookCacheInvalidator;
+    private final Map<Long, AtomicInteger> stock = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> unflushed = new ConcurrentHashMap<>();
+    // Appends hold the read lock so they can run in parallel, a flush holds the write lock to rotate the journal
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final List<Path> sealedSegments = new ArrayList<>();
+    private FileChannel journal;
+    private long generation;
+
+    /**
+     * Reads the stock from the book's counter.
+     *
+     * @param book The persisted book
+     * @return int containing the available stock of the book
+     */
+    @Override
+    public int available(Book book) {
+        var counter = counter(book.getId());
+        return counter == null ? book.getQuantityInStock() : counter.get();
+    }
+
+    /**
+     * Takes the quantities out of the counters, all or nothing. The change is journaled once the current
+     * transaction commits; if it rolls back instead, the quantities are put back and nothing is journaled.
+     *
+     * @param quantities The quantity to take out of stock per book ID
+     * @return List of the ID of the first book that could not be taken out of stock, nothing is taken then
+     */
+    @Override
+    public List<Long> reserve(SortedMap<Long, Integer> quantities) {
+        var taken = new TreeMap<Long, Integer>();
+        for (var entry : quantities.entrySet()) {
+            var counter = counter(entry.getKey());
+            if (counter == null || !take(counter, entry.getValue())) {
+                giveBack(taken);
+                return List.of(entry.getKey());
+            }
+            taken.put(entry.getKey(), entry.getValue());
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(taken, 1);
+            return List.of();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    record(taken, 1);
+                } else {
+                    giveBack(taken);
+                }
+            }
+        });
+        return List.of();
+    }
+
+    /**
+     * Puts the quantities back into the counters and journals the change once the current transaction has
+     * committed, so a rolled back cancellation returns nothing.
+     *
+     * @param quantities The quantity to return to stock per book ID
+     */
+    @Override
+    public void release(SortedMap<Long, Integer> quantities) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            putBack(quantities);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                putBack(quantities);
+            }
+        });
+    }
+
+    /**
+     * Not supported, checkouts of the same book already only contend on a compare-and-set of its counter.
+     *
+     * @throws BadRequestException always
+     */
+    @Override
+    public void startFlashSale(Long bookId, int shards) {
+        throw new BadRequestException(FLASH_SALE_UNSUPPORTED);
+    }
+
+    /**
+     * Not supported, checkouts of the same book already only contend on a compare-and-set of its counter.
+     *
+     * @throws BadRequestException always
+     */
+    @Override
+    public void endFlashSale(Long bookId) {
+        throw new BadRequestException(FLASH_SALE_UNSUPPORTED);
+    }
+
+    /**
+     * Writes the stock changes made since the last flush back to the database in one batch, together with the
+     * generation of the last journal segment holding them, and deletes those segments. If the write fails,
+     * the changes are kept for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.inventory.flush-interval:1s}")
+    public synchronized void flush() {
+        var deltas = new TreeMap<Long, Integer>();
+        long sealed;
+        journalLock.writeLock().lock();
+        try {
+            unflushed.forEach((bookId, delta) -> {
+                var value = delta.getAndSet(0);
+                if (value != 0) {
+                    deltas.put(bookId, value);
+                }
+            });
+            if (deltas.isEmpty()) {
+                return;
+            }
+            sealed = generation;
+            sealedSegments.add(segment(sealed));
+            openSegment(sealed + 1);
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                bookRepository.subtractStock(deltas);
+                bookRepository.updateFlushedJournalGeneration(sealed);
+            });
+        } catch (RuntimeException ex) {
+            // The sealed segments are kept, so a crash before the next successful flush still replays them
+            deltas.forEach((bookId, delta) -> unflushed.get(bookId).addAndGet(delta));
+            log.warn("Inventory flush of {} books failed, retrying with the next flush", deltas.size(), ex);
+            return;
+        }
+        // Reads since the checkout's eviction may have cached the stock as it was before this write back
+        bookCacheInvalidator.evict(deltas.keySet());
+        sealedSegments.forEach(MemoryInventoryService::delete);
+        sealedSegments.clear();
+        log.debug("Inventory flush wrote back {} books", deltas.size());
+    }
+
+    @PostConstruct
+    public void replayJournal() throws IOException {
+        var directory = properties.getJournalDir();
+        if (directory == null) {
+            throw new IllegalStateException("bookstore.inventory.journal-dir must be set for the memory inventory engine");
+        }
+        Files.createDirectories(directory);
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(MemoryInventoryService::isSegment).sorted().toList();
+        }
+
+        // Read in a read-write transaction, so it comes from the primary and not from a lagging replica
+        var flushed = transactionTemplate.execute(status -> bookRepository.findFlushedJournalGeneration());
+        if (flushed.isEmpty() && !segments.isEmpty()) {
+            // The generation is recorded before anything is journaled, so these segments belong to another database
+            throw new IllegalStateException("Inventory journal " + directory + " holds segments never written back "
+                    + "to this database, remove them to start with the stock stored in the database");
+        }
+        var written = flushed.orElse(0L);
+        var deltas = new TreeMap<Long, Integer>();
+        for (var segment : segments) {
+            // Segments up to the recorded generation were written back before a crash kept them from being deleted
+            if (generationOf(segment) <= written) {
+                continue;
+            }
+            var content = Files.readString(segment, StandardCharsets.UTF_8);
+            // A crash can leave the last line half written, it was never acknowledged to a buyer
+            var complete = content.substring(0, content.lastIndexOf('\n') + 1);
+            complete.lines().forEach(line -> {
+                var fields = line.split(" ");
+                deltas.merge(Long.parseLong(fields[0]), Integer.parseInt(fields[1]), Integer::sum);
+            });
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        var last = segments.isEmpty() ? written : Math.max(written, generationOf(segments.get(segments.size() - 1)));
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!deltas.isEmpty()) {
+                bookRepository.subtractStock(deltas);
+            }
+            bookRepository.updateFlushedJournalGeneration(last);
+        });
+        if (!deltas.isEmpty()) {
+            log.info("Inventory journal replayed onto {} books", deltas.size());
+        }
+        segments.forEach(MemoryInventoryService::delete);
+        openSegment(last + 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Pageable pageable = PageRequest.of(0, LOAD_BATCH_SIZE, Sort.by("id"));
+        while (true) {
+            var slice = bookRepository.findAllBy(pageable);
+            slice.forEach(book -> stock.putIfAbsent(book.id(), new AtomicInteger(book.quantityInStock())));
+            if (!slice.hasNext()) {
+                break;
+            }
+            pageable = slice.nextPageable();
+        }
+        log.info("Inventory loaded with {} books", stock.size());
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        flush();
+        journal.close();
+    }
+
+    // Returns the counter of a book, loading it on first use for books added after startup
+    private AtomicInteger counter(Long bookId) {
+        var counter = stock.get(bookId);
+        if (counter != null) {
+            return counter;
+        }
+        return bookRepository.findViewById(bookId)
+                .map(BookView::quantityInStock)
+                .map(quantity -> stock.computeIfAbsent(bookId, id -> new AtomicInteger(quantity)))
+                .orElse(null);
+    }
+
+    private void putBack(Map<Long, Integer> quantities) {
+        var returned = new TreeMap<Long, Integer>();
+        quantities.forEach((bookId, quantity) -> {
+            var counter = counter(bookId);
+            if (counter != null) {
+                counter.addAndGet(quantity);
+                returned.put(bookId, quantity);
+            }
+        });
+        record(returned, -1);
+    }
+
+    private void giveBack(Map<Long, Integer> quantities) {
+        quantities.forEach((bookId, quantity) -> stock.get(bookId).addAndGet(quantity));
+    }
+
+    // Journals a committed stock change and counts it for the next flush. A journal append that fails is logged
+    // rather than thrown, as the transaction has already committed; the change is then only lost to a crash
+    // before the next flush.
+    private void record(Map<Long, Integer> quantities, int sign) {
+        var entries = new StringBuilder();
+        quantities.forEach((bookId, quantity) -> entries.append(bookId).append(' ').append(sign * quantity).append('\n'));
+        var buffer = ByteBuffer.wrap(entries.toString().getBytes(StandardCharsets.UTF_8));
+
+        journalLock.readLock().lock();
+        try {
+            try {
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+            } catch (IOException ex) {
+                log.error("Inventory journal is not writable, {} books are unprotected until the next flush",
+                        quantities.size(), ex);
+            }
+            quantities.forEach((bookId, quantity) ->
+                    unflushed.computeIfAbsent(bookId, id -> new AtomicInteger()).addAndGet(sign * quantity));
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    private void openSegment(long next) {
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+            var options = new HashSet<>(Set.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND));
+            if (properties.isJournalSync()) {
+                options.add(StandardOpenOption.DSYNC);
+            }
+            journal = FileChannel.open(segment(next), options);
+            generation = next;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Inventory journal segment cannot be opened", ex);
+        }
+    }
+
+    private Path segment(long generation) {
+        // Zero padded, so segments sort by generation
+        return properties.getJournalDir().resolve(String.format("%s%019d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+    }
+
+    private static boolean take(AtomicInteger counter, int quantity) {
+        int current;
+        do {
+            current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - quantity));
+        return true;
+    }
+
+    private static boolean isSegment(Path path) {
+        var name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long generationOf(Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void delete(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Inventory journal segment cannot be deleted", ex);
+        }
+    }
+}
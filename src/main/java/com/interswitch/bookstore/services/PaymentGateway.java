@@ -0,0 +1,98 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.PaymentProperties;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.exceptions.PaymentDeclinedException;
+import com.interswitch.bookstore.exceptions.PaymentUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.*;
+
+/**
+ * Isolates the payments of one payment method. Payments run on the method's own bounded thread pool, so a
+ * slow gateway only exhausts its own threads, and each payment is cancelled once it exceeds the method's
+ * deadline. The deadline starts when the payment starts running, so time spent queued behind other payments
+ * is not blamed on the gateway. Timeouts and errors count towards the method's circuit breaker; a declined payment is an answer
+ * of a healthy gateway and does not.
+ */
+@Slf4j
+class PaymentGateway {
+    private final PaymentMethod method;
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+    private final CircuitBreaker circuitBreaker;
+
+    PaymentGateway(PaymentMethod method, PaymentProperties.Gateway properties, MeterRegistry meterRegistry) {
+        this.method = method;
+        this.timeoutMillis = properties.getTimeout().toMillis();
+        this.circuitBreaker = new CircuitBreaker(properties.getFailureThreshold(), properties.getOpenDuration());
+        var name = "payment-" + method.name().toLowerCase();
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, new ThreadPoolExecutor(
+                properties.getConcurrency(), properties.getConcurrency(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory(name + "-"), new ThreadPoolExecutor.AbortPolicy()), name);
+        meterRegistry.gauge("bookstore.payment.circuit.open", Tags.of("method", method.name()),
+                circuitBreaker, breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1);
+    }
+
+    /**
+     * Runs a payment on the method's thread pool.
+     *
+     * @param payment Takes the payment, blocking until the gateway has answered
+     * @return CompletableFuture completed once the payment is taken, or failed with the payment's exception, a
+     * {@link TimeoutException} if it ran past the deadline, or a {@link PaymentUnavailableException} if it was
+     * not attempted because the circuit is open or the pool is saturated
+     */
+    CompletableFuture<Void> call(Runnable payment) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new PaymentUnavailableException(method + " payments are unavailable, circuit is open"));
+        }
+        var result = new CompletableFuture<Void>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+                try {
+                    payment.run();
+                    result.complete(null);
+                } catch (RuntimeException ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            circuitBreaker.onSkipped();
+            return CompletableFuture.failedFuture(
+                    new PaymentUnavailableException(method + " payments are unavailable, gateway is saturated"));
+        }
+        return result.whenComplete((ignored, ex) -> {
+            if (ex == null || ex instanceof PaymentDeclinedException) {
+                circuitBreaker.onSuccess();
+                return;
+            }
+            if (ex instanceof TimeoutException) {
+                // Frees the thread for the next payment
+                task.cancel(true);
+            }
+            circuitBreaker.onFailure();
+            if (circuitBreaker.state() == CircuitBreaker.State.OPEN) {
+                log.warn("{} payment circuit is open after: {}", method, ex.toString());
+            }
+        });
+    }
+
+    CircuitBreaker.State state() {
+        return circuitBreaker.state();
+    }
+
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} payment workers did not finish within 30 seconds", method);
+        }
+    }
+}
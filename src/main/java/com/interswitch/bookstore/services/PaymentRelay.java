@@ -0,0 +1,242 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.PaymentProperties;
+import com.interswitch.bookstore.domains.PaymentOutbox;
+import com.interswitch.bookstore.domains.Purchase;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.exceptions.PaymentDeclinedException;
+import com.interswitch.bookstore.exceptions.PaymentUnavailableException;
+import com.interswitch.bookstore.repositories.PaymentOutboxRepository;
+import com.interswitch.bookstore.repositories.PurchaseHistoryRepository;
+import com.interswitch.bookstore.repositories.PurchaseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Takes the payments of pending purchases from the payment outbox. Checkout only reserves stock and writes
+ * the purchase together with its outbox entry, so no database transaction stays open while the payment
+ * backend is called. Every run claims the due entries by leasing them, starts their payments outside any
+ * transaction, and then settles each purchase in a short transaction of its own: a paid purchase is marked
+ * PAID, a declined one is marked FAILED and its stock is released. A payment the gateway did not attempt,
+ * because its circuit is open or it is saturated, is deferred without counting the attempt. A payment failing
+ * for any other reason is retried once its lease expires, up to the configured number of attempts.
+ * <p>
+ * A run does not wait for the payments it started, so a slow gateway never holds the scheduler thread shared
+ * with the other scheduled tasks; the payments still in flight count against the batch size of the next runs.
+ * <p>
+ * Payments are taken at least once: a relay dying between the payment and the settlement retries the payment
+ * once the lease expires. The purchase ID is passed with every attempt and serves as the idempotency key of
+ * the payment, so the backend can recognise a repeated charge.
+ */
+@Slf4j
+@ConditionalOnProperty(prefix = "bookstore.payment", name = "relay-enabled", havingValue = "true", matchIfMissing = true)
+@Service
+public class PaymentRelay {
+    private final PaymentOutboxRepository paymentOutboxRepository;
+    private final PurchaseRepository purchaseRepository;
+    private final PurchaseHistoryRepository purchaseHistoryRepository;
+    private final PaymentService paymentService;
+    private final InventoryService inventoryService;
+    private final BookCacheInvalidator bookCacheInvalidator;
+    private final SalesAnalytics salesAnalytics;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    // Payments started by earlier runs and not settled yet, by outbox entry ID
+    private final Map<Long, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    public PaymentRelay(PaymentOutboxRepository paymentOutboxRepository, PurchaseRepository purchaseRepository,
+                        PurchaseHistoryRepository purchaseHistoryRepository, PaymentService paymentService,
+                        InventoryService inventoryService, BookCacheInvalidator bookCacheInvalidator,
+                        SalesAnalytics salesAnalytics, TransactionTemplate transactionTemplate,
+                        PaymentProperties properties, MeterRegistry meterRegistry) {
+        this.paymentOutboxRepository = paymentOutboxRepository;
+        this.purchaseRepository = purchaseRepository;
+        this.purchaseHistoryRepository = purchaseHistoryRepository;
+        this.paymentService = paymentService;
+        this.inventoryService = inventoryService;
+        this.bookCacheInvalidator = bookCacheInvalidator;
+        this.salesAnalytics = salesAnalytics;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, new ThreadPoolExecutor(
+                properties.getRelayWorkers(), properties.getRelayWorkers(), 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("payment-relay-")), "payment-relay");
+    }
+
+    /**
+     * Claims the due outbox entries, up to the batch size less the payments still in flight, and starts their
+     * payments without waiting for them.
+     *
+     * @return int containing the number of entries claimed
+     */
+    @Scheduled(fixedDelayString = "${bookstore.payment.relay-interval:200ms}")
+    public int relay() {
+        var capacity = properties.getRelayBatchSize() - inFlight.size();
+        if (!running || capacity <= 0) {
+            return 0;
+        }
+        var claimed = transactionTemplate.execute(status -> claim(capacity));
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+        for (var entry : claimed) {
+            var payment = process(entry);
+            inFlight.put(entry.getId(), payment);
+            payment.whenComplete((ignored, ex) -> inFlight.remove(entry.getId(), payment));
+        }
+        return claimed.size();
+    }
+
+    /**
+     * Waits for the payments in flight to be settled or left for a retry.
+     *
+     * @param timeoutMillis The longest time to wait
+     * @return boolean true if none is in flight anymore
+     */
+    boolean awaitInFlight(long timeoutMillis) throws InterruptedException {
+        try {
+            CompletableFuture.allOf(inFlight.values().toArray(CompletableFuture[]::new))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException ex) {
+            // Every payment recovers from its own failures, so this is never reached
+            return inFlight.isEmpty();
+        } catch (TimeoutException ex) {
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (!awaitInFlight(30_000)) {
+            log.warn("Payments in flight were not settled within 30 seconds, they are retried once their lease expires");
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Payment relay workers did not finish within 30 seconds");
+        }
+    }
+
+    private List<PaymentOutbox> claim(int limit) {
+        var now = LocalDateTime.now();
+        var leaseUntil = now.plus(properties.getLease());
+        var claimed = new ArrayList<PaymentOutbox>();
+        for (var entry : paymentOutboxRepository.findDue(now, PageRequest.of(0, limit))) {
+            if (inFlight.containsKey(entry.getId())) {
+                // Still being paid after its lease expired, it is not taken twice by this relay
+                continue;
+            }
+            // Another relay instance may have read the same entry, only the one whose update matches takes it
+            if (paymentOutboxRepository.claim(entry.getId(), entry.getAvailableAt(), leaseUntil) == 1) {
+                entry.setAttempts(entry.getAttempts() + 1);
+                claimed.add(entry);
+            }
+        }
+        return claimed;
+    }
+
+    // Loads the purchase and settles it once the payment service has answered, both on the relay workers so
+    // no payment gateway thread is held by the database
+    private CompletableFuture<Void> process(PaymentOutbox entry) {
+        return CompletableFuture
+                .supplyAsync(() -> purchaseRepository.findWithItemsById(entry.getPurchaseId()).orElse(null), executor)
+                .thenCompose(purchase -> {
+                    if (purchase == null || purchase.getStatus() != PurchaseStatus.PENDING) {
+                        // Settled by an earlier attempt whose outbox entry was not removed
+                        transactionTemplate.executeWithoutResult(status ->
+                                paymentOutboxRepository.deleteById(entry.getId()));
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    return paymentService.processPayment(purchase).<Void>handleAsync((ignored, ex) -> {
+                        settle(entry, purchase, ex instanceof CompletionException ? ex.getCause() : ex);
+                        return null;
+                    }, executor);
+                })
+                .exceptionally(ex -> {
+                    // The entry keeps its lease and is picked up again once it expires
+                    log.error("Settling payment for purchase {} failed", entry.getPurchaseId(), ex);
+                    return null;
+                });
+    }
+
+    private void settle(PaymentOutbox entry, Purchase purchase, Throwable failure) {
+        if (failure == null) {
+            transactionTemplate.executeWithoutResult(status -> {
+                var now = LocalDateTime.now();
+                if (purchaseRepository.updateStatus(purchase.getId(), PurchaseStatus.PENDING, PurchaseStatus.PAID,
+                        now) == 1) {
+                    purchaseHistoryRepository.updateStatus(purchase.getId(), PurchaseStatus.PAID, now);
+                }
+                paymentOutboxRepository.deleteById(entry.getId());
+            });
+            count("paid");
+        } else if (failure instanceof PaymentDeclinedException) {
+            log.info("Payment for purchase {} declined: {}", purchase.getId(), failure.getMessage());
+            cancel(entry, purchase);
+        } else if (failure instanceof PaymentUnavailableException) {
+            // Not attempted, so it does not count towards the attempts
+            log.debug("Payment for purchase {} deferred: {}", purchase.getId(), failure.getMessage());
+            transactionTemplate.executeWithoutResult(status -> paymentOutboxRepository.defer(entry.getId(),
+                    LocalDateTime.now().plus(properties.getUnavailableRetryDelay())));
+            count("deferred");
+        } else if (entry.getAttempts() >= properties.getMaxAttempts()) {
+            log.error("Payment for purchase {} failed after {} attempts, cancelling it",
+                    purchase.getId(), entry.getAttempts(), failure);
+            cancel(entry, purchase);
+        } else {
+            log.warn("Payment for purchase {} failed on attempt {}, retrying after the lease expires: {}",
+                    purchase.getId(), entry.getAttempts(), failure.toString());
+            count("retried");
+        }
+    }
+
+    // Marks the purchase FAILED, returns its stock and takes back its sales, unless it was settled in the meantime
+    private void cancel(PaymentOutbox entry, Purchase purchase) {
+        var quantities = new TreeMap<Long, Integer>();
+        purchase.getItems().forEach(item -> quantities.merge(item.getBook().getId(), item.getQuantity(), Integer::sum));
+        transactionTemplate.executeWithoutResult(status -> {
+            var now = LocalDateTime.now();
+            if (purchaseRepository.updateStatus(purchase.getId(), PurchaseStatus.PENDING, PurchaseStatus.FAILED,
+                    now) == 1) {
+                purchaseHistoryRepository.updateStatus(purchase.getId(), PurchaseStatus.FAILED, now);
+                inventoryService.release(quantities);
+                bookCacheInvalidator.evict(List.copyOf(quantities.keySet()));
+                salesAnalytics.cancel(purchase.getId(), purchase.getPurchaseDate(), quantities);
+            }
+            paymentOutboxRepository.deleteById(entry.getId());
+        });
+        count("failed");
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("bookstore.payment.relay", "outcome", outcome).increment();
+    }
+}
@@ -2,12 +2,18 @@ package com.interswitch.bookstore.services;
 
 import com.interswitch.bookstore.domains.Purchase;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface PaymentService {
 
     /**
-     * Processes a payment for a given purchase.
+     * Processes a payment for a given purchase without blocking the caller.
      *
      * @param purchase The purchase object containing payment details to be processed
+     * @return CompletableFuture completed once the payment is taken, or failed with a
+     * {@link com.interswitch.bookstore.exceptions.PaymentDeclinedException} if it was declined, a
+     * {@link com.interswitch.bookstore.exceptions.PaymentUnavailableException} if it was not attempted,
+     * a {@link java.util.concurrent.TimeoutException} if it missed its deadline, or any other gateway error
      */
-    void processPayment(Purchase purchase);
-}
\ No newline at end of file
+    CompletableFuture<Void> processPayment(Purchase purchase);
+}
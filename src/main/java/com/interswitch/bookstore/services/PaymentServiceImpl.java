@@ -1,27 +1,71 @@
 package com.interswitch.bookstore.services;
 
+import com.interswitch.bookstore.configs.PaymentProperties;
 import com.interswitch.bookstore.domains.Purchase;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.exceptions.PaymentDeclinedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
 @Service
 public class PaymentServiceImpl implements PaymentService{
+    private final PaymentProperties properties;
+    private final Map<PaymentMethod, PaymentGateway> gateways = new EnumMap<>(PaymentMethod.class);
+
+    public PaymentServiceImpl(PaymentProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (var method : PaymentMethod.values()) {
+            gateways.put(method, new PaymentGateway(method, properties.gateway(method), meterRegistry));
+        }
+    }
 
     /**
-     * Processes a payment for a given purchase by delegating to the simulation method.
+     * Processes a payment for a given purchase by delegating to the simulation method on the gateway of
+     * the purchase's payment method.
      *
      * @param purchase The purchase object containing payment details to be processed
+     * @return CompletableFuture completed once the payment is taken
      */
     @Override
-    public void processPayment(Purchase purchase) {
-        simulatePayment(purchase);
+    public CompletableFuture<Void> processPayment(Purchase purchase) {
+        return gateways.get(purchase.getPaymentMethod()).call(() -> simulatePayment(purchase));
     }
 
     /**
-     * Simulates payment processing for a purchase.
+     * Simulates payment processing for a purchase. The call takes the latency configured for the payment
+     * method, a fixed part plus an exponentially distributed tail, and fails or is declined at the configured
+     * rates, so checkout can be benchmarked against slow or unreliable gateways.
      *
      * @param purchase The purchase to process payment for
+     * @throws PaymentDeclinedException if the payment is declined
+     * @throws IllegalStateException if the simulated gateway fails
      */
     public void simulatePayment(Purchase purchase) {
+        var gateway = properties.gateway(purchase.getPaymentMethod());
+        var random = ThreadLocalRandom.current();
+        var latency = gateway.getSimulatedLatency().toMillis()
+                - (long) (gateway.getSimulatedLatencyJitter().toMillis() * Math.log(1 - random.nextDouble()));
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while processing payment", ex);
+            }
+        }
+        if (random.nextDouble() < gateway.getSimulatedFailureRate()) {
+            throw new IllegalStateException(purchase.getPaymentMethod() + " payment gateway error");
+        }
+        if (random.nextDouble() < gateway.getSimulatedDeclineRate()) {
+            throw new PaymentDeclinedException("Payment declined for purchase: " + purchase.getId());
+        }
+
         // Simulate payment processing based on payment method
         switch (purchase.getPaymentMethod()) {
             case WEB:
@@ -35,5 +79,11 @@ public class PaymentServiceImpl implements PaymentService{
                 break;
         }
     }
-}
 
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (var gateway : gateways.values()) {
+            gateway.shutdown();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.ArchiveProperties;
+import com.interswitch.bookstore.projections.ArchivedPurchase;
+import com.interswitch.bookstore.repositories.PurchaseRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier of the purchase tables: append-only {@link ArchiveSegment} files holding purchases moved out of
+ * the database by the {@link PurchaseArchiver}. Segments are never changed once written, so reads need no
+ * locking.
+ * <p>
+ * A segment is first written under a pending name, the purchases are then deleted from the database, and only
+ * then is the segment renamed into place. A pending segment found at startup is kept if its purchases are gone
+ * from the database and dropped otherwise, so a purchase is never lost. Readers may still see a purchase in
+ * neither tier between the delete committing and the rename, and in both tiers when they read the database
+ * from a lagging replica; the purchase history drops the database copy of an archived purchase. Nothing is
+ * opened while the archive is disabled.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class PurchaseArchive {
+    private static final String SEGMENT_PREFIX = "purchases-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String PENDING_SUFFIX = ".pending";
+
+    private final ArchiveProperties properties;
+    private final PurchaseRepository purchaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();
+    private long generation;
+
+    @PostConstruct
+    public void open() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        var directory = properties.getDirectory();
+        if (directory == null) {
+            throw new IllegalStateException("bookstore.archive.directory must be set when the purchase archive is enabled");
+        }
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (var file : files.sorted().toList()) {
+                var name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX + PENDING_SUFFIX)) {
+                    recover(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(ArchiveSegment.open(file));
+                    generation = Math.max(generation, generationOf(file));
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Purchase archive cannot be opened", ex);
+        }
+        if (!segments.isEmpty()) {
+            log.info("Purchase archive opened with {} segments", segments.size());
+        }
+    }
+
+    /**
+     * Reads the archived purchases of a user from every segment.
+     *
+     * @param userId The ID of the user
+     * @return List of the user's archived purchases with their items, in no particular order
+     */
+    public List<ArchivedPurchase> find(Long userId) {
+        var found = new ArrayList<ArchivedPurchase>();
+        segments.forEach(segment -> found.addAll(segment.find(userId)));
+        return found;
+    }
+
+    /**
+     * Archives purchases in a new segment. The segment only becomes visible once {@code delete} has removed
+     * the purchases from the database; if it fails, the segment is discarded.
+     *
+     * @param purchases The purchases with their items
+     * @param delete    Deletes the purchases from the database in one transaction
+     */
+    public synchronized void append(List<ArchivedPurchase> purchases, Runnable delete) {
+        try {
+            Files.createDirectories(properties.getDirectory());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Purchase archive directory cannot be created", ex);
+        }
+        var segment = segment(generation + 1);
+        var pending = pending(segment);
+        ArchiveSegment.write(pending, purchases, properties.getBlockSize());
+        try {
+            delete.run();
+        } catch (RuntimeException ex) {
+            deleteFile(pending);
+            throw ex;
+        }
+        promote(pending, segment);
+    }
+
+    // Keeps a pending segment whose purchases were deleted from the database, drops one whose were not
+    private void recover(Path pending) {
+        var segment = ArchiveSegment.open(pending);
+        var purchases = segment.findAll();
+        // Read in a read-write transaction, so the check is made on the primary and not on a lagging replica
+        if (!purchases.isEmpty() && Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                purchaseRepository.existsById(purchases.get(0).purchase().id())))) {
+            deleteFile(pending);
+            log.warn("Purchase archive segment {} was not committed and is discarded", pending.getFileName());
+            return;
+        }
+        var name = pending.getFileName().toString();
+        var target = pending.resolveSibling(name.substring(0, name.length() - PENDING_SUFFIX.length()));
+        generation = Math.max(generation, generationOf(target));
+        promote(pending, target);
+    }
+
+    private void promote(Path pending, Path segment) {
+        try {
+            Files.move(pending, segment, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Purchase archive segment cannot be renamed: " + pending, ex);
+        }
+        segments.add(ArchiveSegment.open(segment));
+        segments.sort(Comparator.comparing(ArchiveSegment::path));
+        generation = Math.max(generation, generationOf(segment));
+    }
+
+    private Path segment(long generation) {
+        // Zero padded, so segments sort by generation
+        return properties.getDirectory().resolve(String.format("%s%019d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+    }
+
+    private static Path pending(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + PENDING_SUFFIX);
+    }
+
+    private static long generationOf(Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Purchase archive file {} cannot be deleted: {}", file, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.ArchiveProperties;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.projections.ArchivedPurchase;
+import com.interswitch.bookstore.projections.ArchivedPurchaseItem;
+import com.interswitch.bookstore.repositories.PurchaseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moves settled purchases older than the configured age from the purchase tables into the
+ * {@link PurchaseArchive}, one segment per batch, so the tables checkout writes to stop growing with the
+ * history. Pending purchases are left alone until the payment relay has settled them.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "bookstore.archive", name = "enabled", havingValue = "true")
+@Service
+public class PurchaseArchiver {
+    private static final EnumSet<PurchaseStatus> SETTLED = EnumSet.of(PurchaseStatus.PAID, PurchaseStatus.FAILED);
+
+    private final PurchaseRepository purchaseRepository;
+    private final PurchaseArchive purchaseArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final ArchiveProperties properties;
+
+    /**
+     * Archives every purchase that is due, a segment at a time.
+     *
+     * @return int containing the number of purchases archived
+     */
+    @Scheduled(fixedDelayString = "${bookstore.archive.interval:1h}")
+    public int archive() {
+        var before = LocalDateTime.now().minus(properties.getAge());
+        var archived = 0;
+        while (true) {
+            var ids = purchaseRepository.findArchivableIds(SETTLED, before, PageRequest.of(0, properties.getSegmentSize()));
+            if (ids.isEmpty()) {
+                break;
+            }
+            var items = purchaseRepository.findArchivedItems(ids).stream()
+                    .collect(Collectors.groupingBy(ArchivedPurchaseItem::purchaseId));
+            var purchases = purchaseRepository.findViewsByIdIn(ids).stream()
+                    .map(purchase -> new ArchivedPurchase(purchase, items.getOrDefault(purchase.id(), List.of())))
+                    .toList();
+            purchaseArchive.append(purchases, () -> transactionTemplate.executeWithoutResult(status -> {
+                purchaseRepository.deleteItemsByPurchaseIdIn(ids);
+                purchaseRepository.deleteByIdIn(ids);
+            }));
+            archived += ids.size();
+        }
+        if (archived > 0) {
+            log.info("Purchases archived: {}", archived);
+        }
+        return archived;
+    }
+}
@@ -0,0 +1,114 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Purchase;
+import com.interswitch.bookstore.domains.PurchaseHistory;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.mappers.PurchaseMapper;
+import com.interswitch.bookstore.projections.PurchaseHistoryLine;
+import com.interswitch.bookstore.repositories.PurchaseHistoryRepository;
+import com.interswitch.bookstore.repositories.PurchaseRepository;
+import com.interswitch.bookstore.requests.KeysetCursor;
+import com.interswitch.bookstore.responses.CursorPage;
+import com.interswitch.bookstore.responses.PurchaseHistoryDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Keeps the purchase history read model. A {@link PurchaseHistory} entry is written in the checkout
+ * transaction from the books already loaded for it, and only its status changes afterwards.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class PurchaseHistoryService {
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private final PurchaseHistoryRepository purchaseHistoryRepository;
+    private final PurchaseRepository purchaseRepository;
+    private final PurchaseMapper purchaseMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadYourWrites readYourWrites;
+
+    /**
+     * Writes the history entry of a purchase as part of the current transaction.
+     *
+     * @param purchase The saved purchase, with its items and their books loaded
+     */
+    public void record(Purchase purchase) {
+        var entry = new PurchaseHistory();
+        entry.setPurchaseId(purchase.getId());
+        entry.setUserId(purchase.getUserId());
+        entry.setPurchaseDate(purchase.getPurchaseDate());
+        entry.setPaymentMethod(purchase.getPaymentMethod());
+        entry.setStatus(purchase.getStatus());
+        var total = BigDecimal.ZERO;
+        for (var item : purchase.getItems()) {
+            var book = item.getBook();
+            entry.getLines().add(new PurchaseHistoryLine(book.getId(), book.getTitle(), book.getAuthor(),
+                    book.getIsbn(), book.getPrice(), item.getQuantity()));
+            total = total.add(book.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        entry.setTotal(total);
+        purchaseHistoryRepository.save(entry);
+    }
+
+    /**
+     * Retrieves the purchase history of a user, newest first, using keyset pagination on the purchase date.
+     * Read from the replica unless the user has just checked out.
+     *
+     * @param userId The ID of the user whose purchase history is being retrieved
+     * @param from   The first day of purchases to include (can be null for no lower bound)
+     * @param to     The last day of purchases to include (can be null for no upper bound)
+     * @param cursor The continuation token returned with the previous slice (can be null for the first slice)
+     * @param size   The number of purchases per slice
+     * @return CursorPage<PurchaseHistoryDTO> containing a slice of purchase history records
+     * @throws BadRequestException if the cursor is malformed or the range ends before it starts
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PurchaseHistoryDTO> getHistory(Long userId, LocalDate from, LocalDate to, String cursor, int size) {
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new BadRequestException("The end of the date range must not be before its start.");
+        }
+        readYourWrites.reading(userId);
+        var position = KeysetCursor.decode(cursor);
+        var entries = purchaseHistoryRepository.findHistory(userId,
+                from == null ? EARLIEST : from.atStartOfDay(),
+                to == null ? LATEST : to.plusDays(1).atStartOfDay(),
+                position == null ? null : position.createdAt(),
+                position == null ? null : position.id(),
+                PageRequest.of(0, size + 1));
+        return CursorPage.of(entries, size, entry -> new KeysetCursor(entry.getPurchaseDate(), entry.getPurchaseId()).encode())
+                .map(purchaseMapper::toDTO);
+    }
+
+    // Records the purchases placed before the history was kept. Purchase items do not keep the price they were
+    // sold at, so these entries take the titles and prices of the books as they are now
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        var recorded = 0;
+        while (true) {
+            var purchaseIds = purchaseHistoryRepository.findUnrecordedPurchaseIds(PageRequest.of(0, BACKFILL_BATCH_SIZE));
+            if (purchaseIds.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status -> purchaseIds.forEach(purchaseId ->
+                    purchaseRepository.findWithItemsById(purchaseId).ifPresent(this::record)));
+            recorded += purchaseIds.size();
+        }
+        if (recorded > 0) {
+            log.info("Purchase history backfilled with {} purchases at current book prices", recorded);
+        }
+    }
+}
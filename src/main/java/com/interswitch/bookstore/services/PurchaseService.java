@@ -1,76 +1,195 @@
 package com.interswitch.bookstore.services;
 
+import com.interswitch.bookstore.configs.CheckoutProperties;
 import com.interswitch.bookstore.domains.*;
+import com.interswitch.bookstore.enums.PurchaseStatus;
 import com.interswitch.bookstore.exceptions.BadRequestException;
 import com.interswitch.bookstore.exceptions.NotFoundException;
 import com.interswitch.bookstore.mappers.PurchaseMapper;
+import com.interswitch.bookstore.projections.ArchivedPurchase;
+import com.interswitch.bookstore.projections.ArchivedPurchaseItem;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.projections.PurchaseItemView;
+import com.interswitch.bookstore.projections.PurchaseView;
 import com.interswitch.bookstore.repositories.BookRepository;
 import com.interswitch.bookstore.repositories.CartRepository;
+import com.interswitch.bookstore.repositories.PaymentOutboxRepository;
 import com.interswitch.bookstore.repositories.PurchaseRepository;
+import com.interswitch.bookstore.requests.KeysetCursor;
 import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.responses.CursorPage;
 import com.interswitch.bookstore.responses.PurchaseDTO;
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.RequestBody;
 
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Slf4j
 @RequiredArgsConstructor
 @Service
 public class PurchaseService {
+    private static final Map<String, Comparator<PurchaseView>> SORTABLE = Map.of(
+            "id", Comparator.comparing(PurchaseView::id),
+            "userId", Comparator.comparing(PurchaseView::userId),
+            "purchaseDate", Comparator.comparing(PurchaseView::purchaseDate, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "paymentMethod", Comparator.comparing(purchase -> nameOf(purchase.paymentMethod()),
+                    Comparator.nullsFirst(Comparator.naturalOrder())),
+            "status", Comparator.comparing(purchase -> nameOf(purchase.status()),
+                    Comparator.nullsFirst(Comparator.naturalOrder())),
+            "createdAt", Comparator.comparing(PurchaseView::createdAt, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "updatedAt", Comparator.comparing(PurchaseView::updatedAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+
     private final PurchaseRepository purchaseRepository;
     private final CartRepository cartRepository;
     private final PurchaseMapper purchaseMapper;
     private final BookRepository bookRepository;
-    private final PaymentService paymentService;
+    private final PaymentOutboxRepository paymentOutboxRepository;
+    private final PurchaseHistoryService purchaseHistoryService;
+    private final PurchaseArchive purchaseArchive;
+    private final SalesAnalytics salesAnalytics;
     private final CartService cartService;
+    private final CartReservationService cartReservationService;
+    private final BookCacheInvalidator bookCacheInvalidator;
+    private final InventoryService inventoryService;
+    private final IdempotencyService idempotencyService;
+    private final ReadYourWrites readYourWrites;
+    private final TransactionTemplate transactionTemplate;
+    private final CheckoutProperties checkoutProperties;
+    private CheckoutBatcher checkoutBatcher;
+
+    @PostConstruct
+    public void startCheckoutBatcher() {
+        if (checkoutProperties.isBatchEnabled()) {
+            checkoutBatcher = new CheckoutBatcher(checkoutProperties, this::placeOrders, this::checkout);
+        }
+    }
+
+    @PreDestroy
+    public void stopCheckoutBatcher() throws InterruptedException {
+        if (checkoutBatcher != null) {
+            checkoutBatcher.shutdown();
+        }
+    }
 
     /**
-     * Processes a checkout operation for a user's shopping cart.
+     * Processes a checkout operation for a user's shopping cart. The books are taken out of stock and the
+     * purchase is recorded as PENDING together with a payment outbox entry in one short transaction; the
+     * payment itself is taken afterwards by the {@link PaymentRelay}. A checkout failing on a transient database
+     * error, such as a lock timeout while other checkouts update the same books, is retried in a new
+     * transaction up to the configured number of attempts.
      *
      * @param request the {@link PurchaseCheckoutDTO} containing the user ID and payment method
      *                for the checkout process
-     * @return a {@link PurchaseDTO} representing the completed purchase
+     * @return a {@link PurchaseDTO} representing the pending purchase
      * @throws NotFoundException if no cart is found for the specified user ID
      * @throws BadRequestException if the cart is empty or if there is insufficient stock
      *                             for any book in the cart
+     * @throws TransientDataAccessException if the checkout still fails after the last attempt
      */
-    @Transactional
     public PurchaseDTO checkout(@RequestBody PurchaseCheckoutDTO request) {
-        var cart = cartRepository.findByUserId(request.getUserId())
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> placeOrder(request));
+            } catch (TransientDataAccessException ex) {
+                if (attempt >= checkoutProperties.getMaxAttempts()) {
+                    throw ex;
+                }
+                log.warn("Checkout for user {} failed on attempt {}, retrying: {}",
+                        request.getUserId(), attempt, ex.getMessage());
+                backOff(attempt, ex);
+            }
+        }
+    }
+
+    /**
+     * Processes a checkout operation at most once per idempotency key. A request repeating the key of an
+     * earlier one gets that request's purchase back without touching inventory or the database.
+     * With batching enabled, concurrent checkouts are committed together in one transaction.
+     *
+     * @param request        the {@link PurchaseCheckoutDTO} containing the user ID and payment method
+     *                       for the checkout process
+     * @param idempotencyKey the key identifying retries of the same checkout (can be null to always check out)
+     * @return a {@link PurchaseDTO} representing the pending purchase
+     * @throws NotFoundException if no cart is found for the specified user ID
+     * @throws BadRequestException if the cart is empty, if there is insufficient stock for any book in the cart,
+     *                             or if the key was already used with a different request
+     * @throws com.interswitch.bookstore.exceptions.ConflictException if the checkout first run with the key
+     *                                                                is still in progress
+     */
+    public PurchaseDTO checkout(PurchaseCheckoutDTO request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return submit(request);
+        }
+        return idempotencyService.execute(idempotencyKey, request, () -> submit(request));
+    }
+
+    private PurchaseDTO submit(PurchaseCheckoutDTO request) {
+        return checkoutBatcher == null ? checkout(request) : checkoutBatcher.submit(request);
+    }
+
+    // Places all checkouts in one transaction, so they share a single commit; any failure rolls back all of them
+    private List<PurchaseDTO> placeOrders(List<PurchaseCheckoutDTO> requests) {
+        return transactionTemplate.execute(status -> requests.stream().map(this::placeOrder).toList());
+    }
+
+    private PurchaseDTO placeOrder(PurchaseCheckoutDTO request) {
+        var cart = cartRepository.findForCheckoutByUserId(request.getUserId())
                 .orElseThrow(() -> new NotFoundException("Cart not found for user: " + request.getUserId()));
 
         if (cart.getItems().isEmpty()) {
             throw new BadRequestException("Cannot checkout empty cart.");
         }
 
-        // Update inventory
-        for (var item : cart.getItems()) {
-            var book = bookRepository.findById(item.getBook().getId())
+        // Take the books out of stock atomically, so concurrent checkouts can neither oversell a book nor lose
+        // a decrement. A rejected book rolls back the whole checkout. Copies reserved when they were added to
+        // the cart are already out of stock and are taken over without touching their book rows.
+        var quantities = new TreeMap<Long, Integer>();
+        cart.getItems().forEach(item -> quantities.merge(item.getBook().getId(), item.getQuantity(), Integer::sum));
+        var shortfall = new TreeMap<Long, Integer>(quantities);
+        cartReservationService.claim(cart.getId()).forEach((bookId, reserved) ->
+                shortfall.computeIfPresent(bookId, (id, quantity) -> quantity > reserved ? quantity - reserved : null));
+        var rejected = shortfall.isEmpty() ? List.<Long>of() : inventoryService.reserve(shortfall);
+        if (!rejected.isEmpty()) {
+            var book = bookRepository.findViewById(rejected.get(0))
                     .orElseThrow(() -> new IllegalStateException("Book not found."));
-
-            if (book.getQuantityInStock() < item.getQuantity()) {
-                throw new BadRequestException("Insufficient stock for book: " + book.getTitle());
-            }
-            book.setQuantityInStock(book.getQuantityInStock() - item.getQuantity());
-            bookRepository.save(book);
+            throw new BadRequestException("Insufficient stock for book: " + book.title());
         }
+        // The purchase items refer to the books read after the decrement, loaded in one query instead of one
+        // lazy load per item when the purchase is mapped
+        var books = bookRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        bookCacheInvalidator.evict(List.copyOf(quantities.keySet()));
 
         // Create purchase record
         var purchase = new Purchase();
         purchase.setUserId(request.getUserId());
         purchase.setPaymentMethod(request.getPaymentMethod());
         purchase.setPurchaseDate(LocalDateTime.now());
+        purchase.setStatus(PurchaseStatus.PENDING);
 
         // Map cart items to purchase items
         var purchaseItems = cart.getItems().stream()
                 .map(cartItem -> {
                     var purchaseItem = new PurchaseItem();
-                    purchaseItem.setBook(cartItem.getBook());
+                    purchaseItem.setPurchase(purchase);
+                    purchaseItem.setBook(books.get(cartItem.getBook().getId()));
                     purchaseItem.setQuantity(cartItem.getQuantity());
                     return purchaseItem;
                 })
@@ -78,25 +197,154 @@ public class PurchaseService {
 
         purchase.setItems(purchaseItems);
 
-        // Process payment
-        paymentService.processPayment(purchase);
-
-        // Save purchase and clear cart
+        // Save purchase and its history entry, queue its payment and clear cart
         var savedPurchase = purchaseRepository.save(purchase);
-        cartService.clearCart(request.getUserId());
+        salesAnalytics.record(savedPurchase);
+        purchaseHistoryService.record(savedPurchase);
+        paymentOutboxRepository.save(new PaymentOutbox(savedPurchase.getId(), LocalDateTime.now()));
+        cartService.clearCart(cart);
+        readYourWrites.wrote(request.getUserId());
 
         return purchaseMapper.toDTO(savedPurchase);
     }
 
     /**
-     * Retrieves the purchase history for a specific user with pagination support.
+     * Retrieves the purchase history for a specific user with pagination support. Purchases moved to the
+     * {@link PurchaseArchive} are merged in with the ones still in the database. Read from the replica unless
+     * the user has just checked out.
      *
      * @param userId The ID of the user whose purchase history is being retrieved
      * @param pageable Pagination information including page number, size, and sorting
      * @return Page<PurchaseDTO> containing a page of purchase history records
      */
+    @Transactional(readOnly = true)
     public Page<PurchaseDTO> getPurchaseHistory(Long userId, Pageable pageable) {
-        var purchases = purchaseRepository.purchaseHistory(userId, pageable);
-        return purchases.map(purchaseMapper::toDTO);
+        readYourWrites.reading(userId);
+        var archived = archivedPurchases(userId);
+        if (archived.isEmpty()) {
+            var purchases = purchaseRepository.purchaseHistory(userId, pageable);
+            var items = itemsOf(purchases.getContent());
+            return purchases.map(purchase -> purchaseMapper.toDTO(withItems(purchase, items)));
+        }
+        // The page is cut from both tiers merged, so every hot row up to the end of the page takes part
+        var end = (int) pageable.getOffset() + pageable.getPageSize();
+        var hot = purchaseRepository.purchaseHistory(userId, PageRequest.of(0, end, pageable.getSort()));
+        // A lagging replica may still hold purchases already archived, they are counted and shown once
+        var duplicates = purchaseRepository.countByIdIn(archived.keySet());
+        var page = Stream.concat(hot.getContent().stream().filter(purchase -> !archived.containsKey(purchase.id())),
+                        archived.values().stream().map(ArchivedPurchase::purchase))
+                .sorted(orderOf(pageable.getSort()))
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .toList();
+        var items = itemsOf(page, archived);
+        return new PageImpl<>(page.stream().map(purchase -> purchaseMapper.toDTO(withItems(purchase, items))).toList(),
+                pageable, hot.getTotalElements() - duplicates + archived.size());
+    }
+
+    /**
+     * Retrieves the purchase history for a specific user using keyset pagination ordered by creation time.
+     * Each slice seeks directly past the previous one and no total count is computed.
+     * Archived purchases are merged in with the ones still in the database. Read from the replica unless the
+     * user has just checked out.
+     *
+     * @param userId    The ID of the user whose purchase history is being retrieved
+     * @param cursor    The continuation token returned with the previous slice (can be null for the first slice)
+     * @param size      The number of purchases per slice
+     * @param direction The direction of the creation time ordering
+     * @return CursorPage<PurchaseDTO> containing a slice of purchase history records
+     * @throws BadRequestException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PurchaseDTO> scrollPurchaseHistory(Long userId, String cursor, int size, Sort.Direction direction) {
+        readYourWrites.reading(userId);
+        var position = KeysetCursor.decode(cursor);
+        var createdAt = position == null ? null : position.createdAt();
+        var id = position == null ? null : position.id();
+        var limit = PageRequest.of(0, size + 1);
+        var purchases = direction.isDescending()
+                ? purchaseRepository.purchaseHistoryBefore(userId, createdAt, id, limit)
+                : purchaseRepository.purchaseHistoryAfter(userId, createdAt, id, limit);
+        var archived = archivedPurchases(userId);
+        if (!archived.isEmpty()) {
+            var order = orderOf(Sort.by(direction, "createdAt", "id"));
+            var last = position == null ? null : new PurchaseView(id, userId, null, null, null, createdAt, null);
+            purchases = Stream.concat(purchases.stream().filter(purchase -> !archived.containsKey(purchase.id())),
+                            archived.values().stream().map(ArchivedPurchase::purchase)
+                                    .filter(purchase -> last == null || order.compare(purchase, last) > 0))
+                    .sorted(order)
+                    .limit(size + 1)
+                    .toList();
+        }
+        var page = CursorPage.of(purchases, size, purchase -> new KeysetCursor(purchase.createdAt(), purchase.id()).encode());
+        var items = itemsOf(page.content(), archived);
+        return page.map(purchase -> purchaseMapper.toDTO(withItems(purchase, items)));
+    }
+
+    private void backOff(int attempt, TransientDataAccessException cause) {
+        var delay = checkoutProperties.getRetryBackoff().toMillis() * attempt;
+        try {
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    // Loads the items of a page of purchases with one query instead of one per purchase
+    private Map<Long, List<PurchaseItemView>> itemsOf(List<PurchaseView> purchases) {
+        if (purchases.isEmpty()) {
+            return Map.of();
+        }
+        var ids = purchases.stream().map(PurchaseView::id).toList();
+        return purchaseRepository.findItemViews(ids).stream()
+                .collect(Collectors.groupingBy(PurchaseItemView::purchaseId));
+    }
+
+    private Map<Long, ArchivedPurchase> archivedPurchases(Long userId) {
+        return purchaseArchive.find(userId).stream()
+                .collect(Collectors.toMap(archived -> archived.purchase().id(), Function.identity()));
+    }
+
+    // Loads the items of hot purchases from the database and joins those of archived purchases with their books
+    private Map<Long, List<PurchaseItemView>> itemsOf(List<PurchaseView> purchases, Map<Long, ArchivedPurchase> archived) {
+        var items = new HashMap<>(itemsOf(purchases.stream().filter(purchase -> !archived.containsKey(purchase.id())).toList()));
+        var archivedItems = purchases.stream()
+                .map(purchase -> archived.get(purchase.id()))
+                .filter(Objects::nonNull)
+                .flatMap(purchase -> purchase.items().stream())
+                .toList();
+        if (archivedItems.isEmpty()) {
+            return items;
+        }
+        var books = bookRepository.findViewsByIdIn(archivedItems.stream().map(ArchivedPurchaseItem::bookId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(BookView::id, Function.identity()));
+        archivedItems.forEach(item -> items.computeIfAbsent(item.purchaseId(), purchaseId -> new ArrayList<>())
+                .add(new PurchaseItemView(item.purchaseId(), item.quantity(), item.createdAt(), item.updatedAt(),
+                        // A book deleted since the purchase was archived is only known by its ID
+                        books.getOrDefault(item.bookId(), new BookView(item.bookId(), null, null, null, null, 0, null, 0,
+                                null, null)))));
+        return items;
+    }
+
+    // Orders purchases in memory the way the database orders them: enums by name and nulls first when ascending
+    private static Comparator<PurchaseView> orderOf(Sort sort) {
+        Comparator<PurchaseView> order = (a, b) -> 0;
+        for (var property : sort) {
+            var comparator = SORTABLE.get(property.getProperty());
+            if (comparator == null) {
+                throw new BadRequestException("Cannot sort purchase history by: " + property.getProperty());
+            }
+            order = order.thenComparing(property.isDescending() ? comparator.reversed() : comparator);
+        }
+        return order.thenComparing(PurchaseView::id);
+    }
+
+    private static PurchaseView withItems(PurchaseView purchase, Map<Long, List<PurchaseItemView>> items) {
+        return purchase.withItems(items.getOrDefault(purchase.id(), List.of()));
+    }
+
+    private static String nameOf(Enum<?> value) {
+        return value == null ? null : value.name();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.interswitch.bookstore.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.interswitch.bookstore.configs.ReplicaProperties;
+import com.interswitch.bookstore.configs.ReplicaRoutingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Lag tolerance of the replica reads: a user who has just written, by adding to their cart or checking out,
+ * reads from the primary until the configured window has passed, so they never see the state before their own
+ * write. Everyone else reads from the replica and may see writes a little late.
+ */
+@Component
+public class ReadYourWrites {
+    private final boolean enabled;
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReadYourWrites(ReplicaProperties properties) {
+        enabled = properties.isEnabled() && !properties.getReadYourWritesWindow().isZero();
+        recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getReadYourWritesWindow())
+                .maximumSize(properties.getReadYourWritesMaximumSize())
+                .build();
+    }
+
+    /**
+     * Records a write of a user. Inside a transaction the window starts once it commits.
+     *
+     * @param userId The ID of the user who wrote
+     */
+    public void wrote(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recentWriters.put(userId, Boolean.TRUE);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(userId, Boolean.TRUE);
+            }
+        });
+    }
+
+    /**
+     * Sends the current read-only transaction to the primary if the user has written within the window. Must be
+     * called before the transaction runs its first statement.
+     *
+     * @param userId The ID of the user whose data is read
+     */
+    public void reading(Long userId) {
+        if (enabled && recentWriters.getIfPresent(userId) != null) {
+            ReplicaRoutingDataSource.pinToPrimary();
+        }
+    }
+}
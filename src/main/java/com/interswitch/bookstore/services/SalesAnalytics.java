@@ -0,0 +1,455 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.AnalyticsProperties;
+import com.interswitch.bookstore.domains.Purchase;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.enums.SalesWindow;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.projections.BookSale;
+import com.interswitch.bookstore.repositories.PurchaseRepository;
+import com.interswitch.bookstore.responses.BookSalesDTO;
+import com.interswitch.bookstore.responses.GenreSalesDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Sales counters maintained as purchases are checked out, so top seller queries are answered from memory
+ * instead of aggregating the purchase items. Every sale is added to the current hourly, daily and weekly
+ * period of its purchase date, each a map of {@link LongAdder} counters per genre and book, so concurrent
+ * checkouts never contend on a lock. Periods older than the configured retention are dropped.
+ * <p>
+ * Sales are added once the checkout commits, and taken back when the payment relay cancels a purchase. When
+ * a checkpoint directory is configured, the counters are checkpointed to disk every interval and on shutdown
+ * together with the purchases they include: every purchase up to a watermark ID, below which no checkout was
+ * still uncommitted, plus those after it that committed earlier. The purchases they take back as cancelled
+ * are kept too. At startup the checkpoint is loaded, only the purchases it does not include are replayed from
+ * the database, and the included ones cancelled since are taken back, so no sale is counted twice or lost.
+ */
+@Slf4j
+@Service
+public class SalesAnalytics {
+    private static final String CHECKPOINT = "sales.checkpoint";
+    private static final String CHECKPOINT_HEADER = "checkpoint";
+    private static final String COUNTED = "counted";
+    private static final String CANCELLED = "cancelled";
+    private static final int MAXIMUM_LIMIT = 100;
+
+    private final PurchaseRepository purchaseRepository;
+    private final AnalyticsProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<SalesWindow, ConcurrentSkipListMap<Long, Period>> periods = new EnumMap<>(SalesWindow.class);
+    // Genre each counted book was sold under, to find its counters again when a sale is taken back
+    private final Map<Long, Genre> genres = new ConcurrentHashMap<>();
+    // Held shared while counting and exclusively while checkpointing, so the counters and the purchases they
+    // include are written consistently
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Purchases recorded by a checkout transaction that has not completed yet
+    private final NavigableSet<Long> uncommitted = new ConcurrentSkipListSet<>();
+    // Every committed purchase up to the watermark is counted, and those after it in counted
+    private long watermark;
+    private final NavigableSet<Long> counted = new ConcurrentSkipListSet<>();
+    // Purchase date of each cancelled purchase whose sales were taken back
+    private final Map<Long, LocalDateTime> cancelled = new ConcurrentHashMap<>();
+
+    public SalesAnalytics(PurchaseRepository purchaseRepository, AnalyticsProperties properties,
+                          TransactionTemplate transactionTemplate) {
+        this.purchaseRepository = purchaseRepository;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        for (var window : SalesWindow.values()) {
+            periods.put(window, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /**
+     * Counts the books sold by a purchase once the current transaction commits. Must be called as soon as the
+     * purchase is saved, so no checkpoint can pass its ID before it is known to be uncommitted.
+     *
+     * @param purchase The saved purchase, with its items and their books loaded
+     */
+    public void record(Purchase purchase) {
+        var purchaseId = purchase.getId();
+        var sales = purchase.getItems().stream()
+                .map(item -> new BookSale(purchaseId, purchase.getPurchaseDate(), item.getBook().getId(),
+                        item.getBook().getGenre(), item.getQuantity()))
+                .toList();
+        if (purchaseId != null) {
+            uncommitted.add(purchaseId);
+        }
+        afterCompletion(committed -> {
+            lock.readLock().lock();
+            try {
+                if (committed) {
+                    sales.forEach(sale -> add(sale, 1));
+                    if (purchaseId != null && purchaseId > watermark) {
+                        counted.add(purchaseId);
+                    }
+                }
+                if (purchaseId != null) {
+                    uncommitted.remove(purchaseId);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Takes back the books counted for a cancelled purchase once the current transaction commits.
+     *
+     * @param purchaseId   The ID of the purchase
+     * @param purchaseDate When the purchase was made
+     * @param quantities   The quantity sold per book ID
+     */
+    public void cancel(Long purchaseId, LocalDateTime purchaseDate, Map<Long, Integer> quantities) {
+        var sales = quantities.entrySet().stream()
+                .map(sold -> new BookSale(purchaseId, purchaseDate, sold.getKey(), null, sold.getValue()))
+                .toList();
+        afterCompletion(committed -> {
+            if (committed) {
+                takeBack(sales);
+            }
+        });
+    }
+
+    /**
+     * Ranks the books by copies sold in a period.
+     *
+     * @param window The length of the period
+     * @param genre  The genre to rank the books of (can be null for all genres)
+     * @param ago    The number of periods before the current one (0 for the current one)
+     * @param limit  The maximum number of books to return
+     * @return List of the best selling books, most copies first
+     * @throws BadRequestException if the period is not retained or the limit is out of range
+     */
+    public List<BookSalesDTO> topSellers(SalesWindow window, Genre genre, int ago, int limit) {
+        validate(window, ago, limit);
+        var period = periods.get(window).get(periodOf(window, LocalDateTime.now()) - ago);
+        if (period == null) {
+            return List.of();
+        }
+        // Keeps the best books seen so far, the weakest at the head so it is the one dropped
+        var best = new PriorityQueue<>(Comparator.comparingLong(BookSalesDTO::getCopies)
+                .thenComparing(BookSalesDTO::getBookId, Comparator.reverseOrder()));
+        period.sales.forEach((bookGenre, books) -> {
+            if (genre == null || genre == bookGenre) {
+                books.forEach((bookId, copies) -> {
+                    var sold = copies.sum();
+                    if (sold > 0) {
+                        best.add(new BookSalesDTO(bookId, bookGenre, sold));
+                        if (best.size() > limit) {
+                            best.poll();
+                        }
+                    }
+                });
+            }
+        });
+        var ranked = new ArrayList<>(best);
+        ranked.sort(best.comparator().reversed());
+        return ranked;
+    }
+
+    /**
+     * Ranks the genres by copies sold in a period.
+     *
+     * @param window The length of the period
+     * @param ago    The number of periods before the current one (0 for the current one)
+     * @return List of the genres with sales, most copies first
+     * @throws BadRequestException if the period is not retained
+     */
+    public List<GenreSalesDTO> topGenres(SalesWindow window, int ago) {
+        validate(window, ago, 1);
+        var period = periods.get(window).get(periodOf(window, LocalDateTime.now()) - ago);
+        if (period == null) {
+            return List.of();
+        }
+        var ranked = new ArrayList<GenreSalesDTO>();
+        period.sales.forEach((genre, books) -> {
+            var sold = books.values().stream().mapToLong(LongAdder::sum).sum();
+            if (sold > 0) {
+                ranked.add(new GenreSalesDTO(genre, sold));
+            }
+        });
+        ranked.sort(Comparator.comparingLong(GenreSalesDTO::getCopies).reversed().thenComparing(GenreSalesDTO::getGenre));
+        return ranked;
+    }
+
+    // Loads the checkpoint and replays the purchases it does not include, before any checkout can be counted live
+    @PostConstruct
+    public void restore() {
+        var since = retainedSince(LocalDateTime.now());
+        var directory = properties.getCheckpointDir();
+        if (directory != null && Files.exists(directory.resolve(CHECKPOINT))) {
+            try {
+                load(directory.resolve(CHECKPOINT));
+            } catch (IOException | RuntimeException ex) {
+                // Rebuilt from the purchases instead
+                log.warn("Sales checkpoint cannot be restored, replaying the retained purchases: {}", ex.getMessage());
+                periods.values().forEach(Map::clear);
+                watermark = 0;
+                counted.clear();
+                cancelled.clear();
+            }
+        }
+        // Read on the primary, a lagging replica would miss the latest purchases
+        transactionTemplate.executeWithoutResult(status -> {
+            // Included in the checkpoint but cancelled since it was taken
+            var cancelledSince = new ArrayList<BookSale>();
+            for (var sale : purchaseRepository.findSalesByStatusSince(since, PurchaseStatus.FAILED)) {
+                if ((sale.purchaseId() <= watermark || counted.contains(sale.purchaseId()))
+                        && !cancelled.containsKey(sale.purchaseId())) {
+                    cancelledSince.add(sale);
+                }
+            }
+            takeBack(cancelledSince);
+            var included = Set.copyOf(counted);
+            var replayed = 0;
+            for (var sale : purchaseRepository.findSalesAfter(watermark, since, PurchaseStatus.FAILED)) {
+                if (!included.contains(sale.purchaseId())) {
+                    add(sale, 1);
+                    counted.add(sale.purchaseId());
+                    replayed++;
+                }
+            }
+            log.info("Sales analytics restored, {} sales replayed after purchase {} and {} taken back",
+                    replayed, watermark, cancelledSince.size());
+        });
+    }
+
+    /**
+     * Writes the counters and the purchases they include to the checkpoint file, replacing the previous
+     * checkpoint atomically, and drops the periods that are no longer retained. Does nothing without a
+     * checkpoint directory.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.analytics.checkpoint-interval:1m}",
+            initialDelayString = "${bookstore.analytics.checkpoint-interval:1m}")
+    @PreDestroy
+    public synchronized void checkpoint() {
+        var directory = properties.getCheckpointDir();
+        if (directory == null) {
+            evict(LocalDateTime.now());
+            return;
+        }
+        var temporary = directory.resolve(CHECKPOINT + ".tmp");
+        lock.writeLock().lock();
+        try {
+            var now = LocalDateTime.now();
+            evict(now);
+            advanceWatermark();
+            var since = retainedSince(now);
+            cancelled.values().removeIf(purchaseDate -> purchaseDate.isBefore(since));
+            Files.createDirectories(directory);
+            try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                writer.write(CHECKPOINT_HEADER + " " + watermark);
+                writer.newLine();
+                for (var purchaseId : counted) {
+                    writer.write(COUNTED + " " + purchaseId);
+                    writer.newLine();
+                }
+                for (var purchase : cancelled.entrySet()) {
+                    writer.write(CANCELLED + " " + purchase.getKey() + " " + purchase.getValue());
+                    writer.newLine();
+                }
+                for (var window : periods.entrySet()) {
+                    for (var period : window.getValue().entrySet()) {
+                        for (var genre : period.getValue().sales.entrySet()) {
+                            for (var book : genre.getValue().entrySet()) {
+                                writer.write(window.getKey() + " " + period.getKey() + " " + genre.getKey() + " " +
+                                        book.getKey() + " " + book.getValue().sum());
+                                writer.newLine();
+                            }
+                        }
+                    }
+                }
+            }
+            Files.move(temporary, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Sales checkpoint cannot be written", ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load(Path checkpoint) throws IOException {
+        var highest = 0L;
+        try (var lines = Files.lines(checkpoint, StandardCharsets.UTF_8)) {
+            var iterator = lines.iterator();
+            var header = iterator.next().split(" ");
+            if (header.length != 2 || !CHECKPOINT_HEADER.equals(header[0])) {
+                throw new IllegalStateException("checkpoint of an older version");
+            }
+            watermark = Long.parseLong(header[1]);
+            highest = watermark;
+            while (iterator.hasNext()) {
+                var fields = iterator.next().split(" ");
+                if (COUNTED.equals(fields[0])) {
+                    var purchaseId = Long.parseLong(fields[1]);
+                    counted.add(purchaseId);
+                    highest = Math.max(highest, purchaseId);
+                } else if (CANCELLED.equals(fields[0])) {
+                    var purchaseId = Long.parseLong(fields[1]);
+                    cancelled.put(purchaseId, LocalDateTime.parse(fields[2]));
+                    highest = Math.max(highest, purchaseId);
+                } else {
+                    var genre = Genre.valueOf(fields[2]);
+                    var bookId = Long.valueOf(fields[3]);
+                    genres.put(bookId, genre);
+                    counter(SalesWindow.valueOf(fields[0]), Long.parseLong(fields[1]), genre, bookId)
+                            .add(Long.parseLong(fields[4]));
+                }
+            }
+        }
+        // A checkpoint including purchases this database never had was taken from another one
+        var maxId = transactionTemplate.execute(status -> purchaseRepository.findMaxId());
+        if (maxId == null || highest > maxId) {
+            throw new IllegalStateException("checkpoint includes purchase " + highest + " but the database ends at " + maxId);
+        }
+    }
+
+    // Moves the watermark up to the purchase before the oldest uncommitted one, or to the last counted one
+    private void advanceWatermark() {
+        var next = uncommitted.isEmpty()
+                ? (counted.isEmpty() ? watermark : Math.max(watermark, counted.last()))
+                : Math.max(watermark, uncommitted.first() - 1);
+        watermark = next;
+        counted.headSet(next, true).clear();
+    }
+
+    private void takeBack(List<BookSale> sales) {
+        lock.readLock().lock();
+        try {
+            for (var sale : sales) {
+                add(new BookSale(sale.purchaseId(), sale.purchaseDate(), sale.bookId(),
+                        sale.genre() != null ? sale.genre() : genres.get(sale.bookId()), sale.quantity()), -1);
+                if (sale.purchaseId() != null) {
+                    cancelled.put(sale.purchaseId(), sale.purchaseDate());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(BookSale sale, int sign) {
+        if (sale.genre() == null || sale.purchaseDate() == null) {
+            return;
+        }
+        genres.put(sale.bookId(), sale.genre());
+        var now = LocalDateTime.now();
+        for (var window : SalesWindow.values()) {
+            // A sale taken back after its period was dropped must not bring the period back
+            var period = periodOf(window, sale.purchaseDate());
+            if (period > periodOf(window, now) - retained(window)) {
+                counter(window, period, sale.genre(), sale.bookId()).add((long) sign * sale.quantity());
+            }
+        }
+    }
+
+    private LongAdder counter(SalesWindow window, long period, Genre genre, Long bookId) {
+        return periods.get(window).computeIfAbsent(period, key -> new Period()).sales
+                .computeIfAbsent(genre, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(bookId, key -> new LongAdder());
+    }
+
+    private void evict(LocalDateTime now) {
+        for (var window : SalesWindow.values()) {
+            periods.get(window).headMap(periodOf(window, now) - retained(window) + 1).clear();
+        }
+    }
+
+    private void validate(SalesWindow window, int ago, int limit) {
+        if (ago < 0 || ago >= retained(window)) {
+            throw new BadRequestException("Only the last " + retained(window) + " " + adjective(window) +
+                    " periods are kept.");
+        }
+        if (limit < 1 || limit > MAXIMUM_LIMIT) {
+            throw new BadRequestException("Limit must be between 1 and " + MAXIMUM_LIMIT + ".");
+        }
+    }
+
+    private static String adjective(SalesWindow window) {
+        return switch (window) {
+            case HOUR -> "hourly";
+            case DAY -> "daily";
+            case WEEK -> "weekly";
+        };
+    }
+
+    private int retained(SalesWindow window) {
+        return switch (window) {
+            case HOUR -> properties.getRetainedHours();
+            case DAY -> properties.getRetainedDays();
+            case WEEK -> properties.getRetainedWeeks();
+        };
+    }
+
+    // Start of the oldest period still retained by any window
+    private LocalDateTime retainedSince(LocalDateTime now) {
+        return Arrays.stream(SalesWindow.values())
+                .map(window -> startOf(window, periodOf(window, now) - retained(window) + 1))
+                .min(Comparator.naturalOrder())
+                .orElse(now);
+    }
+
+    // Periods are numbered from the epoch in wall clock time; weeks start on Monday
+    private static long periodOf(SalesWindow window, LocalDateTime time) {
+        var seconds = time.toEpochSecond(ZoneOffset.UTC);
+        return switch (window) {
+            case HOUR -> Math.floorDiv(seconds, 3_600);
+            case DAY -> Math.floorDiv(seconds, 86_400);
+            case WEEK -> Math.floorDiv(Math.floorDiv(seconds, 86_400) + 3, 7);
+        };
+    }
+
+    private static LocalDateTime startOf(SalesWindow window, long period) {
+        var seconds = switch (window) {
+            case HOUR -> period * 3_600;
+            case DAY -> period * 86_400;
+            case WEEK -> (period * 7 - 3) * 86_400;
+        };
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+
+    private static final class Period {
+        private final Map<Genre, Map<Long, LongAdder>> sales = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,117 @@
+package com.interswitch.bookstore.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Timers are hashed into buckets by their deadline, so scheduling a timer and
+ * expiring it are constant time however many timers are pending. Level 0 has one bucket per tick; each
+ * higher level has buckets as wide as the whole level below it, and when the level below completes a turn
+ * the next bucket of the higher level is cascaded down into it. Deadlines beyond the span of the top level
+ * are parked in its last bucket and placed again when it is cascaded.
+ * <p>
+ * The wheel keeps no thread of its own: the owner calls {@link #advance(long)} with the current time, and
+ * gets back the timers that have expired since the previous call.
+ *
+ * @param <T> the type of the payload carried by a timer
+ */
+class TimingWheel<T> {
+    private final long tickNanos;
+    private final int wheelSize;
+    private final List<List<Timer<T>>>[] levels;
+    private final long origin;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tick      Resolution of the wheel; timers expire up to one tick late
+     * @param wheelSize Number of buckets per level
+     * @param levels    Number of levels; the wheel spans tick * wheelSize ^ levels
+     * @param now       Current time in nanoseconds, as later passed to {@link #advance(long)}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimingWheel(Duration tick, int wheelSize, int levels, long now) {
+        this.tickNanos = tick.toNanos();
+        this.wheelSize = wheelSize;
+        this.levels = new List[levels];
+        for (int level = 0; level < levels; level++) {
+            var buckets = new ArrayList<List<Timer<T>>>(wheelSize);
+            for (int bucket = 0; bucket < wheelSize; bucket++) {
+                buckets.add(new ArrayList<>());
+            }
+            this.levels[level] = buckets;
+        }
+        this.origin = now;
+    }
+
+    /**
+     * Schedules a timer. A deadline that has already passed expires with the next tick.
+     *
+     * @param deadline Time in nanoseconds at which the timer expires
+     * @param payload  The payload returned once the timer expires
+     */
+    synchronized void schedule(long deadline, T payload) {
+        // Rounded up, so a timer never expires before its deadline
+        var tick = Math.max(currentTick + 1, Math.floorDiv(deadline - origin + tickNanos - 1, tickNanos));
+        place(new Timer<>(tick, payload));
+        size++;
+    }
+
+    /**
+     * Moves the wheel forward to the given time.
+     *
+     * @param now Current time in nanoseconds
+     * @return List of the payloads of the timers that expired, in deadline order
+     */
+    synchronized List<T> advance(long now) {
+        var target = (now - origin) / tickNanos;
+        var expired = new ArrayList<T>();
+        while (currentTick < target) {
+            currentTick++;
+            cascade();
+            var bucket = levels[0].get((int) (currentTick % wheelSize));
+            bucket.forEach(timer -> expired.add(timer.payload()));
+            size -= bucket.size();
+            bucket.clear();
+        }
+        return expired;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // Brings down the buckets of the higher levels whose turn starts with the current tick
+    private void cascade() {
+        long span = 1;
+        for (int level = 1; level < levels.length; level++) {
+            span *= wheelSize;
+            if (currentTick % span != 0) {
+                return;
+            }
+            var bucket = levels[level].get((int) ((currentTick / span) % wheelSize));
+            var timers = new ArrayList<>(bucket);
+            bucket.clear();
+            timers.forEach(this::place);
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        var delay = timer.tick() - currentTick;
+        long span = 1;
+        for (int level = 0; level < levels.length; level++) {
+            if (delay < span * wheelSize) {
+                levels[level].get((int) ((timer.tick() / span) % wheelSize)).add(timer);
+                return;
+            }
+            span *= wheelSize;
+        }
+        // Beyond the span of the wheel: park it in the last bucket of the top level to be placed again later
+        span /= wheelSize;
+        levels[levels.length - 1].get((int) (((currentTick / span) + wheelSize - 1) % wheelSize)).add(timer);
+    }
+
+    private record Timer<T>(long tick, T payload) {
+    }
+}
@@ -0,0 +1,194 @@
+package com.interswitch.bookstore.benchmarks;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.domains.Purchase;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.mappers.BookMapper;
+import com.interswitch.bookstore.mappers.CartMapper;
+import com.interswitch.bookstore.mappers.PurchaseMapper;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.repositories.CartRepository;
+import com.interswitch.bookstore.requests.CartAddDTO;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.services.BookService;
+import com.interswitch.bookstore.services.CartService;
+import com.interswitch.bookstore.services.PurchaseService;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the GET read paths served from DTO projections with the previous approach of loading managed
+ * entities and mapping them. Reports the heap allocated and the latency per request.
+ * Run with {@code mvn test -Dbenchmarks=true -Dtest=ReadPathBenchmarkTest}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "bookstore.search.engine=jpa",
+        "bookstore.search.cache.enabled=false"
+})
+class ReadPathBenchmarkTest {
+    private static final int BOOKS = 2_000;
+    private static final int PURCHASES = 20;
+    private static final int ITEMS_PER_PURCHASE = 5;
+    private static final int CART_ITEMS = 20;
+    private static final int WARMUP = 300;
+    private static final int ITERATIONS = 1_000;
+    private static final Long USER_ID = 1L;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private CartMapper cartMapper;
+
+    @Autowired
+    private PurchaseMapper purchaseMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    @BeforeAll
+    void seed() {
+        transaction = new TransactionTemplate(transactionManager);
+        var books = new ArrayList<Book>();
+        for (int i = 0; i < BOOKS; i++) {
+            var book = new Book();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i % 100);
+            book.setGenre(Genre.values()[i % Genre.values().length]);
+            book.setIsbn("978-" + i);
+            book.setPublicationYear(1900 + i % 120);
+            book.setPrice(BigDecimal.valueOf(10 + i % 50));
+            book.setQuantityInStock(1_000);
+            books.add(book);
+        }
+        bookRepository.saveAll(books);
+
+        var bookId = books.get(0).getId();
+        for (int purchase = 0; purchase < PURCHASES; purchase++) {
+            for (int item = 0; item < ITEMS_PER_PURCHASE; item++) {
+                addToCart(bookId++);
+            }
+            var checkout = new PurchaseCheckoutDTO();
+            checkout.setUserId(USER_ID);
+            checkout.setPaymentMethod(PaymentMethod.WEB);
+            purchaseService.checkout(checkout);
+        }
+        for (int item = 0; item < CART_ITEMS; item++) {
+            addToCart(bookId++);
+        }
+    }
+
+    @Test
+    void searchPage() {
+        Pageable pageable = PageRequest.of(0, 100, Sort.by("id"));
+        compare("GET /api/inventories/search",
+                () -> bookRepository.findAll(pageable).map(bookMapper::toDTO),
+                () -> bookService.searchBooks(null, pageable));
+    }
+
+    @Test
+    void bookById() {
+        var id = bookRepository.findAll(PageRequest.of(0, 1)).getContent().get(0).getId();
+        // Goes to the repository directly, BookService.findBookById would answer from the book cache
+        compare("GET /api/inventories/{id}",
+                () -> bookMapper.toDTO(bookRepository.findById(id).orElseThrow()),
+                () -> bookMapper.toDTO(bookRepository.findViewById(id).orElseThrow()));
+    }
+
+    @Test
+    void cart() {
+        compare("GET /api/cart/{userId}",
+                () -> cartMapper.toDTO(cartRepository.findByUserId(USER_ID).orElseThrow()),
+                () -> cartService.getCart(USER_ID));
+    }
+
+    @Test
+    void purchaseHistory() {
+        Pageable pageable = PageRequest.of(0, PURCHASES, Sort.by("createdAt"));
+        compare("GET /api/purchases/{userId}",
+                () -> entityManager.createQuery("SELECT p FROM Purchase p WHERE p.userId = :userId " +
+                                "ORDER BY p.createdAt", Purchase.class)
+                        .setParameter("userId", USER_ID)
+                        .setMaxResults(PURCHASES)
+                        .getResultList().stream().map(purchaseMapper::toDTO).toList(),
+                () -> purchaseService.getPurchaseHistory(USER_ID, pageable));
+    }
+
+    private void addToCart(Long bookId) {
+        var request = new CartAddDTO();
+        request.setUserId(USER_ID);
+        request.setBookId(bookId);
+        request.setQuantity(1);
+        transaction.executeWithoutResult(status -> cartService.addToCart(request));
+    }
+
+    // Both paths run in a transaction, as the entity path needs one to initialize its lazy collections
+    private void compare(String endpoint, Supplier<?> entities, Supplier<?> projections) {
+        var before = measure(entities);
+        var after = measure(projections);
+        log.info("{}: entities {} B/op {} us/op, projections {} B/op {} us/op", endpoint,
+                before.bytes(), before.micros(), after.bytes(), after.micros());
+        assertTrue(after.bytes() < before.bytes(), endpoint + " allocates less with projections");
+    }
+
+    private Result measure(Supplier<?> operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            transaction.execute(status -> operation.get());
+        }
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        var started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            transaction.execute(status -> operation.get());
+        }
+        var elapsed = System.nanoTime() - started;
+        var allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new Result(allocated / ITERATIONS, elapsed / ITERATIONS / 1_000);
+    }
+
+    private record Result(long bytes, long micros) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.interswitch.bookstore.benchmarks;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.requests.CartAddDTO;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.services.CartService;
+import com.interswitch.bookstore.services.PurchaseService;
+import com.interswitch.bookstore.support.StatementCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reports the statements written and the latency of addToCart, clearCart and checkout for carts of
+ * different sizes. Run with {@code mvn test -Dbenchmarks=true -Dtest=WriteAmplificationBenchmarkTest}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "bookstore.payment.relay-enabled=false",
+        StatementCounter.PROPERTY
+})
+class WriteAmplificationBenchmarkTest {
+    private static final int[] CART_SIZES = {1, 10, 50};
+    private static final int REPETITIONS = 20;
+
+    // Shared by the test instances, so every measured cart starts out empty
+    private static final AtomicLong USER_IDS = new AtomicLong(1_000);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Test
+    void addToCart() {
+        var writes = run("addToCart", userId -> {
+            var books = books(1);
+            return measure(() -> cartService.addToCart(addRequest(userId, books.get(0).getId())));
+        });
+        assertEquals(writes.get(0), writes.get(writes.size() - 1), "addToCart writes do not depend on cart size");
+    }
+
+    @Test
+    void clearCart() {
+        var writes = run("clearCart", userId -> measure(() -> cartService.clearCart(userId)));
+        assertEquals(writes.get(0), writes.get(writes.size() - 1), "clearCart writes do not depend on cart size");
+    }
+
+    @Test
+    void checkout() {
+        var writes = run("checkout", userId -> measure(() -> purchaseService.checkout(checkoutRequest(userId))));
+        for (int i = 0; i < CART_SIZES.length; i++) {
+            // Purchase row, one row per item, one batch of stock updates, one cart item delete
+            assertTrue(writes.get(i) <= CART_SIZES[i] + 3, "checkout writes at most n + 3");
+        }
+    }
+
+    // Runs the operation against carts of each size and returns the statements written per operation
+    private List<Long> run(String operation, CartOperation measured) {
+        var writes = new ArrayList<Long>();
+        for (int size : CART_SIZES) {
+            long statements = 0;
+            long nanos = 0;
+            for (int i = 0; i < REPETITIONS; i++) {
+                var userId = USER_IDS.incrementAndGet();
+                books(size).forEach(book -> cartService.addToCart(addRequest(userId, book.getId())));
+                var result = measured.apply(userId);
+                statements += result.writes();
+                nanos += result.nanos();
+            }
+            writes.add(statements / REPETITIONS);
+            log.info("{} on a cart of {} items: {} writes/op, {} us/op", operation, size,
+                    statements / REPETITIONS, nanos / REPETITIONS / 1_000);
+        }
+        return writes;
+    }
+
+    private Result measure(Runnable operation) {
+        StatementCounter.reset();
+        var started = System.nanoTime();
+        operation.run();
+        return new Result(StatementCounter.writes(), System.nanoTime() - started);
+    }
+
+    private List<Book> books(int count) {
+        var books = new ArrayList<Book>();
+        for (int i = 0; i < count; i++) {
+            var book = new Book();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setGenre(Genre.FICTION);
+            book.setPublicationYear(2000);
+            book.setPrice(BigDecimal.TEN);
+            book.setQuantityInStock(100);
+            books.add(book);
+        }
+        return bookRepository.saveAll(books);
+    }
+
+    private static CartAddDTO addRequest(Long userId, Long bookId) {
+        var request = new CartAddDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        request.setQuantity(1);
+        return request;
+    }
+
+    private static PurchaseCheckoutDTO checkoutRequest(Long userId) {
+        var request = new PurchaseCheckoutDTO();
+        request.setUserId(userId);
+        request.setPaymentMethod(PaymentMethod.WEB);
+        return request;
+    }
+
+    private interface CartOperation {
+        Result apply(long userId);
+    }
+
+    private record Result(long writes, long nanos) {
+    }
+}
@@ -0,0 +1,157 @@
+package com.interswitch.bookstore.configs;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.exceptions.NotFoundException;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.requests.CartAddDTO;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.services.BookService;
+import com.interswitch.bookstore.services.CartService;
+import com.interswitch.bookstore.services.PurchaseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The replica is a second, empty H2 database with the primary's schema, so anything read from it is missing
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "bookstore.payment.relay-enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:primary-${random.uuid};DB_CLOSE_DELAY=-1",
+        "bookstore.datasource.replica.url=jdbc:h2:mem:replica-${random.uuid};DB_CLOSE_DELAY=-1",
+        "bookstore.datasource.replica.username=sa",
+        "bookstore.datasource.replica.read-your-writes-window=300ms"
+})
+class ReplicaRoutingTest {
+
+    @Autowired
+    private DataSource primaryDataSource;
+
+    @Autowired
+    private ReplicaProperties replicaProperties;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void copySchemaToReplica() {
+        var replica = new JdbcTemplate(new DriverManagerDataSource(replicaProperties.getUrl(), "sa", ""));
+        if (replica.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE LOWER(TABLE_NAME) = 'tbl_books'", Integer.class) > 0) {
+            return;
+        }
+        new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NODATA", String.class).stream()
+                .filter(statement -> !statement.startsWith("CREATE USER"))
+                .forEach(replica::execute);
+    }
+
+    @Test
+    void readOnlyTransaction_readsFromReplica() {
+        var bookId = createBook(5);
+
+        assertEquals(1, new JdbcTemplate(primaryDataSource).queryForObject(
+                "SELECT COUNT(*) FROM tbl_books WHERE id = ?", Integer.class, bookId));
+        assertEquals(Boolean.FALSE, readOnly().execute(status -> bookRepository.existsById(bookId)));
+    }
+
+    @Test
+    void bookCache_isFilledFromPrimary() {
+        var bookId = createBook(5);
+
+        assertEquals("Replicated", bookService.findBookById(bookId).getTitle());
+    }
+
+    @Test
+    void replicaReads_doNotFillEntityCache() {
+        var bookId = createBook(5);
+        var row = new JdbcTemplate(primaryDataSource).queryForMap("SELECT * FROM tbl_books WHERE id = ?", bookId);
+        row.put("TITLE", "Lagging");
+        new SimpleJdbcInsert(new DriverManagerDataSource(replicaProperties.getUrl(), "sa", ""))
+                .withTableName("tbl_books").execute(row);
+        entityManagerFactory.getCache().evict(Book.class, bookId);
+
+        var replicated = readOnly().execute(status -> bookRepository.findById(bookId).orElseThrow().getTitle());
+
+        assertEquals("Lagging", replicated);
+        assertFalse(entityManagerFactory.getCache().contains(Book.class, bookId));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> bookRepository.findById(bookId));
+        assertTrue(entityManagerFactory.getCache().contains(Book.class, bookId));
+    }
+
+    @Test
+    void readsOwnWritesFromPrimaryWithinWindow() throws InterruptedException {
+        var bookId = createBook(5);
+        addToCart(801L, bookId, 2);
+
+        assertEquals(1, cartService.getCart(801L).getItems().size());
+
+        purchaseService.checkout(checkout(801L), null);
+        assertEquals(1, purchaseService.getPurchaseHistory(801L, PageRequest.of(0, 10)).getTotalElements());
+
+        Thread.sleep(500);
+        assertEquals(0, purchaseService.getPurchaseHistory(801L, PageRequest.of(0, 10)).getTotalElements());
+        assertThrows(NotFoundException.class, () -> cartService.getCart(801L));
+    }
+
+    private TransactionTemplate readOnly() {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate;
+    }
+
+    private Long createBook(int stock) {
+        var book = new Book();
+        book.setTitle("Replicated");
+        book.setAuthor("Author");
+        book.setGenre(Genre.FICTION);
+        book.setPublicationYear(2000);
+        book.setPrice(BigDecimal.TEN);
+        book.setQuantityInStock(stock);
+        return bookRepository.save(book).getId();
+    }
+
+    private void addToCart(Long userId, Long bookId, int quantity) {
+        var request = new CartAddDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        request.setQuantity(quantity);
+        cartService.addToCart(request);
+    }
+
+    private static PurchaseCheckoutDTO checkout(Long userId) {
+        var request = new PurchaseCheckoutDTO();
+        request.setUserId(userId);
+        request.setPaymentMethod(PaymentMethod.WEB);
+        return request;
+    }
+}
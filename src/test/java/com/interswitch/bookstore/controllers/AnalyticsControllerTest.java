@@ -0,0 +1,60 @@
+package com.interswitch.bookstore.controllers;
+
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.SalesWindow;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.responses.BookSalesDTO;
+import com.interswitch.bookstore.responses.GenreSalesDTO;
+import com.interswitch.bookstore.services.SalesAnalytics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(AnalyticsController.class)
+class AnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SalesAnalytics salesAnalytics;
+
+    @Test
+    void topSellers_Success() throws Exception {
+        when(salesAnalytics.topSellers(SalesWindow.WEEK, Genre.THRILLER, 0, 5))
+                .thenReturn(List.of(new BookSalesDTO(1L, Genre.THRILLER, 12)));
+
+        mockMvc.perform(get("/api/analytics/top-sellers").param("genre", "THRILLER").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data[0].bookId").value(1))
+                .andExpect(jsonPath("$.data[0].copies").value(12));
+    }
+
+    @Test
+    void topSellers_PeriodNotRetained() throws Exception {
+        when(salesAnalytics.topSellers(SalesWindow.HOUR, null, 99, 10))
+                .thenThrow(new BadRequestException("Only the last 48 hourly periods are kept."));
+
+        mockMvc.perform(get("/api/analytics/top-sellers").param("window", "HOUR").param("ago", "99"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void topGenres_Success() throws Exception {
+        when(salesAnalytics.topGenres(SalesWindow.DAY, 0)).thenReturn(List.of(new GenreSalesDTO(Genre.FICTION, 3)));
+
+        mockMvc.perform(get("/api/analytics/top-genres").param("window", "DAY"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].genre").value("FICTION"));
+    }
+}
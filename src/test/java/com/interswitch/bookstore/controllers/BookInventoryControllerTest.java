@@ -1,12 +1,19 @@
 package com.interswitch.bookstore.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.interswitch.bookstore.enums.FileFormat;
 import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.exceptions.BadRequestException;
 import com.interswitch.bookstore.exceptions.NotFoundException;
 import com.interswitch.bookstore.requests.BookAddDTO;
 import com.interswitch.bookstore.requests.BookUpdateDTO;
 import com.interswitch.bookstore.responses.BookDTO;
+import com.interswitch.bookstore.responses.CursorPage;
+import com.interswitch.bookstore.responses.ImportReportDTO;
+import com.interswitch.bookstore.services.BookExportService;
+import com.interswitch.bookstore.services.BookImportService;
 import com.interswitch.bookstore.services.BookService;
+import com.interswitch.bookstore.services.InventoryService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,9 +21,11 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
 import java.util.Collections;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -33,6 +42,15 @@ class BookInventoryControllerTest {
     @MockBean
     private BookService bookService;
 
+    @MockBean
+    private BookImportService bookImportService;
+
+    @MockBean
+    private BookExportService bookExportService;
+
+    @MockBean
+    private InventoryService inventoryService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -64,6 +82,34 @@ class BookInventoryControllerTest {
                 .andExpect(jsonPath("$.data.content[0].title").value("Test Book"));
     }
 
+    @Test
+    void scrollBooks_Success() throws Exception {
+        var slice = new CursorPage<>(Collections.singletonList(bookDTO), 1, "next", true);
+        when(bookService.scrollBooks("test", null, 1, Sort.Direction.ASC)).thenReturn(slice);
+
+        mockMvc.perform(get("/api/inventories/search/cursor")
+                        .param("searchTerm", "test")
+                        .param("size", "1")
+                        .param("sort-direction", "asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data.content[0].title").value("Test Book"))
+                .andExpect(jsonPath("$.data.nextCursor").value("next"))
+                .andExpect(jsonPath("$.data.hasNext").value(true));
+    }
+
+    @Test
+    void scrollBooks_BadRequest_SizeOutOfRange() throws Exception {
+        mockMvc.perform(get("/api/inventories/search/cursor").param("size", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400))
+                .andExpect(jsonPath("$.message").value("size must be between 1 and 100."));
+        mockMvc.perform(get("/api/inventories/search").param("size", "-1"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(bookService);
+    }
+
     @Test
     void getBookById_Success() throws Exception {
         when(bookService.findBookById(1L)).thenReturn(bookDTO);
@@ -163,4 +209,71 @@ class BookInventoryControllerTest {
                 .andExpect(jsonPath("$.code").value(404))
                 .andExpect(jsonPath("$.message").value("Book not found"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void importBooks_Csv_Success() throws Exception {
+        var report = new ImportReportDTO();
+        report.setProcessed(1);
+        report.setImported(1);
+        when(bookImportService.importBooks(any(), eq(FileFormat.CSV))).thenReturn(report);
+
+        mockMvc.perform(post("/api/inventories/import")
+                        .contentType("text/csv")
+                        .content("title,genre\nDune,FICTION\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data.imported").value(1));
+    }
+
+    @Test
+    void exportBooks_Csv_Success() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("id,title\n1,Test Book\n".getBytes());
+            return null;
+        }).when(bookExportService).exportBooks(any(), eq(FileFormat.CSV));
+
+        var result = mockMvc.perform(get("/api/inventories/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(content().string("id,title\n1,Test Book\n"));
+    }
+
+    @Test
+    void exportBooks_BadRequest_InvalidFormat() throws Exception {
+        mockMvc.perform(get("/api/inventories/export").param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
+    @Test
+    void startFlashSale_Success() throws Exception {
+        mockMvc.perform(put("/api/inventories/1/flash-sale").param("shards", "16"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200));
+
+        verify(inventoryService).startFlashSale(1L, 16);
+    }
+
+    @Test
+    void startFlashSale_BadRequest_TooManyShards() throws Exception {
+        doThrow(new BadRequestException("Shards must be between 2 and 64."))
+                .when(inventoryService).startFlashSale(1L, 100);
+
+        mockMvc.perform(put("/api/inventories/1/flash-sale").param("shards", "100"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
+    @Test
+    void endFlashSale_Success() throws Exception {
+        mockMvc.perform(delete("/api/inventories/1/flash-sale"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200));
+
+        verify(inventoryService).endFlashSale(1L);
+    }
+}
@@ -1,13 +1,20 @@
 package com.interswitch.bookstore.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.interswitch.bookstore.enums.CheckoutStatus;
 import com.interswitch.bookstore.enums.Genre;
 import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.exceptions.ConflictException;
 import com.interswitch.bookstore.exceptions.NotFoundException;
 import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
 import com.interswitch.bookstore.responses.BookDTO;
+import com.interswitch.bookstore.responses.CheckoutStatusDTO;
+import com.interswitch.bookstore.responses.CursorPage;
 import com.interswitch.bookstore.responses.PurchaseDTO;
+import com.interswitch.bookstore.responses.PurchaseHistoryDTO;
 import com.interswitch.bookstore.responses.PurchaseItemDTO;
+import com.interswitch.bookstore.services.AsyncCheckoutService;
+import com.interswitch.bookstore.services.PurchaseHistoryService;
 import com.interswitch.bookstore.services.PurchaseService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,10 +23,13 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
 import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -35,6 +45,12 @@ class PurchaseControllerTest {
     @MockBean
     private PurchaseService purchaseService;
 
+    @MockBean
+    private AsyncCheckoutService asyncCheckoutService;
+
+    @MockBean
+    private PurchaseHistoryService purchaseHistoryService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -68,6 +84,18 @@ class PurchaseControllerTest {
                 .andExpect(jsonPath("$.data.content[0].userId").value(1));
     }
 
+    @Test
+    void getPurchaseHistory_SizeIsNotCapped() throws Exception {
+        when(purchaseService.getPurchaseHistory(eq(1L), argThat(pageable -> pageable.getPageSize() == 500)))
+                .thenReturn(new PageImpl<>(Collections.singletonList(purchaseDTO)));
+
+        mockMvc.perform(get("/api/purchases/1").param("size", "500"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/purchases/1").param("size", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("size must be at least 1."));
+    }
+
     @Test
     void getPurchaseHistory_NotFound() throws Exception {
         when(purchaseService.getPurchaseHistory(eq(1L), any()))
@@ -79,13 +107,60 @@ class PurchaseControllerTest {
                 .andExpect(jsonPath("$.message").value("Purchase history not found"));
     }
 
+    @Test
+    void scrollPurchaseHistory_Success() throws Exception {
+        var slice = new CursorPage<>(Collections.singletonList(purchaseDTO), 10, null, false);
+        when(purchaseService.scrollPurchaseHistory(1L, "abc", 10, Sort.Direction.DESC)).thenReturn(slice);
+
+        mockMvc.perform(get("/api/purchases/1/cursor").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data.content[0].userId").value(1))
+                .andExpect(jsonPath("$.data.hasNext").value(false));
+    }
+
+    @Test
+    void scrollPurchaseHistory_BadRequest_SizeOutOfRange() throws Exception {
+        mockMvc.perform(get("/api/purchases/1/cursor").param("size", "101"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400))
+                .andExpect(jsonPath("$.message").value("size must be between 1 and 100."));
+
+        verifyNoInteractions(purchaseService);
+    }
+
+    @Test
+    void getHistory_PassesDateRange() throws Exception {
+        var entry = new PurchaseHistoryDTO();
+        entry.setPurchaseId(1L);
+        entry.setUserId(1L);
+        var slice = new CursorPage<>(Collections.singletonList(entry), 10, null, false);
+        when(purchaseHistoryService.getHistory(1L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), null, 10))
+                .thenReturn(slice);
+
+        mockMvc.perform(get("/api/purchases/1/history").param("from", "2024-01-01").param("to", "2024-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data.content[0].purchaseId").value(1));
+    }
+
+    @Test
+    void getHistory_BadRequest_SizeOutOfRange() throws Exception {
+        mockMvc.perform(get("/api/purchases/1/history").param("size", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400))
+                .andExpect(jsonPath("$.message").value("size must be between 1 and 100."));
+
+        verifyNoInteractions(purchaseHistoryService);
+    }
+
     @Test
     void checkout_Success() throws Exception {
         PurchaseCheckoutDTO request = new PurchaseCheckoutDTO();
         request.setUserId(1L);
         request.setPaymentMethod(PaymentMethod.WEB);
 
-        when(purchaseService.checkout(any(PurchaseCheckoutDTO.class))).thenReturn(purchaseDTO);
+        when(purchaseService.checkout(any(PurchaseCheckoutDTO.class), isNull())).thenReturn(purchaseDTO);
 
         mockMvc.perform(post("/api/purchases/checkout")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -95,13 +170,46 @@ class PurchaseControllerTest {
                 .andExpect(jsonPath("$.data.userId").value(1));
     }
 
+    @Test
+    void checkout_PassesIdempotencyKey() throws Exception {
+        PurchaseCheckoutDTO request = new PurchaseCheckoutDTO();
+        request.setUserId(1L);
+        request.setPaymentMethod(PaymentMethod.WEB);
+
+        when(purchaseService.checkout(any(PurchaseCheckoutDTO.class), eq("key-1"))).thenReturn(purchaseDTO);
+
+        mockMvc.perform(post("/api/purchases/checkout")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.userId").value(1));
+    }
+
+    @Test
+    void checkout_Conflict() throws Exception {
+        PurchaseCheckoutDTO request = new PurchaseCheckoutDTO();
+        request.setUserId(1L);
+        request.setPaymentMethod(PaymentMethod.WEB);
+
+        when(purchaseService.checkout(any(PurchaseCheckoutDTO.class), eq("key-1")))
+                .thenThrow(new ConflictException("A checkout with this Idempotency-Key is still in progress."));
+
+        mockMvc.perform(post("/api/purchases/checkout")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value(409));
+    }
+
     @Test
     void checkout_NotFound() throws Exception {
         PurchaseCheckoutDTO request = new PurchaseCheckoutDTO();
         request.setUserId(1L);
         request.setPaymentMethod(PaymentMethod.WEB);
 
-        when(purchaseService.checkout(any())).thenThrow(new NotFoundException("Cart not found"));
+        when(purchaseService.checkout(any(), isNull())).thenThrow(new NotFoundException("Cart not found"));
 
         mockMvc.perform(post("/api/purchases/checkout")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -111,6 +219,52 @@ class PurchaseControllerTest {
                 .andExpect(jsonPath("$.message").value("Cart not found"));
     }
 
+    @Test
+    void checkoutAsync_Accepted() throws Exception {
+        PurchaseCheckoutDTO request = new PurchaseCheckoutDTO();
+        request.setUserId(1L);
+        request.setPaymentMethod(PaymentMethod.WEB);
+
+        when(asyncCheckoutService.submit(any(PurchaseCheckoutDTO.class), isNull()))
+                .thenReturn(new CheckoutStatusDTO("abc", 1L, CheckoutStatus.QUEUED, null, null));
+
+        mockMvc.perform(post("/api/purchases/checkout/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/purchases/checkout/abc"))
+                .andExpect(jsonPath("$.code").value(202))
+                .andExpect(jsonPath("$.data.checkoutId").value("abc"))
+                .andExpect(jsonPath("$.data.status").value("QUEUED"));
+    }
+
+    @Test
+    void checkoutAsync_QueueFull() throws Exception {
+        PurchaseCheckoutDTO request = new PurchaseCheckoutDTO();
+        request.setUserId(1L);
+        request.setPaymentMethod(PaymentMethod.WEB);
+
+        when(asyncCheckoutService.submit(any(PurchaseCheckoutDTO.class), isNull()))
+                .thenThrow(new RejectedExecutionException("queue full"));
+
+        mockMvc.perform(post("/api/purchases/checkout/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.code").value(503));
+    }
+
+    @Test
+    void getCheckoutStatus_Completed() throws Exception {
+        when(asyncCheckoutService.getStatus("abc"))
+                .thenReturn(new CheckoutStatusDTO("abc", 1L, CheckoutStatus.COMPLETED, purchaseDTO, null));
+
+        mockMvc.perform(get("/api/purchases/checkout/abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.data.purchase.userId").value(1));
+    }
+
     @Test
     void checkout_BadRequest_InvalidPaymentMethod() throws Exception {
         PurchaseCheckoutDTO request = new PurchaseCheckoutDTO();
@@ -0,0 +1,72 @@
+package com.interswitch.bookstore.migrations;
+
+import com.interswitch.bookstore.migrations.IdSequenceMigration.IdSequence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdSequenceMigrationTest {
+
+    private static final IdSequence BOOKS = new IdSequence("tbl_books", "tbl_books_SEQ", 50);
+
+    private EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private IdSequenceMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE tbl_books (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "title VARCHAR(255))");
+        jdbcTemplate.execute("CREATE SEQUENCE tbl_books_SEQ START WITH 1 INCREMENT BY 50");
+        migration = new IdSequenceMigration(jdbcTemplate, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void migrate_restartsSequencePastExistingRows() {
+        for (int i = 0; i < 120; i++) {
+            jdbcTemplate.update("INSERT INTO tbl_books (title) VALUES ('Dune')");
+        }
+
+        migration.migrate(List.of(BOOKS));
+
+        var hi = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR tbl_books_SEQ", Long.class);
+        assertEquals(170L, hi);
+        // The pooled optimizer hands out the 50 IDs ending at the value read
+        assertTrue(hi - BOOKS.allocationSize() + 1 > 120);
+    }
+
+    @Test
+    void migrate_neverMovesSequenceBack() {
+        jdbcTemplate.update("INSERT INTO tbl_books (title) VALUES ('Dune')");
+        jdbcTemplate.execute("ALTER SEQUENCE tbl_books_SEQ RESTART WITH 1001");
+
+        migration.migrate(List.of(BOOKS));
+        migration.migrate(List.of(BOOKS));
+
+        assertEquals(1001L, jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR tbl_books_SEQ", Long.class));
+    }
+
+    @Test
+    void migrate_leavesSequenceOfEmptyTable() {
+        migration.migrate(List.of(BOOKS));
+
+        assertEquals(1L, jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR tbl_books_SEQ", Long.class));
+    }
+}
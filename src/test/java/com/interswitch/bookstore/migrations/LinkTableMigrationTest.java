@@ -0,0 +1,74 @@
+package com.interswitch.bookstore.migrations;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkTableMigrationTest {
+
+    private EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private LinkTableMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE tbl_cart_items (id BIGINT PRIMARY KEY, cart_id BIGINT, book_id BIGINT, " +
+                "quantity INT)");
+        jdbcTemplate.execute("CREATE TABLE tbl_carts_items (cart_id BIGINT NOT NULL, items_id BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE tbl_purchase_items (id BIGINT PRIMARY KEY, purchase_id BIGINT, " +
+                "book_id BIGINT, quantity INT)");
+        jdbcTemplate.execute("CREATE TABLE tbl_purchases_items (purchase_id BIGINT NOT NULL, items_id BIGINT NOT NULL)");
+        migration = new LinkTableMigration(jdbcTemplate, new DataSourceTransactionManager(database));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void migrate_backfillsForeignKeysAndDropsLinkTables() {
+        // Item 2 was cleared from its cart, only its link row was deleted
+        jdbcTemplate.update("INSERT INTO tbl_cart_items VALUES (1, 10, 100, 1), (2, 10, 101, 1), (3, 11, 100, 2)");
+        jdbcTemplate.update("INSERT INTO tbl_carts_items VALUES (10, 1), (11, 3)");
+        jdbcTemplate.update("INSERT INTO tbl_purchase_items VALUES (5, NULL, 100, 1), (6, NULL, 101, 3)");
+        jdbcTemplate.update("INSERT INTO tbl_purchases_items VALUES (20, 5), (21, 6)");
+
+        migration.migrate();
+
+        assertEquals(List.of(1L, 3L), jdbcTemplate.queryForList("SELECT id FROM tbl_cart_items ORDER BY id", Long.class));
+        assertEquals(List.of(10L, 11L),
+                jdbcTemplate.queryForList("SELECT cart_id FROM tbl_cart_items ORDER BY id", Long.class));
+        assertEquals(List.of(20L, 21L),
+                jdbcTemplate.queryForList("SELECT purchase_id FROM tbl_purchase_items ORDER BY id", Long.class));
+        assertFalse(exists(LinkTableMigration.CART_LINKS));
+        assertFalse(exists(LinkTableMigration.PURCHASE_LINKS));
+    }
+
+    @Test
+    void migrate_withoutLinkTables_doesNothing() {
+        migration.migrate();
+        jdbcTemplate.update("INSERT INTO tbl_purchase_items VALUES (5, 20, 100, 1)");
+
+        assertDoesNotThrow(() -> migration.migrate());
+        assertEquals(20L, jdbcTemplate.queryForObject("SELECT purchase_id FROM tbl_purchase_items", Long.class));
+    }
+
+    private boolean exists(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE LOWER(TABLE_NAME) = ?",
+                Integer.class, table) > 0;
+    }
+}
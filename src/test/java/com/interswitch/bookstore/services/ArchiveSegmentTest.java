@@ -0,0 +1,111 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.ArchiveProperties;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.projections.ArchivedPurchase;
+import com.interswitch.bookstore.projections.ArchivedPurchaseItem;
+import com.interswitch.bookstore.projections.PurchaseView;
+import com.interswitch.bookstore.repositories.PurchaseRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ArchiveSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void find_readsOnlyTheUsersPurchasesAcrossBlocks() {
+        var purchases = new ArrayList<ArchivedPurchase>();
+        for (long id = 1; id <= 50; id++) {
+            purchases.add(purchase(id, id % 5));
+        }
+        var path = directory.resolve("purchases-1.seg");
+
+        ArchiveSegment.write(path, purchases, 4);
+        var segment = ArchiveSegment.open(path);
+
+        var found = segment.find(3L);
+        assertEquals(10, found.size());
+        var expected = purchases.stream().filter(purchase -> purchase.purchase().userId() == 3L)
+                .sorted(Comparator.comparing(purchase -> purchase.purchase().id())).toList();
+        assertEquals(expected, found);
+        assertEquals(List.of(), segment.find(7L));
+        assertEquals(50, segment.findAll().size());
+    }
+
+    @Test
+    void open_rejectsFilesThatAreNotSegments() throws Exception {
+        var path = Files.writeString(directory.resolve("purchases-1.seg"), "not a segment");
+
+        assertThrows(RuntimeException.class, () -> ArchiveSegment.open(path));
+    }
+
+    @Test
+    void archive_keepsCommittedPendingSegmentAndDropsUncommittedOne() throws Exception {
+        ArchiveSegment.write(directory.resolve("purchases-0000000000000000001.seg.pending"), List.of(purchase(1, 9)), 4);
+        ArchiveSegment.write(directory.resolve("purchases-0000000000000000002.seg.pending"), List.of(purchase(2, 9)), 4);
+        var purchaseRepository = mock(PurchaseRepository.class);
+        when(purchaseRepository.existsById(2L)).thenReturn(true);
+        var properties = new ArchiveProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory);
+        var archive = new PurchaseArchive(properties, purchaseRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        archive.open();
+
+        assertEquals(List.of(1L), archive.find(9L).stream().map(purchase -> purchase.purchase().id()).toList());
+        assertTrue(Files.exists(directory.resolve("purchases-0000000000000000001.seg")));
+        assertFalse(Files.exists(directory.resolve("purchases-0000000000000000002.seg.pending")));
+    }
+
+    @Test
+    void archive_opensNothingWhileDisabled() {
+        ArchiveSegment.write(directory.resolve("purchases-0000000000000000001.seg"), List.of(purchase(1, 9)), 4);
+        var properties = new ArchiveProperties();
+        properties.setDirectory(directory);
+        var archive = new PurchaseArchive(properties, mock(PurchaseRepository.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        archive.open();
+
+        assertEquals(List.of(), archive.find(9L));
+    }
+
+    @Test
+    void archive_requiresDirectoryWhenEnabled() {
+        var properties = new ArchiveProperties();
+        properties.setEnabled(true);
+        var archive = new PurchaseArchive(properties, mock(PurchaseRepository.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        assertThrows(IllegalStateException.class, archive::open);
+    }
+
+    private static ArchivedPurchase purchase(long id, long userId) {
+        var createdAt = LocalDateTime.of(2020, 1, 1, 0, 0).plusMinutes(id).plusNanos(123_000);
+        var purchase = new PurchaseView(id, userId, createdAt, PaymentMethod.values()[(int) (id % 3)],
+                id % 2 == 0 ? PurchaseStatus.PAID : PurchaseStatus.FAILED, createdAt, id % 4 == 0 ? null : createdAt);
+        var items = new ArrayList<ArchivedPurchaseItem>();
+        for (int i = 0; i < id % 3 + 1; i++) {
+            items.add(new ArchivedPurchaseItem(id, 100L + i, i + 1, createdAt, null));
+        }
+        return new ArchivedPurchase(purchase, items);
+    }
+}
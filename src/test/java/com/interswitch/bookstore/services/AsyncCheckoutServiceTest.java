@@ -0,0 +1,116 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.CheckoutProperties;
+import com.interswitch.bookstore.enums.CheckoutStatus;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.exceptions.NotFoundException;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.responses.CheckoutStatusDTO;
+import com.interswitch.bookstore.responses.PurchaseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncCheckoutServiceTest {
+
+    @Mock
+    private PurchaseService purchaseService;
+
+    private AsyncCheckoutService asyncCheckoutService;
+
+    private PurchaseCheckoutDTO request;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new CheckoutProperties();
+        properties.setAsyncWorkers(1);
+        properties.setAsyncQueueCapacity(1);
+        asyncCheckoutService = new AsyncCheckoutService(purchaseService, properties, new SimpleMeterRegistry());
+
+        request = new PurchaseCheckoutDTO();
+        request.setUserId(1L);
+        request.setPaymentMethod(PaymentMethod.WEB);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        asyncCheckoutService.shutdown();
+    }
+
+    @Test
+    void submit_completesWithPurchase() throws Exception {
+        var purchase = new PurchaseDTO();
+        when(purchaseService.checkout(request, "key-1")).thenReturn(purchase);
+
+        var queued = asyncCheckoutService.submit(request, "key-1");
+
+        assertEquals(CheckoutStatus.QUEUED, queued.getStatus());
+        assertEquals(1L, queued.getUserId());
+        var status = awaitOutcome(queued.getCheckoutId());
+        assertEquals(CheckoutStatus.COMPLETED, status.getStatus());
+        assertSame(purchase, status.getPurchase());
+    }
+
+    @Test
+    void submit_reportsCheckoutFailure() throws Exception {
+        when(purchaseService.checkout(eq(request), any())).thenThrow(new BadRequestException("Cannot checkout empty cart."));
+
+        var status = awaitOutcome(asyncCheckoutService.submit(request, null).getCheckoutId());
+
+        assertEquals(CheckoutStatus.FAILED, status.getStatus());
+        assertEquals("Cannot checkout empty cart.", status.getError());
+        assertNull(status.getPurchase());
+    }
+
+    @Test
+    void submit_rejectsWhenQueueIsFull() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(purchaseService.checkout(eq(request), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new PurchaseDTO();
+        });
+
+        var running = asyncCheckoutService.submit(request, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(CheckoutStatus.PROCESSING, asyncCheckoutService.getStatus(running.getCheckoutId()).getStatus());
+        var waiting = asyncCheckoutService.submit(request, null);
+
+        assertThrows(RejectedExecutionException.class, () -> asyncCheckoutService.submit(request, null));
+        release.countDown();
+        assertEquals(CheckoutStatus.COMPLETED, awaitOutcome(waiting.getCheckoutId()).getStatus());
+    }
+
+    @Test
+    void getStatus_unknownCheckout() {
+        assertThrows(NotFoundException.class, () -> asyncCheckoutService.getStatus("missing"));
+    }
+
+    private CheckoutStatusDTO awaitOutcome(String checkoutId) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            var status = asyncCheckoutService.getStatus(checkoutId);
+            if (status.getStatus() == CheckoutStatus.COMPLETED || status.getStatus() == CheckoutStatus.FAILED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Checkout " + checkoutId + " did not finish");
+    }
+}
@@ -0,0 +1,66 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookCacheInvalidatorTest {
+
+    private ConcurrentMapCacheManager cacheManager;
+
+    private Cache entityCache;
+
+    private BookCacheInvalidator bookCacheInvalidator;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager(BookService.BOOKS_CACHE);
+        entityCache = mock(Cache.class);
+        var entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(entityCache);
+        bookCacheInvalidator = new BookCacheInvalidator(cacheManager, entityManagerFactory);
+        cacheManager.getCache(BookService.BOOKS_CACHE).put(1L, "cached");
+        cacheManager.getCache(BookService.BOOKS_CACHE).put(2L, "cached");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evict_outsideTransaction() {
+        bookCacheInvalidator.evict(List.of(1L));
+
+        assertNull(cacheManager.getCache(BookService.BOOKS_CACHE).get(1L));
+        assertNotNull(cacheManager.getCache(BookService.BOOKS_CACHE).get(2L));
+        verify(entityCache).evict(Book.class, 1L);
+        verify(entityCache, never()).evict(Book.class, 2L);
+    }
+
+    @Test
+    void evict_insideTransaction_evictsAgainOnCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        bookCacheInvalidator.evict(List.of(1L));
+        cacheManager.getCache(BookService.BOOKS_CACHE).put(1L, "stale");
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertNull(cacheManager.getCache(BookService.BOOKS_CACHE).get(1L));
+        verify(entityCache, times(2)).evict(Book.class, 1L);
+    }
+}
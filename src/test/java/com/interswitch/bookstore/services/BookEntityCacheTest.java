@@ -0,0 +1,122 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.requests.BookUpdateDTO;
+import com.interswitch.bookstore.requests.CartAddDTO;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "bookstore.payment.relay-enabled=false"
+})
+class BookEntityCacheTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void findById_servedFromSecondLevelCache() {
+        var bookId = createBook(5);
+        bookRepository.findById(bookId).orElseThrow();
+        var hits = regionStatistics().getHitCount();
+
+        bookRepository.findById(bookId).orElseThrow();
+        bookRepository.findById(bookId).orElseThrow();
+
+        assertTrue(regionStatistics().getHitCount() >= hits + 2);
+        assertNotNull(meterRegistry.find("cache.gets").tags("cache", Book.CACHE_REGION, "result", "hit")
+                .functionCounter());
+    }
+
+    @Test
+    void checkout_evictsStockWrittenByJdbc() {
+        var bookId = createBook(5);
+        bookRepository.findById(bookId).orElseThrow();
+        addToCart(701L, bookId, 2);
+
+        purchaseService.checkout(checkout(701L), null);
+
+        assertEquals(3, bookRepository.findById(bookId).orElseThrow().getQuantityInStock());
+    }
+
+    @Test
+    void updateBook_neverWritesBackCachedStock() {
+        var bookId = createBook(5);
+        bookRepository.findById(bookId).orElseThrow();
+        // A stock change the cache is not told about
+        bookRepository.subtractStock(new TreeMap<>(Map.of(bookId, 4)));
+
+        var request = new BookUpdateDTO();
+        request.setTitle("Cached");
+        request.setAuthor("Author");
+        request.setGenre(Genre.FICTION);
+        request.setIsbn("978-1");
+        request.setPublicationYear(2001);
+        request.setPrice(12);
+        bookService.updateBook(bookId, request);
+
+        assertEquals(1, bookRepository.findViewById(bookId).orElseThrow().quantityInStock());
+    }
+
+    private CacheRegionStatistics regionStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+                .getDomainDataRegionStatistics(Book.CACHE_REGION);
+    }
+
+    private Long createBook(int stock) {
+        var book = new Book();
+        book.setTitle("Cached");
+        book.setAuthor("Author");
+        book.setGenre(Genre.FICTION);
+        book.setPublicationYear(2000);
+        book.setPrice(BigDecimal.TEN);
+        book.setQuantityInStock(stock);
+        return bookRepository.save(book).getId();
+    }
+
+    private void addToCart(Long userId, Long bookId, int quantity) {
+        var request = new CartAddDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        request.setQuantity(quantity);
+        cartService.addToCart(request);
+    }
+
+    private static PurchaseCheckoutDTO checkout(Long userId) {
+        var request = new PurchaseCheckoutDTO();
+        request.setUserId(userId);
+        request.setPaymentMethod(PaymentMethod.WEB);
+        return request;
+    }
+}
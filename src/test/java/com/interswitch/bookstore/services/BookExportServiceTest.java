@@ -0,0 +1,74 @@
+package com.interswitch.bookstore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.interswitch.bookstore.configs.ExportProperties;
+import com.interswitch.bookstore.enums.FileFormat;
+import com.interswitch.bookstore.mappers.BookCsvMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookExportServiceTest {
+
+    private EmbeddedDatabase database;
+
+    private BookExportService bookExportService;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        var jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE tbl_books (id BIGINT PRIMARY KEY, title VARCHAR(255), genre VARCHAR(20), " +
+                "isbn VARCHAR(20), author VARCHAR(255), publication_year INT, quantity_in_stock INT, " +
+                "price DECIMAL(10, 2), created_at TIMESTAMP, updated_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO tbl_books VALUES (2, 'It', 'HORROR', '2-2', 'Stephen King', 1986, 1, 9.00, " +
+                "TIMESTAMP '2024-01-02 00:00:00', NULL)");
+        jdbcTemplate.update("INSERT INTO tbl_books VALUES (1, 'Dune', 'FICTION', '1-1', 'Herbert, Frank', 1965, 3, " +
+                "12.50, TIMESTAMP '2024-01-01 00:00:00', NULL)");
+        bookExportService = new BookExportService(jdbcTemplate, new DataSourceTransactionManager(database),
+                new ObjectMapper(), new BookCsvMapper(), new ExportProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void exportBooks_csv() throws Exception {
+        var output = new ByteArrayOutputStream();
+
+        bookExportService.exportBooks(output, FileFormat.CSV);
+
+        var lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("id,title,genre,isbn,author,publicationYear,quantityInStock,price,createdAt,updatedAt", lines[0]);
+        assertEquals("1,Dune,FICTION,1-1,\"Herbert, Frank\",1965,3,12.50,2024-01-01T00:00,", lines[1]);
+        assertTrue(lines[2].startsWith("2,It,HORROR"));
+    }
+
+    @Test
+    void exportBooks_ndjson() throws Exception {
+        var output = new ByteArrayOutputStream();
+
+        bookExportService.exportBooks(output, FileFormat.NDJSON);
+
+        var lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        var first = new ObjectMapper().readTree(lines[0]);
+        assertEquals(1, first.get("id").asLong());
+        assertEquals("Herbert, Frank", first.get("author").asText());
+        assertEquals(12.5, first.get("price").asDouble());
+        assertTrue(first.get("updatedAt").isNull());
+    }
+}
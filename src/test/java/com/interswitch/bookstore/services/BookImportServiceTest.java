@@ -0,0 +1,171 @@
+package com.interswitch.bookstore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.interswitch.bookstore.configs.ImportProperties;
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.FileFormat;
+import com.interswitch.bookstore.mappers.BookCsvMapper;
+import com.interswitch.bookstore.mappers.BookMapper;
+import com.interswitch.bookstore.repositories.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookImportServiceTest {
+
+    private static final String VALID_JSON = "{\"title\":\"Dune\",\"genre\":\"FICTION\",\"isbn\":\"123-4\"," +
+            "\"author\":\"Frank Herbert\",\"publicationYear\":1965,\"quantityInStock\":3,\"price\":12.5}";
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
+    @Mock
+    private BookSearchEngine bookSearchEngine;
+
+    @Mock
+    private BookSearchCache bookSearchCache;
+
+    private BookImportService bookImportService;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new ImportProperties();
+        properties.setBatchSize(2);
+        properties.setCommitInterval(4);
+        bookImportService = new BookImportService(bookRepository, Mappers.getMapper(BookMapper.class), entityManager, transactionManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), new BookCsvMapper(),
+                bookSearchEngine, bookSearchCache, properties);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        lenient().when(entityManager.unwrap(Session.class)).thenReturn(session);
+    }
+
+    @Test
+    void importBooks_ndjson_batchesAndCommitsPerInterval() throws Exception {
+        var input = String.join("\n", VALID_JSON, VALID_JSON, VALID_JSON, VALID_JSON, VALID_JSON);
+
+        var report = bookImportService.importBooks(stream(input), FileFormat.NDJSON);
+
+        assertEquals(5, report.getProcessed());
+        assertEquals(5, report.getImported());
+        assertEquals(0, report.getFailed());
+        verify(bookRepository, times(3)).saveAll(anyCollection());
+        verify(bookRepository, times(3)).flush();
+        verify(entityManager, times(3)).clear();
+        verify(session, times(3)).setJdbcBatchSize(2);
+        verify(transactionManager, times(2)).commit(transactionStatus);
+        verify(bookSearchEngine).rebuild();
+        verify(bookSearchCache).catalogChanged();
+    }
+
+    @Test
+    void importBooks_csv_reportsInvalidRowsAndContinues() throws Exception {
+        var input = String.join("\n",
+                "title,genre,isbn,author,publicationYear,quantityInStock,price",
+                "Dune,FICTION,123-4,\"Herbert, Frank\",1965,3,12.5",
+                "Bad@Title,FICTION,123-4,Someone,1965,3,12.5",
+                "It,NOVEL,123-4,Stephen King,1986,3,9",
+                "It,HORROR,123-4,Stephen King,1986,3,9");
+
+        var report = bookImportService.importBooks(stream(input), FileFormat.CSV);
+
+        assertEquals(4, report.getProcessed());
+        assertEquals(2, report.getImported());
+        assertEquals(2, report.getFailed());
+        assertEquals(3, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().contains("Title must contain only letters and numbers"));
+        assertEquals(4, report.getErrors().get(1).getLine());
+        verify(transactionManager).commit(transactionStatus);
+    }
+
+    @Test
+    void importBooks_csv_readsQuotedFieldsSpanningLines() throws Exception {
+        var input = String.join("\n",
+                "title,genre,isbn,author,publicationYear,quantityInStock,price",
+                "Dune,FICTION,123-4,\"Frank\nHerbert\",1965,3,12.5",
+                "Bad@Title,FICTION,123-4,Someone,1965,3,12.5");
+        var books = ArgumentCaptor.forClass(Iterable.class);
+
+        var report = bookImportService.importBooks(stream(input), FileFormat.CSV);
+
+        assertEquals(2, report.getProcessed());
+        assertEquals(1, report.getImported());
+        assertEquals(4, report.getErrors().get(0).getLine());
+        verify(bookRepository).saveAll(books.capture());
+        assertEquals("Frank\nHerbert", ((Book) books.getValue().iterator().next()).getAuthor());
+    }
+
+    @Test
+    void importBooks_failedBatch_retriesRowsOneAtATime() throws Exception {
+        // The batch of lines 1 and 2 fails, line 1 then succeeds alone, line 2 fails alone and line 3 succeeds
+        doThrow(new DataIntegrityViolationException("constraint"))
+                .doNothing()
+                .doThrow(new DataIntegrityViolationException("duplicate isbn"))
+                .doNothing()
+                .when(bookRepository).flush();
+
+        var report = bookImportService.importBooks(stream(String.join("\n", VALID_JSON, VALID_JSON, VALID_JSON)),
+                FileFormat.NDJSON);
+
+        assertEquals(3, report.getProcessed());
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().contains("duplicate isbn"));
+        verify(transactionManager, times(2)).rollback(transactionStatus);
+        verify(transactionManager, times(2)).commit(transactionStatus);
+        verify(bookSearchEngine).rebuild();
+    }
+
+    @Test
+    void importBooks_failedBatch_writesEarlierRowsOfTransactionAgain() throws Exception {
+        // Lines 1 and 2 are flushed, the batch of lines 3 and 4 fails and rolls back the transaction with them
+        doNothing()
+                .doThrow(new DataIntegrityViolationException("constraint"))
+                .doNothing()
+                .doNothing()
+                .doThrow(new DataIntegrityViolationException("duplicate isbn"))
+                .when(bookRepository).flush();
+
+        var report = bookImportService.importBooks(
+                stream(String.join("\n", VALID_JSON, VALID_JSON, VALID_JSON, VALID_JSON)), FileFormat.NDJSON);
+
+        assertEquals(3, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(4, report.getErrors().get(0).getLine());
+        verify(transactionManager, times(2)).commit(transactionStatus);
+    }
+
+    private static ByteArrayInputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+}
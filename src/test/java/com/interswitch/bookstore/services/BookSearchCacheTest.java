@@ -0,0 +1,85 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.SearchCacheProperties;
+import com.interswitch.bookstore.mappers.BookMapper;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.responses.BookDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookSearchCacheTest {
+
+    @Mock
+    private BookSearchEngine bookSearchEngine;
+
+    @Mock
+    private BookMapper bookMapper;
+
+    private SearchCacheProperties properties;
+
+    private BookSearchCache bookSearchCache;
+
+    private final Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+    @BeforeEach
+    void setUp() {
+        properties = new SearchCacheProperties();
+        bookSearchCache = new BookSearchCache(bookSearchEngine, bookMapper, properties, new SimpleMeterRegistry());
+        var book = new BookView(1L, "Harry Potter", null, null, null, 1997, null, 1, null, null);
+        lenient().when(bookSearchEngine.search(any(), any())).thenAnswer(invocation ->
+                new PageImpl<>(List.of(book), invocation.getArgument(1), 1));
+        lenient().when(bookMapper.toDTO(book)).thenReturn(new BookDTO());
+    }
+
+    @Test
+    void search_samePageIsServedFromCache() {
+        var first = bookSearchCache.search("Harry", pageable);
+        var second = bookSearchCache.search("harry", PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        assertSame(first, second);
+        verify(bookSearchEngine, times(1)).search(eq("harry"), any());
+    }
+
+    @Test
+    void search_differentPageIsLoaded() {
+        bookSearchCache.search("harry", pageable);
+        bookSearchCache.search("harry", PageRequest.of(1, 10, pageable.getSort()));
+
+        verify(bookSearchEngine, times(2)).search(eq("harry"), any());
+    }
+
+    @Test
+    void catalogChanged_dropsCachedPages() {
+        bookSearchCache.search("harry", pageable);
+        bookSearchCache.catalogChanged();
+        bookSearchCache.search("harry", pageable);
+
+        verify(bookSearchEngine, times(2)).search("harry", pageable);
+    }
+
+    @Test
+    void search_disabled_alwaysLoads() {
+        properties.setEnabled(false);
+
+        bookSearchCache.search("harry", pageable);
+        bookSearchCache.search("harry", pageable);
+
+        verify(bookSearchEngine, times(2)).search("harry", pageable);
+    }
+}
@@ -1,12 +1,16 @@
 package com.interswitch.bookstore.services;
 
 import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.exceptions.BadRequestException;
 import com.interswitch.bookstore.exceptions.NotFoundException;
 import com.interswitch.bookstore.mappers.BookMapper;
+import com.interswitch.bookstore.projections.BookView;
 import com.interswitch.bookstore.repositories.BookRepository;
 import com.interswitch.bookstore.requests.BookAddDTO;
 import com.interswitch.bookstore.requests.BookUpdateDTO;
+import com.interswitch.bookstore.requests.KeysetCursor;
 import com.interswitch.bookstore.responses.BookDTO;
+import com.interswitch.bookstore.responses.CursorPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,8 +21,12 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,6 +43,12 @@ class BookServiceTest {
     @Mock
     private BookMapper bookMapper;
 
+    @Mock
+    private BookSearchEngine bookSearchEngine;
+
+    @Mock
+    private BookSearchCache bookSearchCache;
+
     @InjectMocks
     private BookService bookService;
 
@@ -66,37 +80,61 @@ class BookServiceTest {
     @Test
     void searchBooks_success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Book> bookPage = new PageImpl<>(List.of(book));
-        when(bookRepository.searchBooks("test", pageable)).thenReturn(bookPage);
-        when(bookMapper.toDTO(book)).thenReturn(bookDTO);
+        Page<BookDTO> bookPage = new PageImpl<>(List.of(bookDTO));
+        when(bookSearchCache.search("test", pageable)).thenReturn(bookPage);
 
         Page<BookDTO> result = bookService.searchBooks("test", pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getTotalElements());
-        verify(bookRepository).searchBooks("test", pageable);
-        verify(bookMapper).toDTO(book);
+        verify(bookSearchCache).search("test", pageable);
+    }
+
+    @Test
+    void scrollBooks_success() {
+        var createdAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        var cursor = new KeysetCursor(createdAt, 5L);
+        var newer = view(1L, createdAt.minusDays(1));
+        var older = view(2L, createdAt.minusDays(1));
+        when(bookSearchEngine.scroll("test", cursor, Sort.Direction.DESC, 2)).thenReturn(List.of(newer, older));
+        when(bookMapper.toDTO(newer)).thenReturn(bookDTO);
+
+        CursorPage<BookDTO> result = bookService.scrollBooks("test", cursor.encode(), 1, Sort.Direction.DESC);
+
+        assertEquals(List.of(bookDTO), result.content());
+        assertTrue(result.hasNext());
+        assertEquals(new KeysetCursor(newer.createdAt(), 1L), KeysetCursor.decode(result.nextCursor()));
+        verify(bookMapper, never()).toDTO(older);
+    }
+
+    @Test
+    void scrollBooks_invalidCursor() {
+        assertThrows(BadRequestException.class,
+                () -> bookService.scrollBooks("test", "not-a-cursor", 10, Sort.Direction.DESC));
+        verifyNoInteractions(bookSearchEngine, bookMapper);
     }
 
     @Test
     void findBookById_success() {
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
-        when(bookMapper.toDTO(book)).thenReturn(bookDTO);
+        var view = view(1L, LocalDateTime.of(2024, 1, 1, 0, 0));
+        when(bookRepository.findViewById(1L)).thenReturn(Optional.of(view));
+        when(bookMapper.toDTO(view)).thenReturn(bookDTO);
 
         BookDTO result = bookService.findBookById(1L);
 
         assertNotNull(result);
         assertEquals(bookDTO, result);
-        verify(bookRepository).findById(1L);
-        verify(bookMapper).toDTO(book);
+        verify(bookRepository).findViewById(1L);
+        verify(bookRepository, never()).findById(any());
+        verify(bookMapper).toDTO(view);
     }
 
     @Test
     void findBookById_notFound() {
-        when(bookRepository.findById(1L)).thenReturn(Optional.empty());
+        when(bookRepository.findViewById(1L)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> bookService.findBookById(1L));
-        verify(bookRepository).findById(1L);
+        verify(bookRepository).findViewById(1L);
         verifyNoInteractions(bookMapper);
     }
 
@@ -112,6 +150,8 @@ class BookServiceTest {
         assertEquals(bookDTO, result);
         verify(bookMapper).toEntity(bookAddDTO);
         verify(bookRepository).save(book);
+        verify(bookSearchEngine).index(book);
+        verify(bookSearchCache).catalogChanged();
         verify(bookMapper).toDTO(book);
     }
 
@@ -127,9 +167,29 @@ class BookServiceTest {
         assertEquals(bookDTO, result);
         verify(bookRepository).findById(1L);
         verify(bookRepository).save(book);
+        verify(bookSearchEngine).index(book);
+        verify(bookSearchCache).catalogChanged();
         verify(bookMapper).toDTO(book);
     }
 
+    @Test
+    void updateBook_indexedOnceCommitted() {
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookRepository.save(book)).thenReturn(book);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            bookService.updateBook(1L, bookUpdateDTO);
+            verifyNoInteractions(bookSearchEngine, bookSearchCache);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(bookSearchEngine).index(book);
+        verify(bookSearchCache).catalogChanged();
+    }
+
     @Test
     void updateBook_notFound() {
         when(bookRepository.findById(1L)).thenReturn(Optional.empty());
@@ -137,5 +197,10 @@ class BookServiceTest {
         assertThrows(NotFoundException.class, () -> bookService.updateBook(1L, bookUpdateDTO));
         verify(bookRepository).findById(1L);
         verifyNoMoreInteractions(bookRepository, bookMapper);
+        verifyNoInteractions(bookSearchEngine, bookSearchCache);
+    }
+
+    private static BookView view(Long id, LocalDateTime createdAt) {
+        return new BookView(id, "Test Book", null, null, null, 2000, BigDecimal.TEN, 1, createdAt, null);
     }
-}
\ No newline at end of file
+}
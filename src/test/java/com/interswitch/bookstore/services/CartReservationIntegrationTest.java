@@ -0,0 +1,105 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.requests.CartAddDTO;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "bookstore.payment.relay-enabled=false",
+        "bookstore.cart.reservation-enabled=true",
+        "bookstore.cart.reservation-ttl=300ms",
+        "bookstore.cart.reservation-tick=10ms"
+})
+class CartReservationIntegrationTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Test
+    void addToCart_reservesStockUntilCheckout() {
+        var bookId = createBook(3);
+        addToCart(601L, bookId, 2);
+
+        assertEquals(1, stockOf(bookId));
+        assertThrows(BadRequestException.class, () -> addToCart(602L, bookId, 2));
+
+        purchaseService.checkout(checkout(601L), null);
+
+        assertEquals(1, stockOf(bookId));
+    }
+
+    @Test
+    void addToCart_expiredReservationReturnsStock() throws InterruptedException {
+        var bookId = createBook(3);
+        addToCart(611L, bookId, 2);
+        assertEquals(1, stockOf(bookId));
+
+        var deadline = System.currentTimeMillis() + 5_000;
+        while (stockOf(bookId) != 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(3, stockOf(bookId));
+        // An expired cart checks out by taking the stock again
+        purchaseService.checkout(checkout(611L), null);
+        assertEquals(1, stockOf(bookId));
+    }
+
+    @Test
+    void clearCart_releasesReservation() {
+        var bookId = createBook(3);
+        addToCart(621L, bookId, 2);
+
+        cartService.clearCart(621L);
+
+        assertEquals(3, stockOf(bookId));
+    }
+
+    private Long createBook(int stock) {
+        var book = new Book();
+        book.setTitle("Reserved");
+        book.setAuthor("Author");
+        book.setGenre(Genre.FICTION);
+        book.setPublicationYear(2000);
+        book.setPrice(BigDecimal.TEN);
+        book.setQuantityInStock(stock);
+        return bookRepository.save(book).getId();
+    }
+
+    private void addToCart(Long userId, Long bookId, int quantity) {
+        var request = new CartAddDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        request.setQuantity(quantity);
+        cartService.addToCart(request);
+    }
+
+    private static PurchaseCheckoutDTO checkout(Long userId) {
+        var request = new PurchaseCheckoutDTO();
+        request.setUserId(userId);
+        request.setPaymentMethod(PaymentMethod.WEB);
+        return request;
+    }
+
+    private int stockOf(Long bookId) {
+        return bookRepository.findViewById(bookId).orElseThrow().quantityInStock();
+    }
+}
@@ -5,7 +5,11 @@ import com.interswitch.bookstore.domains.Cart;
 import com.interswitch.bookstore.exceptions.BadRequestException;
 import com.interswitch.bookstore.exceptions.NotFoundException;
 import com.interswitch.bookstore.mappers.CartMapper;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.projections.CartItemView;
+import com.interswitch.bookstore.projections.CartView;
 import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.repositories.CartItemRepository;
 import com.interswitch.bookstore.repositories.CartRepository;
 import com.interswitch.bookstore.requests.CartAddDTO;
 import com.interswitch.bookstore.responses.CartDTO;
@@ -17,6 +21,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,12 +34,24 @@ class CartServiceTest {
     @Mock
     private CartRepository cartRepository;
 
+    @Mock
+    private CartItemRepository cartItemRepository;
+
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private CartReservationService cartReservationService;
+
     @Mock
     private CartMapper cartMapper;
 
+    @Mock
+    private ReadYourWrites readYourWrites;
+
     @InjectMocks
     private CartService cartService;
 
@@ -63,8 +80,9 @@ class CartServiceTest {
 
     @Test
     void addToCart_newCart_success() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.empty());
+        when(cartRepository.findWithItemsByUserId(1L)).thenReturn(Optional.empty());
         when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(inventoryService.available(book)).thenReturn(10);
         when(cartRepository.save(any(Cart.class))).thenReturn(cart);
         when(cartMapper.toDTO(cart)).thenReturn(cartDTO);
 
@@ -72,16 +90,18 @@ class CartServiceTest {
 
         assertNotNull(result);
         assertEquals(cartDTO, result);
-        verify(cartRepository).findByUserId(1L);
+        verify(cartRepository).findWithItemsByUserId(1L);
         verify(bookRepository).findById(1L);
         verify(cartRepository).save(any(Cart.class));
         verify(cartMapper).toDTO(cart);
+        verify(readYourWrites).wrote(1L);
     }
 
     @Test
     void addToCart_existingCart_success() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
+        when(cartRepository.findWithItemsByUserId(1L)).thenReturn(Optional.of(cart));
         when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(inventoryService.available(book)).thenReturn(10);
         when(cartRepository.save(cart)).thenReturn(cart);
         when(cartMapper.toDTO(cart)).thenReturn(cartDTO);
 
@@ -89,7 +109,7 @@ class CartServiceTest {
 
         assertNotNull(result);
         assertEquals(cartDTO, result);
-        verify(cartRepository).findByUserId(1L);
+        verify(cartRepository).findWithItemsByUserId(1L);
         verify(bookRepository).findById(1L);
         verify(cartRepository).save(cart);
         verify(cartMapper).toDTO(cart);
@@ -97,59 +117,75 @@ class CartServiceTest {
 
     @Test
     void addToCart_bookNotFound() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
+        when(cartRepository.findWithItemsByUserId(1L)).thenReturn(Optional.of(cart));
         when(bookRepository.findById(1L)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> cartService.addToCart(cartAddDTO));
-        verify(cartRepository).findByUserId(1L);
+        verify(cartRepository).findWithItemsByUserId(1L);
         verify(bookRepository).findById(1L);
         verifyNoMoreInteractions(cartRepository, cartMapper);
     }
 
     @Test
     void addToCart_insufficientStock() {
-        book.setQuantityInStock(1);
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
+        when(cartRepository.findWithItemsByUserId(1L)).thenReturn(Optional.of(cart));
         when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(inventoryService.available(book)).thenReturn(1);
 
         assertThrows(BadRequestException.class, () -> cartService.addToCart(cartAddDTO));
-        verify(cartRepository).findByUserId(1L);
+        verify(cartRepository).findWithItemsByUserId(1L);
         verify(bookRepository).findById(1L);
         verifyNoMoreInteractions(cartRepository, cartMapper);
     }
 
     @Test
     void getCart_success() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(cartMapper.toDTO(cart)).thenReturn(cartDTO);
+        var view = new CartView(5L, 1L, null, null);
+        var item = new CartItemView(9L, 2, null, null, BookView.of(book));
+        when(cartRepository.findViewByUserId(1L)).thenReturn(Optional.of(view));
+        when(cartRepository.findItemViews(5L)).thenReturn(List.of(item));
+        when(cartMapper.toDTO(view.withItems(List.of(item)))).thenReturn(cartDTO);
 
         CartDTO result = cartService.getCart(1L);
 
         assertNotNull(result);
         assertEquals(cartDTO, result);
-        verify(cartRepository).findByUserId(1L);
-        verify(cartMapper).toDTO(cart);
+        verify(cartRepository).findViewByUserId(1L);
+        verify(cartRepository, never()).findByUserId(any());
+        verify(readYourWrites).reading(1L);
     }
 
     @Test
     void getCart_notFound() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.empty());
+        when(cartRepository.findViewByUserId(1L)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> cartService.getCart(1L));
-        verify(cartRepository).findByUserId(1L);
+        verify(cartRepository).findViewByUserId(1L);
+        verify(cartRepository, never()).findItemViews(any());
         verifyNoInteractions(cartMapper);
     }
 
     @Test
     void clearCart_success() {
+        cart.setId(5L);
         when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(cartRepository.save(cart)).thenReturn(cart);
 
         cartService.clearCart(1L);
 
         assertTrue(cart.getItems().isEmpty());
         verify(cartRepository).findByUserId(1L);
-        verify(cartRepository).save(cart);
+        verify(cartItemRepository).deleteByCartId(5L);
+        verify(cartRepository, never()).save(any());
+    }
+
+    @Test
+    void clearCart_loadedCart_doesNotReloadIt() {
+        cart.setId(5L);
+
+        cartService.clearCart(cart);
+
+        verify(cartItemRepository).deleteByCartId(5L);
+        verifyNoInteractions(cartRepository);
     }
 
     @Test
@@ -159,5 +195,6 @@ class CartServiceTest {
         assertThrows(NotFoundException.class, () -> cartService.clearCart(1L));
         verify(cartRepository).findByUserId(1L);
         verifyNoMoreInteractions(cartRepository);
+        verifyNoInteractions(cartItemRepository);
     }
 }
\ No newline at end of file
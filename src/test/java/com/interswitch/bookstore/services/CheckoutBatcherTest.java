@@ -0,0 +1,175 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.CheckoutProperties;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.exceptions.CheckoutPendingException;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.responses.PurchaseDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckoutBatcherTest {
+
+    private CheckoutProperties properties;
+
+    private List<Integer> batchSizes;
+
+    private CheckoutBatcher checkoutBatcher;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CheckoutProperties();
+        properties.setBatchWindow(Duration.ofMillis(200));
+        properties.setBatchMaxSize(8);
+        properties.setBatchDispatchers(1);
+        batchSizes = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        checkoutBatcher.shutdown();
+    }
+
+    @Test
+    void submit_concurrentCheckoutsShareOneBatch() throws Exception {
+        checkoutBatcher = new CheckoutBatcher(properties, this::placeAll, CheckoutBatcherTest::place);
+
+        var results = submitConcurrently(1L, 2L, 3L, 4L);
+
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i + 1L, results.get(i).get(5, TimeUnit.SECONDS).getUserId());
+        }
+        assertEquals(List.of(4), batchSizes);
+    }
+
+    @Test
+    void submit_batchIsCappedAtMaxSize() throws Exception {
+        properties.setBatchMaxSize(2);
+        checkoutBatcher = new CheckoutBatcher(properties, this::placeAll, CheckoutBatcherTest::place);
+
+        var results = submitConcurrently(1L, 2L, 3L, 4L);
+
+        for (var result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(4, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 2));
+    }
+
+    @Test
+    void submit_failingMemberFallsBackToSingleCheckouts() throws Exception {
+        Function<PurchaseCheckoutDTO, PurchaseDTO> single = request -> {
+            if (request.getUserId() == 2L) {
+                throw new BadRequestException("Cannot checkout empty cart.");
+            }
+            return place(request);
+        };
+        checkoutBatcher = new CheckoutBatcher(properties, requests -> {
+            batchSizes.add(requests.size());
+            return requests.stream().map(single).toList();
+        }, single);
+
+        var results = submitConcurrently(1L, 2L, 3L);
+
+        assertEquals(1L, results.get(0).get(5, TimeUnit.SECONDS).getUserId());
+        var failure = assertThrows(ExecutionException.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(BadRequestException.class, failure.getCause());
+        assertEquals(3L, results.get(2).get(5, TimeUnit.SECONDS).getUserId());
+        assertEquals(List.of(3), batchSizes);
+    }
+
+    @Test
+    void submit_errorInBatchFailsItsMembersAndKeepsDispatching() throws Exception {
+        Function<PurchaseCheckoutDTO, PurchaseDTO> single = request -> {
+            if (request.getUserId() == 2L) {
+                throw new StackOverflowError();
+            }
+            return place(request);
+        };
+        checkoutBatcher = new CheckoutBatcher(properties, requests -> {
+            throw new IllegalStateException("batch failed");
+        }, single);
+
+        var results = submitConcurrently(1L, 2L);
+
+        var failure = assertThrows(ExecutionException.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, failure.getCause());
+        assertEquals(1L, results.get(0).get(5, TimeUnit.SECONDS).getUserId());
+        assertEquals(3L, checkoutBatcher.submit(request(3L)).getUserId());
+    }
+
+    @Test
+    void submit_givesUpAfterWaitTimeout() throws Exception {
+        properties.setBatchWindow(Duration.ZERO);
+        properties.setBatchWaitTimeout(Duration.ofMillis(100));
+        var release = new CountDownLatch(1);
+        checkoutBatcher = new CheckoutBatcher(properties, this::placeAll, request -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return place(request);
+        });
+
+        try {
+            var pending = assertThrows(CheckoutPendingException.class, () -> checkoutBatcher.submit(request(1L)));
+            release.countDown();
+            assertEquals(1L, pending.getOutcome().get(5, TimeUnit.SECONDS).getUserId());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void submit_rejectedAfterShutdown() throws Exception {
+        checkoutBatcher = new CheckoutBatcher(properties, this::placeAll, CheckoutBatcherTest::place);
+        checkoutBatcher.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> checkoutBatcher.submit(request(1L)));
+    }
+
+    private List<CompletableFuture<PurchaseDTO>> submitConcurrently(Long... userIds) throws InterruptedException {
+        var ready = new CountDownLatch(userIds.length);
+        var results = new ArrayList<CompletableFuture<PurchaseDTO>>();
+        for (var userId : userIds) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                ready.countDown();
+                return checkoutBatcher.submit(request(userId));
+            }));
+        }
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        return results;
+    }
+
+    private List<PurchaseDTO> placeAll(List<PurchaseCheckoutDTO> requests) {
+        batchSizes.add(requests.size());
+        return requests.stream().map(CheckoutBatcherTest::place).toList();
+    }
+
+    private static PurchaseDTO place(PurchaseCheckoutDTO request) {
+        var purchase = new PurchaseDTO();
+        purchase.setUserId(request.getUserId());
+        return purchase;
+    }
+
+    private static PurchaseCheckoutDTO request(Long userId) {
+        var request = new PurchaseCheckoutDTO();
+        request.setUserId(userId);
+        return request;
+    }
+}
@@ -0,0 +1,166 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.requests.CartAddDTO;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class CheckoutConcurrencyTest {
+    private static final int STOCK = 5;
+    private static final int BUYERS = 20;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private DatabaseInventoryService inventoryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void checkout_concurrentBuyersNeverOversell() throws Exception {
+        var bookId = createBook(STOCK);
+        fillCarts(301, bookId, 1);
+
+        assertEquals(STOCK, checkOutConcurrently(301));
+        assertEquals(0, bookRepository.findViewById(bookId).orElseThrow().quantityInStock());
+    }
+
+    @Test
+    void checkout_flashSaleShardsNeverOversell() throws Exception {
+        var bookId = createBook(STOCK * 2);
+        inventoryService.startFlashSale(bookId, 4);
+        fillCarts(401, bookId, 1);
+
+        assertEquals(STOCK * 2, checkOutConcurrently(401));
+        inventoryService.syncFlashSales();
+        assertEquals(0, bookRepository.findViewById(bookId).orElseThrow().quantityInStock());
+        inventoryService.endFlashSale(bookId);
+        assertEquals(0, bookRepository.findViewById(bookId).orElseThrow().quantityInStock());
+    }
+
+    @Test
+    void checkout_flashSalePoolsShardsForLargeQuantity() {
+        var bookId = createBook(8);
+        inventoryService.startFlashSale(bookId, 4);
+        var request = new CartAddDTO();
+        request.setUserId(501L);
+        request.setBookId(bookId);
+        request.setQuantity(5);
+        cartService.addToCart(request);
+        var checkout = new PurchaseCheckoutDTO();
+        checkout.setUserId(501L);
+        checkout.setPaymentMethod(PaymentMethod.WEB);
+
+        purchaseService.checkout(checkout, null);
+
+        inventoryService.endFlashSale(bookId);
+        assertEquals(3, bookRepository.findViewById(bookId).orElseThrow().quantityInStock());
+    }
+
+    @Test
+    void updateBook_keepsStockTakenByConcurrentCheckout() {
+        var bookId = createBook(STOCK);
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                var book = bookRepository.findById(bookId).orElseThrow();
+                // A checkout takes copies out of stock and commits while the book is loaded
+                try {
+                    executor.submit(() -> transactionTemplate.executeWithoutResult(checkout ->
+                            bookRepository.decrementStock(new TreeMap<>(Map.of(bookId, 2))))).get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                book.setTitle("Renamed");
+            });
+        } finally {
+            executor.shutdown();
+        }
+
+        var book = bookRepository.findViewById(bookId).orElseThrow();
+        assertEquals("Renamed", book.title());
+        assertEquals(STOCK - 2, book.quantityInStock());
+    }
+
+    private Long createBook(int stock) {
+        var book = new Book();
+        book.setTitle("Flash Sale");
+        book.setAuthor("Author");
+        book.setGenre(Genre.FICTION);
+        book.setPublicationYear(2000);
+        book.setPrice(BigDecimal.TEN);
+        book.setQuantityInStock(stock);
+        return bookRepository.save(book).getId();
+    }
+
+    private void fillCarts(long firstUserId, Long bookId, int quantity) {
+        for (long userId = firstUserId; userId < firstUserId + BUYERS; userId++) {
+            var request = new CartAddDTO();
+            request.setUserId(userId);
+            request.setBookId(bookId);
+            request.setQuantity(quantity);
+            cartService.addToCart(request);
+        }
+    }
+
+    // Checks out the carts of all buyers at once and returns the number of successful checkouts
+    private int checkOutConcurrently(long firstUserId) throws Exception {
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(BUYERS);
+        var results = new ArrayList<Future<?>>();
+        try {
+            for (long userId = firstUserId; userId < firstUserId + BUYERS; userId++) {
+                var request = new PurchaseCheckoutDTO();
+                request.setUserId(userId);
+                request.setPaymentMethod(PaymentMethod.WEB);
+                results.add(executor.submit((Callable<?>) () -> {
+                    start.await();
+                    return purchaseService.checkout(request, null);
+                }));
+            }
+            start.countDown();
+
+            var sold = 0;
+            for (var result : results) {
+                try {
+                    result.get();
+                    sold++;
+                } catch (ExecutionException ex) {
+                    assertInstanceOf(BadRequestException.class, ex.getCause());
+                }
+            }
+            return sold;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
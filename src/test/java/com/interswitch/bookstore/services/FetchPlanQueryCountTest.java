@@ -0,0 +1,137 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.requests.CartAddDTO;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.support.StatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "bookstore.payment.relay-enabled=false",
+        StatementCounter.PROPERTY
+})
+class FetchPlanQueryCountTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Test
+    void getCart_queryCountDoesNotDependOnCartSize() {
+        fillCart(101L, books(1));
+        fillCart(102L, books(10));
+
+        var small = countSelects(() -> cartService.getCart(101L));
+        var large = countSelects(() -> cartService.getCart(102L));
+
+        assertEquals(2, small);
+        assertEquals(small, large);
+    }
+
+    @Test
+    void getPurchaseHistory_queryCountDoesNotDependOnPageSize() {
+        purchase(103L, 1, 1);
+        purchase(104L, 10, 5);
+
+        var small = countSelects(() -> purchaseService.getPurchaseHistory(103L, PageRequest.of(0, 20)));
+        var large = countSelects(() -> purchaseService.getPurchaseHistory(104L, PageRequest.of(0, 20)));
+
+        assertTrue(small <= 3, "page, count and items queries at most");
+        assertEquals(small, large);
+    }
+
+    @Test
+    void addToCart_queryCountDoesNotDependOnCartSize() {
+        fillCart(105L, books(1));
+        fillCart(106L, books(10));
+        var extra = books(2);
+
+        var small = countSelects(() -> cartService.addToCart(addRequest(105L, extra.get(0).getId())));
+        var large = countSelects(() -> cartService.addToCart(addRequest(106L, extra.get(1).getId())));
+
+        assertEquals(2, small);
+        assertEquals(small, large);
+    }
+
+    @Test
+    void checkout_roundTripsDoNotDependOnCartSize() {
+        fillCart(107L, books(1));
+        fillCart(108L, books(10));
+
+        var smallSelects = countSelects(() -> purchaseService.checkout(checkoutRequest(107L)));
+        var smallUpdates = StatementCounter.count("update");
+        var largeSelects = countSelects(() -> purchaseService.checkout(checkoutRequest(108L)));
+        var largeUpdates = StatementCounter.count("update");
+
+        assertEquals(smallSelects, largeSelects);
+        // Stock is decremented by one conditional JDBC batch, so no book entity is loaded or flushed
+        assertEquals(0, smallUpdates);
+        assertEquals(0, largeUpdates);
+    }
+
+    private long countSelects(Runnable operation) {
+        StatementCounter.reset();
+        operation.run();
+        return StatementCounter.count("select");
+    }
+
+    private void purchase(Long userId, int purchases, int itemsPerPurchase) {
+        for (int i = 0; i < purchases; i++) {
+            fillCart(userId, books(itemsPerPurchase));
+            purchaseService.checkout(checkoutRequest(userId));
+        }
+    }
+
+    private void fillCart(Long userId, List<Book> books) {
+        books.forEach(book -> cartService.addToCart(addRequest(userId, book.getId())));
+    }
+
+    private List<Book> books(int count) {
+        var books = new ArrayList<Book>();
+        for (int i = 0; i < count; i++) {
+            var book = new Book();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setGenre(Genre.FICTION);
+            book.setPublicationYear(2000);
+            book.setPrice(BigDecimal.TEN);
+            book.setQuantityInStock(10);
+            books.add(book);
+        }
+        return bookRepository.saveAll(books);
+    }
+
+    private static CartAddDTO addRequest(Long userId, Long bookId) {
+        var request = new CartAddDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        request.setQuantity(1);
+        return request;
+    }
+
+    private static PurchaseCheckoutDTO checkoutRequest(Long userId) {
+        var request = new PurchaseCheckoutDTO();
+        request.setUserId(userId);
+        request.setPaymentMethod(PaymentMethod.WEB);
+        return request;
+    }
+}
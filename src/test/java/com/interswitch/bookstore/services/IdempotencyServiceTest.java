@@ -0,0 +1,180 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.CheckoutProperties;
+import com.interswitch.bookstore.configs.IdempotencyProperties;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.exceptions.CheckoutPendingException;
+import com.interswitch.bookstore.exceptions.ConflictException;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.responses.PurchaseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+    private IdempotencyProperties properties;
+
+    private IdempotencyService idempotencyService;
+
+    private PurchaseCheckoutDTO request;
+
+    private PurchaseDTO purchase;
+
+    private AtomicInteger checkouts;
+
+    @BeforeEach
+    void setUp() {
+        properties = new IdempotencyProperties();
+        idempotencyService = new IdempotencyService(properties, new SimpleMeterRegistry());
+
+        request = checkoutRequest(1L, PaymentMethod.WEB);
+        purchase = new PurchaseDTO();
+        purchase.setId(7L);
+        checkouts = new AtomicInteger();
+    }
+
+    @Test
+    void execute_duplicateReturnsOriginalPurchase() {
+        var first = idempotencyService.execute("key-1", request, this::checkout);
+        var retry = idempotencyService.execute("key-1", checkoutRequest(1L, PaymentMethod.WEB), this::checkout);
+
+        assertSame(purchase, first);
+        assertSame(purchase, retry);
+        assertEquals(1, checkouts.get());
+    }
+
+    @Test
+    void execute_rejectsKeyReusedByAnotherUser() {
+        idempotencyService.execute("key-1", request, this::checkout);
+
+        assertThrows(BadRequestException.class, () ->
+                idempotencyService.execute("key-1", checkoutRequest(2L, PaymentMethod.WEB), this::checkout));
+        assertEquals(1, checkouts.get());
+    }
+
+    @Test
+    void execute_duplicateWaitsForCheckoutInProgress() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var original = CompletableFuture.supplyAsync(() -> idempotencyService.execute("key-1", request, () -> {
+            started.countDown();
+            await(release);
+            return checkout();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        var retry = CompletableFuture.supplyAsync(() -> idempotencyService.execute("key-1", request, this::checkout));
+        release.countDown();
+
+        assertSame(purchase, original.get(5, TimeUnit.SECONDS));
+        assertSame(purchase, retry.get(5, TimeUnit.SECONDS));
+        assertEquals(1, checkouts.get());
+    }
+
+    @Test
+    void execute_duplicateGivesUpAfterWaitTimeout() throws Exception {
+        properties.setWaitTimeout(Duration.ofMillis(50));
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var original = CompletableFuture.supplyAsync(() -> idempotencyService.execute("key-1", request, () -> {
+            started.countDown();
+            await(release);
+            return checkout();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ConflictException.class, () -> idempotencyService.execute("key-1", request, this::checkout));
+        release.countDown();
+        original.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void execute_batchTimeoutKeepsKeyUntilCheckoutIsPlaced() throws Exception {
+        var checkoutProperties = new CheckoutProperties();
+        checkoutProperties.setBatchWindow(Duration.ZERO);
+        checkoutProperties.setBatchDispatchers(1);
+        checkoutProperties.setBatchWaitTimeout(Duration.ofMillis(100));
+        var release = new CountDownLatch(1);
+        var batcher = new CheckoutBatcher(checkoutProperties,
+                requests -> requests.stream().map(ignored -> checkout()).toList(), ignored -> {
+                    await(release);
+                    return checkout();
+                });
+        try {
+            assertThrows(CheckoutPendingException.class,
+                    () -> idempotencyService.execute("key-1", request, () -> batcher.submit(request)));
+            release.countDown();
+
+            assertSame(purchase, idempotencyService.execute("key-1", request, () -> batcher.submit(request)));
+            assertEquals(1, checkouts.get());
+        } finally {
+            release.countDown();
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    void execute_failedCheckoutIsNotRemembered() {
+        assertThrows(BadRequestException.class, () -> idempotencyService.execute("key-1", request, () -> {
+            throw new BadRequestException("Cannot checkout empty cart.");
+        }));
+
+        assertSame(purchase, idempotencyService.execute("key-1", request, this::checkout));
+    }
+
+    @Test
+    void execute_checkoutEndingInErrorIsNotRemembered() {
+        assertThrows(StackOverflowError.class, () -> idempotencyService.execute("key-1", request, () -> {
+            throw new StackOverflowError();
+        }));
+
+        assertSame(purchase, idempotencyService.execute("key-1", request, this::checkout));
+        assertEquals(1, checkouts.get());
+    }
+
+    @Test
+    void execute_rejectsKeyReusedForDifferentRequest() {
+        idempotencyService.execute("key-1", request, this::checkout);
+
+        assertThrows(BadRequestException.class, () ->
+                idempotencyService.execute("key-1", checkoutRequest(1L, PaymentMethod.USSD), this::checkout));
+        assertEquals(1, checkouts.get());
+    }
+
+    @Test
+    void execute_rejectsOverlongKey() {
+        assertThrows(BadRequestException.class, () ->
+                idempotencyService.execute("k".repeat(256), request, this::checkout));
+        assertEquals(0, checkouts.get());
+    }
+
+    private PurchaseDTO checkout() {
+        checkouts.incrementAndGet();
+        return purchase;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PurchaseCheckoutDTO checkoutRequest(Long userId, PaymentMethod paymentMethod) {
+        var request = new PurchaseCheckoutDTO();
+        request.setUserId(userId);
+        request.setPaymentMethod(paymentMethod);
+        return request;
+    }
+}
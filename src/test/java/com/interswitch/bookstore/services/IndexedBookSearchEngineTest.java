@@ -0,0 +1,119 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.repositories.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.*;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndexedBookSearchEngineTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private IndexedBookSearchEngine searchEngine;
+
+    private Book hobbit;
+    private Book dune;
+    private Book it;
+
+    @BeforeEach
+    void setUp() {
+        hobbit = book(1L, "The Hobbit", "Tolkien", Genre.FICTION, 1937, 1);
+        dune = book(2L, "Dune", "Frank Herbert", Genre.FICTION, 1965, 2);
+        it = book(3L, "It", "Stephen King", Genre.HORROR, 1986, 3);
+        searchEngine.index(hobbit);
+        searchEngine.index(dune);
+        searchEngine.index(it);
+        lenient().when(bookRepository.findViewsByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return Stream.of(hobbit, dune, it).filter(book -> ids.contains(book.getId())).map(BookView::of).toList();
+        });
+    }
+
+    @Test
+    void search_matchesSubstringAcrossFields() {
+        var byTitle = searchEngine.search("HOBB", PageRequest.of(0, 10));
+        var byAuthor = searchEngine.search("herb", PageRequest.of(0, 10));
+        var byYear = searchEngine.search("98", PageRequest.of(0, 10));
+        var byGenre = searchEngine.search("fict", PageRequest.of(0, 10, Sort.by("id")));
+
+        assertEquals(views(hobbit), byTitle.getContent());
+        assertEquals(views(dune), byAuthor.getContent());
+        assertEquals(views(it), byYear.getContent());
+        assertEquals(views(hobbit, dune), byGenre.getContent());
+        verify(bookRepository, never()).searchBooks(any(), any());
+    }
+
+    @Test
+    void search_sortsAndPagesInIndex() {
+        var result = searchEngine.search(null, PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        assertEquals(3, result.getTotalElements());
+        assertEquals(2, result.getTotalPages());
+        assertEquals(views(hobbit), result.getContent());
+    }
+
+    @Test
+    void index_replacesPreviousVersion() {
+        hobbit.setTitle("There and Back Again");
+        searchEngine.index(hobbit);
+
+        assertTrue(searchEngine.search("hobbit", PageRequest.of(0, 10)).isEmpty());
+        assertEquals(views(hobbit), searchEngine.search("back again", PageRequest.of(0, 10)).getContent());
+    }
+
+    @Test
+    void search_unsupportedSort_fallsBackToRepository() {
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("quantityInStock"));
+        Page<BookView> page = new PageImpl<>(List.of(BookView.of(dune)));
+        when(bookRepository.searchBooks("dune", pageable)).thenReturn(page);
+
+        assertEquals(page, searchEngine.search("dune", pageable));
+        verify(bookRepository).searchBooks("dune", pageable);
+    }
+
+    @Test
+    void rebuild_loadsAllBooksFromRepository() {
+        when(bookRepository.findAllBy(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(BookView.of(dune)), PageRequest.of(0, 1000), false));
+
+        searchEngine.rebuild();
+
+        assertEquals(1, searchEngine.search(null, PageRequest.of(0, 10)).getTotalElements());
+        assertTrue(searchEngine.search("hobbit", PageRequest.of(0, 10)).isEmpty());
+    }
+
+    private static Book book(Long id, String title, String author, Genre genre, int year, int day) {
+        var book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setGenre(genre);
+        book.setPublicationYear(year);
+        book.setCreatedAt(LocalDateTime.of(2024, 1, day, 0, 0));
+        return book;
+    }
+
+    private static List<BookView> views(Book... books) {
+        return Stream.of(books).map(BookView::of).toList();
+    }
+}
@@ -0,0 +1,65 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.repositories.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "bookstore.payment.relay-enabled=false",
+        "bookstore.search.engine=jpa",
+        "spring.datasource.url=jdbc:h2:mem:search-${random.uuid};DB_CLOSE_DELAY=-1"
+})
+class JpaBookSearchEngineTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JpaBookSearchEngine searchEngine;
+
+    @Test
+    void search_matchesWildcardsLiterally() {
+        var discount = save("50% Off");
+        var code = save("Snake_Case");
+        save("500 Offers");
+        save("Snake Cases");
+        var index = new IndexedBookSearchEngine(bookRepository);
+        index.rebuild();
+        var pageable = PageRequest.of(0, 10, Sort.by("id"));
+
+        assertEquals(List.of(discount), ids(searchEngine.search("50%", pageable).getContent()));
+        assertEquals(List.of(code), ids(searchEngine.search("e_c", pageable).getContent()));
+        assertEquals(List.of(code), ids(searchEngine.scroll("e_c", null, Sort.Direction.ASC, 10)));
+        assertEquals(ids(searchEngine.search("50%", pageable).getContent()),
+                ids(index.search("50%", pageable).getContent()));
+        assertEquals(ids(searchEngine.search("e_c", pageable).getContent()),
+                ids(index.search("e_c", pageable).getContent()));
+    }
+
+    private Long save(String title) {
+        var book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setGenre(Genre.FICTION);
+        book.setPublicationYear(2000);
+        book.setPrice(BigDecimal.TEN);
+        book.setQuantityInStock(1);
+        return bookRepository.save(book).getId();
+    }
+
+    private static List<Long> ids(List<BookView> books) {
+        return books.stream().map(BookView::id).toList();
+    }
+}
@@ -0,0 +1,275 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.InventoryProperties;
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.repositories.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MemoryInventoryServiceTest {
+
+    @TempDir
+    private Path journalDir;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private BookCacheInvalidator bookCacheInvalidator;
+
+    private InventoryProperties properties;
+
+    // Journal generation recorded in the database
+    private final AtomicReference<Long> flushedGeneration = new AtomicReference<>();
+
+    private MemoryInventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new InventoryProperties();
+        properties.setJournalDir(journalDir);
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(bookRepository.findFlushedJournalGeneration())
+                .thenAnswer(invocation -> Optional.ofNullable(flushedGeneration.get()));
+        lenient().doAnswer(invocation -> {
+            flushedGeneration.set(invocation.getArgument(0));
+            return null;
+        }).when(bookRepository).updateFlushedJournalGeneration(anyLong());
+        inventoryService = new MemoryInventoryService(bookRepository, transactionTemplate, properties, bookCacheInvalidator);
+        inventoryService.replayJournal();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        inventoryService.close();
+    }
+
+    @Test
+    void reserve_takesAllOrNothing() {
+        stock(1L, 5);
+        stock(2L, 1);
+
+        assertEquals(List.of(2L), inventoryService.reserve(quantities(1L, 2, 2L, 3)));
+        assertEquals(5, inventoryService.available(book(1L)));
+
+        assertEquals(List.of(), inventoryService.reserve(quantities(1L, 2, 2L, 1)));
+        assertEquals(3, inventoryService.available(book(1L)));
+        assertEquals(0, inventoryService.available(book(2L)));
+    }
+
+    @Test
+    void reserve_unknownBook() {
+        when(bookRepository.findViewById(9L)).thenReturn(Optional.empty());
+
+        assertEquals(List.of(9L), inventoryService.reserve(quantities(9L, 1)));
+    }
+
+    @Test
+    void reserve_concurrentBuyersNeverOversell() throws Exception {
+        stock(1L, 100);
+        var sold = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 400; i++) {
+            executor.execute(() -> {
+                if (inventoryService.reserve(quantities(1L, 1)).isEmpty()) {
+                    sold.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, sold.get());
+        assertEquals(0, inventoryService.available(book(1L)));
+    }
+
+    @Test
+    void flush_coalescesChangesIntoOneBatch() throws Exception {
+        stock(1L, 10);
+        stock(2L, 10);
+        inventoryService.reserve(quantities(1L, 1));
+        inventoryService.reserve(quantities(1L, 2, 2L, 4));
+
+        inventoryService.flush();
+        inventoryService.flush();
+
+        verify(bookRepository, times(1)).subtractStock(any());
+        verify(bookRepository).subtractStock(quantities(1L, 3, 2L, 4));
+        verify(bookCacheInvalidator).evict(Set.of(1L, 2L));
+        assertEquals(1, segments().size());
+        assertEquals(0, Files.size(segments().get(0)));
+    }
+
+    @Test
+    void flush_failureKeepsChangesForNextFlush() throws Exception {
+        stock(1L, 10);
+        inventoryService.reserve(quantities(1L, 2));
+        doThrow(new IllegalStateException("database down")).doNothing().when(bookRepository).subtractStock(any());
+
+        inventoryService.flush();
+        assertEquals(2, segments().size());
+        inventoryService.flush();
+
+        verify(bookRepository, times(2)).subtractStock(quantities(1L, 2));
+        verify(bookCacheInvalidator, times(1)).evict(any());
+        assertEquals(1, segments().size());
+    }
+
+    @Test
+    void reserve_rollbackPutsStockBack() {
+        stock(1L, 10);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            inventoryService.reserve(quantities(1L, 4));
+            assertEquals(6, inventoryService.available(book(1L)));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(10, inventoryService.available(book(1L)));
+        inventoryService.flush();
+        verify(bookRepository, never()).subtractStock(any());
+    }
+
+    @Test
+    void reserve_journalsOnlyOnceCommitted() throws Exception {
+        stock(1L, 10);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            inventoryService.reserve(quantities(1L, 4));
+            // A crash before the commit must not replay copies that were never sold
+            assertEquals(0, Files.size(segments().get(0)));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals("1 4\n", Files.readString(segments().get(0)));
+        inventoryService.flush();
+        verify(bookRepository).subtractStock(quantities(1L, 4));
+    }
+
+    @Test
+    void replayJournal_skipsSegmentsAlreadyWrittenBack() throws Exception {
+        stock(1L, 10);
+        inventoryService.reserve(quantities(1L, 2));
+        var segment = segments().get(0);
+        var content = Files.readString(segment);
+        inventoryService.flush();
+        // The process dies after the flush committed but before it deleted the segment
+        Files.writeString(segment, content);
+
+        var restarted = new MemoryInventoryService(bookRepository, transactionTemplate, properties, bookCacheInvalidator);
+        restarted.replayJournal();
+
+        verify(bookRepository, times(1)).subtractStock(any());
+        assertEquals(1, segments().size());
+        assertEquals(0, Files.size(segments().get(0)));
+        restarted.close();
+    }
+
+    @Test
+    void replayJournal_rejectsSegmentsOfAnotherDatabase() throws Exception {
+        stock(1L, 10);
+        inventoryService.reserve(quantities(1L, 2));
+        // The database was recreated empty while the journal directory was kept
+        flushedGeneration.set(null);
+
+        var restarted = new MemoryInventoryService(bookRepository, transactionTemplate, properties, bookCacheInvalidator);
+
+        assertThrows(IllegalStateException.class, restarted::replayJournal);
+        verify(bookRepository, never()).subtractStock(any());
+    }
+
+    @Test
+    void replayJournal_requiresJournalDir() {
+        properties.setJournalDir(null);
+
+        var service = new MemoryInventoryService(bookRepository, transactionTemplate, properties, bookCacheInvalidator);
+
+        assertThrows(IllegalStateException.class, service::replayJournal);
+    }
+
+    @Test
+    void replayJournal_writesBackUnflushedChangesAfterCrash() throws Exception {
+        stock(1L, 10);
+        stock(2L, 10);
+        inventoryService.reserve(quantities(1L, 2));
+        inventoryService.reserve(quantities(1L, 1, 2L, 5));
+        // The process dies halfway through an append
+        Files.writeString(segments().get(0), "2 3", StandardOpenOption.APPEND);
+
+        var restarted = new MemoryInventoryService(bookRepository, transactionTemplate, properties, bookCacheInvalidator);
+        restarted.replayJournal();
+
+        verify(bookRepository).subtractStock(quantities(1L, 3, 2L, 5));
+        assertEquals(1, segments().size());
+        assertEquals(0, Files.size(segments().get(0)));
+        restarted.close();
+    }
+
+    private void stock(Long bookId, int quantity) {
+        when(bookRepository.findViewById(bookId)).thenReturn(Optional.of(new BookView(bookId, "Book " + bookId,
+                Genre.FICTION, null, "Author", 2000, BigDecimal.TEN, quantity, null, null)));
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static Book book(Long id) {
+        var book = new Book();
+        book.setId(id);
+        return book;
+    }
+
+    private static SortedMap<Long, Integer> quantities(Long bookId, int quantity) {
+        return new TreeMap<>(Map.of(bookId, quantity));
+    }
+
+    private static SortedMap<Long, Integer> quantities(Long bookId, int quantity, Long otherId, int otherQuantity) {
+        return new TreeMap<>(Map.of(bookId, quantity, otherId, otherQuantity));
+    }
+}
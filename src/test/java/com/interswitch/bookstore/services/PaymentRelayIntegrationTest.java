@@ -0,0 +1,119 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.PaymentProperties;
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.repositories.PaymentOutboxRepository;
+import com.interswitch.bookstore.repositories.PurchaseHistoryRepository;
+import com.interswitch.bookstore.repositories.PurchaseRepository;
+import com.interswitch.bookstore.requests.CartAddDTO;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// The relay is built by hand on the real repositories, with a payment that stays in flight until released
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "bookstore.payment.relay-enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:relay-${random.uuid};DB_CLOSE_DELAY=-1"
+})
+class PaymentRelayIntegrationTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private PaymentOutboxRepository paymentOutboxRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private PurchaseHistoryRepository purchaseHistoryRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private BookCacheInvalidator bookCacheInvalidator;
+
+    @Autowired
+    private SalesAnalytics salesAnalytics;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PaymentProperties properties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void relay_claimLeasesEntryInDatabase() throws Exception {
+        var purchaseId = checkout(901L);
+        var payment = new CompletableFuture<Void>();
+        var paymentService = mock(PaymentService.class);
+        when(paymentService.processPayment(any())).thenReturn(payment);
+        var relay = new PaymentRelay(paymentOutboxRepository, purchaseRepository, purchaseHistoryRepository,
+                paymentService, inventoryService, bookCacheInvalidator, salesAnalytics, transactionTemplate,
+                properties, new SimpleMeterRegistry());
+        try {
+            var claimedAt = LocalDateTime.now();
+
+            assertEquals(1, relay.relay());
+
+            var row = jdbcTemplate.queryForMap(
+                    "SELECT available_at, attempts FROM tbl_payment_outbox WHERE purchase_id = ?", purchaseId);
+            var availableAt = ((Timestamp) row.get("AVAILABLE_AT")).toLocalDateTime();
+            assertFalse(availableAt.isBefore(claimedAt.plus(properties.getLease()).minusSeconds(1)));
+            assertEquals(1, ((Number) row.get("ATTEMPTS")).intValue());
+        } finally {
+            payment.complete(null);
+            relay.shutdown();
+        }
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM tbl_payment_outbox WHERE purchase_id = ?", Integer.class, purchaseId));
+    }
+
+    private Long checkout(Long userId) {
+        var book = new Book();
+        book.setTitle("Leased");
+        book.setAuthor("Author");
+        book.setGenre(Genre.FICTION);
+        book.setPublicationYear(2000);
+        book.setPrice(BigDecimal.TEN);
+        book.setQuantityInStock(5);
+        var bookId = bookRepository.save(book).getId();
+        var request = new CartAddDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        request.setQuantity(1);
+        cartService.addToCart(request);
+        var checkout = new PurchaseCheckoutDTO();
+        checkout.setUserId(userId);
+        checkout.setPaymentMethod(PaymentMethod.WEB);
+        return purchaseService.checkout(checkout, null).getId();
+    }
+}
@@ -0,0 +1,213 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.PaymentProperties;
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.domains.PaymentOutbox;
+import com.interswitch.bookstore.domains.Purchase;
+import com.interswitch.bookstore.domains.PurchaseItem;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.exceptions.PaymentDeclinedException;
+import com.interswitch.bookstore.exceptions.PaymentUnavailableException;
+import com.interswitch.bookstore.repositories.PaymentOutboxRepository;
+import com.interswitch.bookstore.repositories.PurchaseHistoryRepository;
+import com.interswitch.bookstore.repositories.PurchaseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentRelayTest {
+
+    @Mock
+    private PaymentOutboxRepository paymentOutboxRepository;
+
+    @Mock
+    private PurchaseRepository purchaseRepository;
+
+    @Mock
+    private PurchaseHistoryRepository purchaseHistoryRepository;
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private BookCacheInvalidator bookCacheInvalidator;
+
+    @Mock
+    private SalesAnalytics salesAnalytics;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private PaymentProperties properties;
+
+    private PaymentRelay paymentRelay;
+
+    private PaymentOutbox entry;
+
+    private Purchase purchase;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PaymentProperties();
+        properties.setMaxAttempts(2);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        paymentRelay = new PaymentRelay(paymentOutboxRepository, purchaseRepository, purchaseHistoryRepository,
+                paymentService, inventoryService, bookCacheInvalidator, salesAnalytics, transactionTemplate,
+                properties, new SimpleMeterRegistry());
+
+        var book = new Book();
+        book.setId(3L);
+        var item = new PurchaseItem();
+        item.setBook(book);
+        item.setQuantity(2);
+        purchase = new Purchase();
+        purchase.setId(7L);
+        purchase.setPaymentMethod(PaymentMethod.WEB);
+        purchase.setStatus(PurchaseStatus.PENDING);
+        purchase.setItems(List.of(item));
+
+        entry = new PaymentOutbox(7L, LocalDateTime.of(2024, 1, 2, 0, 0));
+        entry.setId(11L);
+        lenient().when(paymentOutboxRepository.findDue(any(), any())).thenReturn(List.of(entry));
+        lenient().when(paymentOutboxRepository.claim(eq(11L), eq(entry.getAvailableAt()), any())).thenReturn(1);
+        lenient().when(purchaseRepository.findWithItemsById(7L)).thenReturn(Optional.of(purchase));
+        lenient().when(paymentService.processPayment(purchase)).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        paymentRelay.shutdown();
+    }
+
+    @Test
+    void relay_paidPurchase() {
+        assertEquals(1, relayAndSettle());
+
+        verify(paymentService).processPayment(purchase);
+        verify(purchaseRepository).updateStatus(eq(7L), eq(PurchaseStatus.PENDING), eq(PurchaseStatus.PAID), any());
+        verify(paymentOutboxRepository).deleteById(11L);
+        verifyNoInteractions(inventoryService);
+    }
+
+    @Test
+    void relay_declinedPaymentReleasesStock() {
+        when(paymentService.processPayment(purchase))
+                .thenReturn(CompletableFuture.failedFuture(new PaymentDeclinedException("declined")));
+        when(purchaseRepository.updateStatus(eq(7L), eq(PurchaseStatus.PENDING), eq(PurchaseStatus.FAILED), any()))
+                .thenReturn(1);
+
+        relayAndSettle();
+
+        verify(inventoryService).release(new TreeMap<>(Map.of(3L, 2)));
+        verify(bookCacheInvalidator).evict(List.of(3L));
+        verify(salesAnalytics).cancel(purchase.getId(), purchase.getPurchaseDate(), new TreeMap<>(Map.of(3L, 2)));
+        verify(paymentOutboxRepository).deleteById(11L);
+    }
+
+    @Test
+    void relay_failedPaymentIsRetriedUntilMaxAttempts() {
+        when(paymentService.processPayment(purchase))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("backend down")));
+
+        relayAndSettle();
+
+        verify(paymentOutboxRepository, never()).deleteById(any());
+        verify(purchaseRepository, never()).updateStatus(any(), any(), any(), any());
+
+        entry.setAttempts(1);
+        when(purchaseRepository.updateStatus(eq(7L), eq(PurchaseStatus.PENDING), eq(PurchaseStatus.FAILED), any()))
+                .thenReturn(1);
+
+        relayAndSettle();
+
+        verify(inventoryService).release(new TreeMap<>(Map.of(3L, 2)));
+        verify(paymentOutboxRepository).deleteById(11L);
+    }
+
+    @Test
+    void relay_unavailableGatewayDefersWithoutCountingAttempt() {
+        when(paymentService.processPayment(purchase))
+                .thenReturn(CompletableFuture.failedFuture(new PaymentUnavailableException("circuit is open")));
+
+        relayAndSettle();
+
+        verify(paymentOutboxRepository).defer(eq(11L), any());
+        verify(paymentOutboxRepository, never()).deleteById(any());
+        verify(purchaseRepository, never()).updateStatus(any(), any(), any(), any());
+    }
+
+    @Test
+    void relay_skipsEntryClaimedElsewhere() {
+        when(paymentOutboxRepository.claim(eq(11L), eq(entry.getAvailableAt()), any())).thenReturn(0);
+
+        assertEquals(0, relayAndSettle());
+
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    void relay_doesNotWaitForPaymentsAndKeepsThemInFlight() throws Exception {
+        var payment = new CompletableFuture<Void>();
+        when(paymentService.processPayment(purchase)).thenReturn(payment);
+        properties.setRelayBatchSize(1);
+
+        assertEquals(1, paymentRelay.relay());
+        verify(paymentService, timeout(5000)).processPayment(purchase);
+        assertEquals(0, paymentRelay.relay());
+
+        payment.complete(null);
+        assertTrue(paymentRelay.awaitInFlight(5000));
+        verify(paymentOutboxRepository).deleteById(11L);
+        verify(paymentOutboxRepository, times(1)).claim(eq(11L), any(), any());
+    }
+
+    @Test
+    void relay_settledPurchaseOnlyRemovesEntry() {
+        purchase.setStatus(PurchaseStatus.PAID);
+
+        relayAndSettle();
+
+        verifyNoInteractions(paymentService, inventoryService);
+        verify(paymentOutboxRepository).deleteById(11L);
+    }
+
+    private int relayAndSettle() {
+        var claimed = paymentRelay.relay();
+        try {
+            assertTrue(paymentRelay.awaitInFlight(5000));
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return claimed;
+    }
+}
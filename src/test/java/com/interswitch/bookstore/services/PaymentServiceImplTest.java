@@ -1,35 +1,51 @@
 package com.interswitch.bookstore.services;
 
+import com.interswitch.bookstore.configs.PaymentProperties;
 import com.interswitch.bookstore.domains.Purchase;
 import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.exceptions.PaymentDeclinedException;
+import com.interswitch.bookstore.exceptions.PaymentUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
-@ExtendWith(MockitoExtension.class)
 class PaymentServiceImplTest {
 
-    @InjectMocks
+    private PaymentProperties properties;
+
     private PaymentServiceImpl paymentService;
 
     private Purchase purchase;
 
     @BeforeEach
     void setUp() {
+        properties = new PaymentProperties();
         purchase = new Purchase();
     }
 
+    @AfterEach
+    void tearDown() throws Exception {
+        paymentService.shutdown();
+    }
+
     @Test
     void processPayment_web() {
         purchase.setPaymentMethod(PaymentMethod.WEB);
-        PaymentServiceImpl spyService = spy(paymentService);
+        PaymentServiceImpl spyService = spy(start());
 
-        spyService.processPayment(purchase);
+        spyService.processPayment(purchase).join();
 
         verify(spyService).simulatePayment(purchase);
     }
@@ -37,9 +53,9 @@ class PaymentServiceImplTest {
     @Test
     void processPayment_ussd() {
         purchase.setPaymentMethod(PaymentMethod.USSD);
-        PaymentServiceImpl spyService = spy(paymentService);
+        PaymentServiceImpl spyService = spy(start());
 
-        spyService.processPayment(purchase);
+        spyService.processPayment(purchase).join();
 
         verify(spyService).simulatePayment(purchase);
     }
@@ -47,10 +63,103 @@ class PaymentServiceImplTest {
     @Test
     void processPayment_transfer() {
         purchase.setPaymentMethod(PaymentMethod.TRANSFER);
-        PaymentServiceImpl spyService = spy(paymentService);
+        PaymentServiceImpl spyService = spy(start());
 
-        spyService.processPayment(purchase);
+        spyService.processPayment(purchase).join();
 
         verify(spyService).simulatePayment(purchase);
     }
-}
\ No newline at end of file
+
+    @Test
+    void processPayment_declined() {
+        purchase.setPaymentMethod(PaymentMethod.WEB);
+        gateway(PaymentMethod.WEB).setSimulatedDeclineRate(1);
+        start();
+
+        assertFailsWith(PaymentDeclinedException.class, paymentService.processPayment(purchase));
+        assertEquals(CircuitBreaker.State.CLOSED, state(PaymentMethod.WEB));
+    }
+
+    @Test
+    void processPayment_timeout() {
+        purchase.setPaymentMethod(PaymentMethod.WEB);
+        gateway(PaymentMethod.WEB).setSimulatedLatency(Duration.ofSeconds(10));
+        gateway(PaymentMethod.WEB).setTimeout(Duration.ofMillis(50));
+        start();
+
+        assertFailsWith(TimeoutException.class, paymentService.processPayment(purchase));
+    }
+
+    @Test
+    void processPayment_timeoutExcludesTimeQueued() {
+        var ussd = gateway(PaymentMethod.USSD);
+        ussd.setSimulatedLatency(Duration.ofMillis(300));
+        ussd.setTimeout(Duration.ofMillis(450));
+        ussd.setConcurrency(1);
+        ussd.setFailureThreshold(1);
+        start();
+        purchase.setPaymentMethod(PaymentMethod.USSD);
+
+        var running = paymentService.processPayment(purchase);
+        var queued = paymentService.processPayment(purchase);
+
+        CompletableFuture.allOf(running, queued).join();
+        assertEquals(CircuitBreaker.State.CLOSED, state(PaymentMethod.USSD));
+    }
+
+    @Test
+    void processPayment_failuresOpenOnlyTheirMethodsCircuit() {
+        var ussd = gateway(PaymentMethod.USSD);
+        ussd.setSimulatedFailureRate(1);
+        ussd.setFailureThreshold(2);
+        start();
+        purchase.setPaymentMethod(PaymentMethod.USSD);
+
+        assertFailsWith(IllegalStateException.class, paymentService.processPayment(purchase));
+        assertFailsWith(IllegalStateException.class, paymentService.processPayment(purchase));
+        assertFailsWith(PaymentUnavailableException.class, paymentService.processPayment(purchase));
+
+        var web = new Purchase();
+        web.setPaymentMethod(PaymentMethod.WEB);
+        paymentService.processPayment(web).join();
+    }
+
+    @Test
+    void processPayment_saturatedMethodRejectsWithoutBlockingOthers() {
+        var ussd = gateway(PaymentMethod.USSD);
+        ussd.setSimulatedLatency(Duration.ofMillis(500));
+        ussd.setConcurrency(1);
+        ussd.setQueueCapacity(1);
+        start();
+        purchase.setPaymentMethod(PaymentMethod.USSD);
+
+        var running = paymentService.processPayment(purchase);
+        var queued = paymentService.processPayment(purchase);
+        assertFailsWith(PaymentUnavailableException.class, paymentService.processPayment(purchase));
+
+        var web = new Purchase();
+        web.setPaymentMethod(PaymentMethod.WEB);
+        assertTimeout(Duration.ofMillis(400), () -> paymentService.processPayment(web).join());
+        CompletableFuture.allOf(running, queued).join();
+    }
+
+    private PaymentServiceImpl start() {
+        paymentService = new PaymentServiceImpl(properties, new SimpleMeterRegistry());
+        return paymentService;
+    }
+
+    private PaymentProperties.Gateway gateway(PaymentMethod method) {
+        return properties.getGateways().computeIfAbsent(method, m -> new PaymentProperties.Gateway());
+    }
+
+    private CircuitBreaker.State state(PaymentMethod method) {
+        @SuppressWarnings("unchecked")
+        var gateways = (Map<PaymentMethod, PaymentGateway>) ReflectionTestUtils.getField(paymentService, "gateways");
+        return gateways.get(method).state();
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> type, CompletableFuture<Void> payment) {
+        var ex = assertThrows(CompletionException.class, payment::join);
+        assertInstanceOf(type, ex.getCause());
+    }
+}
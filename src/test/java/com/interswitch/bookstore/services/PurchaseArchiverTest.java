@@ -0,0 +1,130 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.repositories.PurchaseRepository;
+import com.interswitch.bookstore.requests.CartAddDTO;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.responses.PurchaseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "bookstore.payment.relay-enabled=false",
+        "bookstore.archive.enabled=true",
+        "bookstore.archive.age=0s",
+        "bookstore.archive.block-size=2",
+        "bookstore.archive.directory=${java.io.tmpdir}/bookstore-archive-test-${random.uuid}"
+})
+class PurchaseArchiverTest {
+    private static final long USER_ID = 801L;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private PurchaseArchiver purchaseArchiver;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void getPurchaseHistory_mergesArchivedAndHotPurchases() {
+        var book = createBook();
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(settledCheckout(USER_ID, book.getId(), i + 1));
+        }
+        // Pending purchases stay in the database until they are settled
+        var pending = checkout(USER_ID, book.getId(), 4).getId();
+
+        assertTrue(purchaseArchiver.archive() >= 3);
+        ids.forEach(id -> assertFalse(purchaseRepository.existsById(id)));
+        assertTrue(purchaseRepository.existsById(pending));
+        var hot = settledCheckout(USER_ID, book.getId(), 5);
+
+        var page = purchaseService.getPurchaseHistory(USER_ID,
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        assertEquals(5, page.getTotalElements());
+        assertEquals(List.of(hot, pending, ids.get(2)), page.getContent().stream().map(PurchaseDTO::getId).toList());
+        var archived = page.getContent().get(2);
+        assertEquals(PurchaseStatus.PAID, archived.getStatus());
+        assertEquals(3, archived.getItems().get(0).getQuantity());
+        assertEquals("Archived", archived.getItems().get(0).getBook().getTitle());
+
+        var second = purchaseService.getPurchaseHistory(USER_ID,
+                PageRequest.of(1, 3, Sort.by(Sort.Direction.DESC, "createdAt")));
+        assertEquals(List.of(ids.get(1), ids.get(0)), second.getContent().stream().map(PurchaseDTO::getId).toList());
+    }
+
+    @Test
+    void scrollPurchaseHistory_mergesArchivedAndHotPurchases() {
+        var book = createBook();
+        var userId = USER_ID + 1;
+        var archived = settledCheckout(userId, book.getId(), 1);
+        purchaseArchiver.archive();
+        var hot = settledCheckout(userId, book.getId(), 1);
+
+        var first = purchaseService.scrollPurchaseHistory(userId, null, 1, Sort.Direction.ASC);
+        var second = purchaseService.scrollPurchaseHistory(userId, first.nextCursor(), 1, Sort.Direction.ASC);
+
+        assertEquals(archived, first.content().get(0).getId());
+        assertEquals(hot, second.content().get(0).getId());
+        assertFalse(second.hasNext());
+    }
+
+    private Long settledCheckout(Long userId, Long bookId, int quantity) {
+        var purchase = checkout(userId, bookId, quantity);
+        transactionTemplate.executeWithoutResult(status -> purchaseRepository.updateStatus(purchase.getId(),
+                PurchaseStatus.PENDING, PurchaseStatus.PAID, LocalDateTime.now()));
+        return purchase.getId();
+    }
+
+    private PurchaseDTO checkout(Long userId, Long bookId, int quantity) {
+        var request = new CartAddDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        request.setQuantity(quantity);
+        cartService.addToCart(request);
+        var checkout = new PurchaseCheckoutDTO();
+        checkout.setUserId(userId);
+        checkout.setPaymentMethod(PaymentMethod.USSD);
+        return purchaseService.checkout(checkout, null);
+    }
+
+    private Book createBook() {
+        var book = new Book();
+        book.setTitle("Archived");
+        book.setAuthor("Author");
+        book.setGenre(Genre.FICTION);
+        book.setPublicationYear(2000);
+        book.setPrice(BigDecimal.TEN);
+        book.setQuantityInStock(100);
+        return bookRepository.save(book);
+    }
+}
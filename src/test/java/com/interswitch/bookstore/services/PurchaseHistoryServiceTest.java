@@ -0,0 +1,102 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PaymentMethod;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.repositories.BookRepository;
+import com.interswitch.bookstore.requests.CartAddDTO;
+import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "bookstore.payment.relay-enabled=false",
+        // Contexts of other tests relay payments on the shared database and would settle these purchases
+        "spring.datasource.url=jdbc:h2:mem:history-${random.uuid};DB_CLOSE_DELAY=-1"
+})
+class PurchaseHistoryServiceTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private PurchaseHistoryService purchaseHistoryService;
+
+    @Test
+    void getHistory_keepsTitlesAndPricesAsSold() {
+        var book = createBook("First Edition", "12.50");
+        checkout(701L, book.getId(), 2);
+        book.setTitle("Second Edition");
+        book.setPrice(new BigDecimal("20.00"));
+        bookRepository.save(book);
+
+        var history = purchaseHistoryService.getHistory(701L, null, null, null, 10);
+
+        assertEquals(1, history.content().size());
+        var entry = history.content().get(0);
+        assertEquals(PurchaseStatus.PENDING, entry.getStatus());
+        assertEquals("25.00", entry.getTotal());
+        assertEquals("First Edition", entry.getItems().get(0).getTitle());
+        assertEquals("12.50", entry.getItems().get(0).getPrice());
+        assertEquals(2, entry.getItems().get(0).getQuantity());
+    }
+
+    @Test
+    void getHistory_filtersByDateRangeAndPagesNewestFirst() {
+        var book = createBook("History", "5.00");
+        for (int i = 0; i < 3; i++) {
+            checkout(702L, book.getId(), 1);
+        }
+        var today = LocalDate.now();
+
+        var first = purchaseHistoryService.getHistory(702L, today, today, null, 2);
+        var second = purchaseHistoryService.getHistory(702L, today, today, first.nextCursor(), 2);
+
+        assertTrue(first.hasNext());
+        assertEquals(1, second.content().size());
+        assertFalse(second.hasNext());
+        assertTrue(first.content().get(0).getPurchaseId() > first.content().get(1).getPurchaseId());
+        assertTrue(first.content().get(1).getPurchaseId() > second.content().get(0).getPurchaseId());
+        assertTrue(purchaseHistoryService.getHistory(702L, today.plusDays(1), null, null, 10).content().isEmpty());
+        assertThrows(BadRequestException.class,
+                () -> purchaseHistoryService.getHistory(702L, today, today.minusDays(1), null, 10));
+    }
+
+    private Book createBook(String title, String price) {
+        var book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setGenre(Genre.FICTION);
+        book.setPublicationYear(2000);
+        book.setPrice(new BigDecimal(price));
+        book.setQuantityInStock(10);
+        return bookRepository.save(book);
+    }
+
+    private void checkout(Long userId, Long bookId, int quantity) {
+        var request = new CartAddDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        request.setQuantity(quantity);
+        cartService.addToCart(request);
+        var checkout = new PurchaseCheckoutDTO();
+        checkout.setUserId(userId);
+        checkout.setPaymentMethod(PaymentMethod.WEB);
+        purchaseService.checkout(checkout, null);
+    }
+}
@@ -1,31 +1,47 @@
 package com.interswitch.bookstore.services;
 
+import com.interswitch.bookstore.configs.CheckoutProperties;
 import com.interswitch.bookstore.domains.*;
+import com.interswitch.bookstore.enums.PurchaseStatus;
 import com.interswitch.bookstore.exceptions.BadRequestException;
 import com.interswitch.bookstore.exceptions.NotFoundException;
 import com.interswitch.bookstore.mappers.PurchaseMapper;
+import com.interswitch.bookstore.projections.ArchivedPurchase;
+import com.interswitch.bookstore.projections.BookView;
+import com.interswitch.bookstore.projections.PurchaseItemView;
+import com.interswitch.bookstore.projections.PurchaseView;
 import com.interswitch.bookstore.repositories.BookRepository;
 import com.interswitch.bookstore.repositories.CartRepository;
+import com.interswitch.bookstore.repositories.PaymentOutboxRepository;
 import com.interswitch.bookstore.repositories.PurchaseRepository;
+import com.interswitch.bookstore.requests.KeysetCursor;
 import com.interswitch.bookstore.requests.PurchaseCheckoutDTO;
+import com.interswitch.bookstore.responses.CursorPage;
 import com.interswitch.bookstore.responses.PurchaseDTO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,11 +60,41 @@ class PurchaseServiceTest {
     private BookRepository bookRepository;
 
     @Mock
-    private PaymentService paymentService;
+    private PaymentOutboxRepository paymentOutboxRepository;
+
+    @Mock
+    private PurchaseHistoryService purchaseHistoryService;
+
+    @Mock
+    private PurchaseArchive purchaseArchive;
+
+    @Mock
+    private SalesAnalytics salesAnalytics;
 
     @Mock
     private CartService cartService;
 
+    @Mock
+    private CartReservationService cartReservationService;
+
+    @Mock
+    private BookCacheInvalidator bookCacheInvalidator;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private ReadYourWrites readYourWrites;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private CheckoutProperties checkoutProperties = new CheckoutProperties();
+
     @InjectMocks
     private PurchaseService purchaseService;
 
@@ -78,70 +124,201 @@ class PurchaseServiceTest {
 
         checkoutDTO = new PurchaseCheckoutDTO();
         checkoutDTO.setUserId(1L);
+
+        checkoutProperties.setRetryBackoff(Duration.ofMillis(1));
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     @Test
     void checkout_success() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
-        when(bookRepository.save(book)).thenReturn(book);
+        when(cartRepository.findForCheckoutByUserId(1L)).thenReturn(Optional.of(cart));
+        when(inventoryService.reserve(new TreeMap<>(Map.of(1L, 2)))).thenReturn(List.of());
+        purchase.setId(7L);
         when(purchaseRepository.save(any(Purchase.class))).thenReturn(purchase);
         when(purchaseMapper.toDTO(purchase)).thenReturn(purchaseDTO);
+        var decremented = new Book();
+        decremented.setId(1L);
+        decremented.setQuantityInStock(8);
+        when(bookRepository.findAllById(Set.of(1L))).thenReturn(List.of(decremented));
 
         PurchaseDTO result = purchaseService.checkout(checkoutDTO);
 
         assertNotNull(result);
         assertEquals(purchaseDTO, result);
-        verify(cartRepository).findByUserId(1L);
-        verify(bookRepository).findById(1L);
-        verify(bookRepository).save(book);
-        verify(paymentService).processPayment(any(Purchase.class));
-        verify(cartService).clearCart(1L);
+        verify(cartRepository).findForCheckoutByUserId(1L);
+        verify(inventoryService).reserve(new TreeMap<>(Map.of(1L, 2)));
+        verify(bookRepository, never()).save(any());
+        verify(bookCacheInvalidator).evict(List.of(1L));
+        verify(cartService).clearCart(cart);
+        var saved = ArgumentCaptor.forClass(Purchase.class);
+        verify(purchaseRepository).save(saved.capture());
+        assertSame(saved.getValue(), saved.getValue().getItems().get(0).getPurchase());
+        assertSame(decremented, saved.getValue().getItems().get(0).getBook());
+        assertEquals(PurchaseStatus.PENDING, saved.getValue().getStatus());
+        var outbox = ArgumentCaptor.forClass(PaymentOutbox.class);
+        verify(paymentOutboxRepository).save(outbox.capture());
+        assertEquals(7L, outbox.getValue().getPurchaseId());
+        verify(purchaseHistoryService).record(purchase);
+        verify(salesAnalytics).record(purchase);
     }
 
     @Test
     void checkout_cartNotFound() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.empty());
+        when(cartRepository.findForCheckoutByUserId(1L)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> purchaseService.checkout(checkoutDTO));
-        verify(cartRepository).findByUserId(1L);
-        verifyNoMoreInteractions(bookRepository, paymentService, cartService);
+        verify(cartRepository).findForCheckoutByUserId(1L);
+        verifyNoMoreInteractions(bookRepository, inventoryService, paymentOutboxRepository, cartService);
     }
 
     @Test
     void checkout_emptyCart() {
         cart.setItems(new ArrayList<>());
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
+        when(cartRepository.findForCheckoutByUserId(1L)).thenReturn(Optional.of(cart));
 
         assertThrows(BadRequestException.class, () -> purchaseService.checkout(checkoutDTO));
-        verify(cartRepository).findByUserId(1L);
-        verifyNoMoreInteractions(bookRepository, paymentService, cartService);
+        verify(cartRepository).findForCheckoutByUserId(1L);
+        verifyNoMoreInteractions(bookRepository, inventoryService, paymentOutboxRepository, cartService);
     }
 
     @Test
     void checkout_insufficientStock() {
-        book.setQuantityInStock(1);
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(cartRepository.findForCheckoutByUserId(1L)).thenReturn(Optional.of(cart));
+        when(inventoryService.reserve(any())).thenReturn(List.of(1L));
+        book.setTitle("Dune");
+        when(bookRepository.findViewById(1L)).thenReturn(Optional.of(BookView.of(book)));
 
-        assertThrows(BadRequestException.class, () -> purchaseService.checkout(checkoutDTO));
-        verify(cartRepository).findByUserId(1L);
-        verify(bookRepository).findById(1L);
-        verifyNoMoreInteractions(paymentService, cartService);
+        var ex = assertThrows(BadRequestException.class, () -> purchaseService.checkout(checkoutDTO));
+        assertEquals("Insufficient stock for book: Dune", ex.getMessage());
+        verify(transactionTemplate, times(1)).execute(any());
+        verifyNoInteractions(bookCacheInvalidator, paymentOutboxRepository, cartService, purchaseRepository);
+    }
+
+    @Test
+    void checkout_bookNotFound() {
+        when(cartRepository.findForCheckoutByUserId(1L)).thenReturn(Optional.of(cart));
+        when(inventoryService.reserve(any())).thenReturn(List.of(1L));
+        when(bookRepository.findViewById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> purchaseService.checkout(checkoutDTO));
+        verifyNoInteractions(paymentOutboxRepository, cartService, purchaseRepository);
+    }
+
+    @Test
+    void checkout_reservesBooksInAscendingIdOrder() {
+        var other = new Book();
+        other.setId(3L);
+        var otherItem = new CartItem();
+        otherItem.setBook(other);
+        otherItem.setQuantity(1);
+        cart.setItems(new ArrayList<>(List.of(otherItem, cartItem)));
+        when(cartRepository.findForCheckoutByUserId(1L)).thenReturn(Optional.of(cart));
+        when(inventoryService.reserve(any())).thenReturn(List.of());
+        when(purchaseRepository.save(any(Purchase.class))).thenReturn(purchase);
+
+        purchaseService.checkout(checkoutDTO);
+
+        var quantities = ArgumentCaptor.forClass(SortedMap.class);
+        verify(inventoryService).reserve(quantities.capture());
+        assertEquals(List.of(1L, 3L), List.copyOf(quantities.getValue().keySet()));
+        assertEquals(List.of(2, 1), List.copyOf(quantities.getValue().values()));
+        verify(bookCacheInvalidator).evict(List.of(1L, 3L));
+    }
+
+    @Test
+    void checkout_retriesTransientFailure() {
+        when(cartRepository.findForCheckoutByUserId(1L)).thenReturn(Optional.of(cart));
+        when(inventoryService.reserve(any()))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenReturn(List.of());
+        when(purchaseRepository.save(any(Purchase.class))).thenReturn(purchase);
+        when(purchaseMapper.toDTO(purchase)).thenReturn(purchaseDTO);
+
+        assertEquals(purchaseDTO, purchaseService.checkout(checkoutDTO));
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(purchaseRepository, times(1)).save(any(Purchase.class));
+    }
+
+    @Test
+    void checkout_givesUpAfterMaxAttempts() {
+        when(cartRepository.findForCheckoutByUserId(1L)).thenReturn(Optional.of(cart));
+        when(inventoryService.reserve(any())).thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        assertThrows(CannotAcquireLockException.class, () -> purchaseService.checkout(checkoutDTO));
+        verify(transactionTemplate, times(3)).execute(any());
+        verifyNoInteractions(paymentOutboxRepository, cartService, purchaseRepository);
+    }
+
+    @Test
+    void checkout_withIdempotencyKey_goesThroughIdempotencyService() {
+        when(idempotencyService.execute(eq("key-1"), eq(checkoutDTO), any())).thenReturn(purchaseDTO);
+
+        assertEquals(purchaseDTO, purchaseService.checkout(checkoutDTO, "key-1"));
+        verifyNoInteractions(cartRepository, inventoryService, paymentOutboxRepository);
     }
 
     @Test
     void getPurchaseHistory_success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Purchase> purchasePage = new PageImpl<>(List.of(purchase));
+        var first = purchaseView(3L);
+        var second = purchaseView(4L);
+        var item = new PurchaseItemView(3L, 2, null, null, BookView.of(book));
+        Page<PurchaseView> purchasePage = new PageImpl<>(List.of(first, second));
         when(purchaseRepository.purchaseHistory(1L, pageable)).thenReturn(purchasePage);
-        when(purchaseMapper.toDTO(purchase)).thenReturn(purchaseDTO);
+        when(purchaseRepository.findItemViews(List.of(3L, 4L))).thenReturn(List.of(item));
+        when(purchaseMapper.toDTO(first.withItems(List.of(item)))).thenReturn(purchaseDTO);
+        when(purchaseMapper.toDTO(second)).thenReturn(new PurchaseDTO());
 
         Page<PurchaseDTO> result = purchaseService.getPurchaseHistory(1L, pageable);
 
         assertNotNull(result);
-        assertEquals(1, result.getTotalElements());
+        assertEquals(2, result.getTotalElements());
+        assertEquals(purchaseDTO, result.getContent().get(0));
         verify(purchaseRepository).purchaseHistory(1L, pageable);
-        verify(purchaseMapper).toDTO(purchase);
+        verify(purchaseRepository, times(1)).findItemViews(any());
+    }
+
+    @Test
+    void getPurchaseHistory_archivedPurchaseStillInDatabaseShownOnce() {
+        Pageable pageable = PageRequest.of(0, 10);
+        var hot = purchaseView(3L);
+        var archived = purchaseView(4L);
+        when(purchaseArchive.find(1L)).thenReturn(List.of(new ArchivedPurchase(archived, List.of())));
+        when(purchaseRepository.purchaseHistory(1L, pageable)).thenReturn(new PageImpl<>(List.of(hot, archived)));
+        when(purchaseRepository.countByIdIn(Set.of(4L))).thenReturn(1L);
+        when(purchaseRepository.findItemViews(List.of(3L))).thenReturn(List.of());
+        when(purchaseMapper.toDTO(any(PurchaseView.class))).thenAnswer(invocation -> {
+            var dto = new PurchaseDTO();
+            dto.setId(invocation.<PurchaseView>getArgument(0).id());
+            return dto;
+        });
+
+        Page<PurchaseDTO> result = purchaseService.getPurchaseHistory(1L, pageable);
+
+        assertEquals(2, result.getTotalElements());
+        assertEquals(List.of(3L, 4L), result.getContent().stream().map(PurchaseDTO::getId).toList());
+    }
+
+    @Test
+    void scrollPurchaseHistory_lastSlice() {
+        var cursor = new KeysetCursor(LocalDateTime.of(2024, 1, 1, 0, 0), 7L);
+        var view = purchaseView(8L);
+        when(purchaseRepository.purchaseHistoryAfter(1L, cursor.createdAt(), 7L, PageRequest.of(0, 11)))
+                .thenReturn(List.of(view));
+        when(purchaseRepository.findItemViews(List.of(8L))).thenReturn(List.of());
+        when(purchaseMapper.toDTO(view)).thenReturn(purchaseDTO);
+
+        CursorPage<PurchaseDTO> result =
+                purchaseService.scrollPurchaseHistory(1L, cursor.encode(), 10, Sort.Direction.ASC);
+
+        assertEquals(List.of(purchaseDTO), result.content());
+        assertFalse(result.hasNext());
+        assertNull(result.nextCursor());
+        verify(purchaseRepository, never()).purchaseHistory(any(), any());
+    }
+
+    private static PurchaseView purchaseView(Long id) {
+        return new PurchaseView(id, 1L, null, null, null, LocalDateTime.of(2024, 1, 2, 0, 0), null);
     }
-}
\ No newline at end of file
+}
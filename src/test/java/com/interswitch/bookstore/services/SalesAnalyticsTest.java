@@ -0,0 +1,189 @@
+package com.interswitch.bookstore.services;
+
+import com.interswitch.bookstore.configs.AnalyticsProperties;
+import com.interswitch.bookstore.domains.Book;
+import com.interswitch.bookstore.domains.Purchase;
+import com.interswitch.bookstore.domains.PurchaseItem;
+import com.interswitch.bookstore.enums.Genre;
+import com.interswitch.bookstore.enums.PurchaseStatus;
+import com.interswitch.bookstore.enums.SalesWindow;
+import com.interswitch.bookstore.exceptions.BadRequestException;
+import com.interswitch.bookstore.projections.BookSale;
+import com.interswitch.bookstore.repositories.PurchaseRepository;
+import com.interswitch.bookstore.responses.BookSalesDTO;
+import com.interswitch.bookstore.responses.GenreSalesDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SalesAnalyticsTest {
+
+    @TempDir
+    Path directory;
+
+    private PurchaseRepository purchaseRepository;
+
+    private AnalyticsProperties properties;
+
+    private SalesAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        purchaseRepository = mock(PurchaseRepository.class);
+        properties = new AnalyticsProperties();
+        properties.setCheckpointDir(directory);
+        analytics = new SalesAnalytics(purchaseRepository, properties, transactionTemplate());
+        analytics.restore();
+    }
+
+    @Test
+    void topSellers_ranksBooksWithinGenreAndWindow() {
+        var now = LocalDateTime.now();
+        analytics.record(purchase(1L, now, book(1L, Genre.THRILLER), 3, book(2L, Genre.THRILLER), 5));
+        analytics.record(purchase(2L, now, book(3L, Genre.FICTION), 9));
+        analytics.record(purchase(3L, now.minusWeeks(1), book(1L, Genre.THRILLER), 7));
+
+        assertEquals(List.of(new BookSalesDTO(2L, Genre.THRILLER, 5), new BookSalesDTO(1L, Genre.THRILLER, 3)),
+                analytics.topSellers(SalesWindow.WEEK, Genre.THRILLER, 0, 10));
+        assertEquals(List.of(new BookSalesDTO(3L, Genre.FICTION, 9)),
+                analytics.topSellers(SalesWindow.DAY, null, 0, 1));
+        assertEquals(List.of(new BookSalesDTO(1L, Genre.THRILLER, 7)),
+                analytics.topSellers(SalesWindow.WEEK, null, 1, 10));
+        assertEquals(List.of(new GenreSalesDTO(Genre.FICTION, 9), new GenreSalesDTO(Genre.THRILLER, 8)),
+                analytics.topGenres(SalesWindow.HOUR, 0));
+    }
+
+    @Test
+    void cancel_takesSalesBack() {
+        var now = LocalDateTime.now();
+        analytics.record(purchase(1L, now, book(1L, Genre.THRILLER), 3, book(2L, Genre.THRILLER), 2));
+
+        analytics.cancel(1L, now, Map.of(2L, 2));
+
+        assertEquals(List.of(new BookSalesDTO(1L, Genre.THRILLER, 3)),
+                analytics.topSellers(SalesWindow.WEEK, Genre.THRILLER, 0, 10));
+    }
+
+    @Test
+    void restore_loadsCheckpointAndReplaysOnlyLaterPurchases() {
+        var now = LocalDateTime.now();
+        analytics.record(purchase(1L, now, book(1L, Genre.THRILLER), 3));
+        analytics.checkpoint();
+        when(purchaseRepository.findMaxId()).thenReturn(2L);
+        when(purchaseRepository.findSalesAfter(eq(1L), any(), eq(PurchaseStatus.FAILED)))
+                .thenReturn(List.of(new BookSale(2L, now, 2L, Genre.FICTION, 4)));
+
+        var restored = restored();
+
+        assertEquals(List.of(new GenreSalesDTO(Genre.FICTION, 4), new GenreSalesDTO(Genre.THRILLER, 3)),
+                restored.topGenres(SalesWindow.WEEK, 0));
+    }
+
+    @Test
+    void restore_replaysPurchasesUncommittedAtCheckpointOnly() {
+        var now = LocalDateTime.now();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            analytics.record(purchase(1L, now, book(1L, Genre.THRILLER), 3));
+            // Purchase 2 commits while purchase 1 is still uncommitted
+            analytics.record(purchase(2L, now, book(2L, Genre.FICTION), 5));
+            TransactionSynchronizationManager.getSynchronizations().get(1)
+                    .afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            analytics.checkpoint();
+            TransactionSynchronizationManager.getSynchronizations().get(0)
+                    .afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        when(purchaseRepository.findMaxId()).thenReturn(2L);
+        when(purchaseRepository.findSalesAfter(eq(0L), any(), eq(PurchaseStatus.FAILED))).thenReturn(List.of(
+                new BookSale(1L, now, 1L, Genre.THRILLER, 3), new BookSale(2L, now, 2L, Genre.FICTION, 5)));
+
+        var restored = restored();
+
+        assertEquals(List.of(new GenreSalesDTO(Genre.FICTION, 5), new GenreSalesDTO(Genre.THRILLER, 3)),
+                restored.topGenres(SalesWindow.WEEK, 0));
+    }
+
+    @Test
+    void restore_takesBackOnlyCancellationsAfterCheckpoint() {
+        var now = LocalDateTime.now();
+        analytics.record(purchase(1L, now, book(1L, Genre.THRILLER), 3));
+        analytics.record(purchase(2L, now, book(1L, Genre.THRILLER), 2));
+        analytics.record(purchase(3L, now, book(1L, Genre.THRILLER), 1));
+        analytics.cancel(1L, now, Map.of(1L, 3));
+        analytics.checkpoint();
+        analytics.cancel(2L, now, Map.of(1L, 2));
+        when(purchaseRepository.findMaxId()).thenReturn(3L);
+        when(purchaseRepository.findSalesByStatusSince(any(), eq(PurchaseStatus.FAILED))).thenReturn(List.of(
+                new BookSale(1L, now, 1L, Genre.THRILLER, 3), new BookSale(2L, now, 1L, Genre.THRILLER, 2)));
+
+        var restored = restored();
+
+        assertEquals(List.of(new BookSalesDTO(1L, Genre.THRILLER, 1)),
+                restored.topSellers(SalesWindow.WEEK, null, 0, 10));
+    }
+
+    @Test
+    void restore_ignoresCheckpointOfAnotherDatabase() {
+        analytics.record(purchase(5L, LocalDateTime.now(), book(1L, Genre.THRILLER), 3));
+        analytics.checkpoint();
+
+        var restored = restored();
+
+        assertEquals(List.of(), restored.topGenres(SalesWindow.WEEK, 0));
+        verify(purchaseRepository, times(2)).findSalesAfter(eq(0L), any(), eq(PurchaseStatus.FAILED));
+    }
+
+    @Test
+    void topSellers_rejectsPeriodsNotRetained() {
+        assertThrows(BadRequestException.class, () -> analytics.topSellers(SalesWindow.WEEK, null, 8, 10));
+        assertThrows(BadRequestException.class, () -> analytics.topSellers(SalesWindow.DAY, null, 0, 0));
+    }
+
+    private SalesAnalytics restored() {
+        var restored = new SalesAnalytics(purchaseRepository, properties, transactionTemplate());
+        restored.restore();
+        return restored;
+    }
+
+    private static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(mock(PlatformTransactionManager.class));
+    }
+
+    private static Book book(Long id, Genre genre) {
+        var book = new Book();
+        book.setId(id);
+        book.setGenre(genre);
+        return book;
+    }
+
+    private static Purchase purchase(Long id, LocalDateTime purchaseDate, Object... booksAndQuantities) {
+        var purchase = new Purchase();
+        purchase.setId(id);
+        purchase.setPurchaseDate(purchaseDate);
+        var items = new ArrayList<PurchaseItem>();
+        for (int i = 0; i < booksAndQuantities.length; i += 2) {
+            var item = new PurchaseItem();
+            item.setBook((Book) booksAndQuantities[i]);
+            item.setQuantity((Integer) booksAndQuantities[i + 1]);
+            items.add(item);
+        }
+        purchase.setItems(items);
+        return purchase;
+    }
+}
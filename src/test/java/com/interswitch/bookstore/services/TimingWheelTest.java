@@ -0,0 +1,69 @@
+package com.interswitch.bookstore.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+    private static final long TICK = Duration.ofMillis(10).toNanos();
+
+    private final TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(10), 4, 2, 0);
+
+    @Test
+    void expiresTimersAtTheirDeadlineInOrder() {
+        wheel.schedule(3 * TICK, "c");
+        wheel.schedule(TICK, "a");
+        wheel.schedule(2 * TICK, "b");
+
+        assertEquals(List.of(), wheel.advance(TICK - 1));
+        assertEquals(List.of("a"), wheel.advance(TICK));
+        assertEquals(List.of("b", "c"), wheel.advance(3 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void neverExpiresBeforeTheDeadline() {
+        wheel.schedule(TICK + 1, "a");
+
+        assertEquals(List.of(), wheel.advance(TICK));
+        assertEquals(List.of("a"), wheel.advance(2 * TICK));
+    }
+
+    @Test
+    void cascadesTimersFromHigherLevels() {
+        // Level 0 spans 4 ticks and level 1 spans 16
+        wheel.schedule(6 * TICK, "a");
+        wheel.schedule(13 * TICK, "b");
+
+        assertEquals(List.of(), wheel.advance(5 * TICK));
+        assertEquals(List.of("a"), wheel.advance(6 * TICK));
+        assertEquals(List.of(), wheel.advance(12 * TICK));
+        assertEquals(List.of("b"), wheel.advance(13 * TICK));
+    }
+
+    @Test
+    void parksTimersBeyondTheSpanUntilTheyFit() {
+        wheel.schedule(40 * TICK, "far");
+
+        var expired = new ArrayList<String>();
+        for (long tick = 1; tick < 40; tick++) {
+            expired.addAll(wheel.advance(tick * TICK));
+        }
+        assertEquals(List.of(), expired);
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("far"), wheel.advance(40 * TICK));
+    }
+
+    @Test
+    void expiresPastDeadlinesWithTheNextTick() {
+        wheel.advance(5 * TICK);
+
+        wheel.schedule(2 * TICK, "late");
+
+        assertEquals(List.of("late"), wheel.advance(6 * TICK));
+    }
+}
@@ -0,0 +1,41 @@
+package com.interswitch.bookstore.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the SQL statements Hibernate prepares by kind (select, insert, update, delete).
+ * Register it with {@link #PROPERTY} in the test context properties.
+ */
+public class StatementCounter implements StatementInspector {
+    public static final String PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+            "com.interswitch.bookstore.support.StatementCounter";
+
+    private static final Map<String, AtomicLong> COUNTS = new ConcurrentHashMap<>();
+
+    @Override
+    public String inspect(String sql) {
+        var statement = sql.stripLeading();
+        var end = statement.indexOf(' ');
+        var kind = (end < 0 ? statement : statement.substring(0, end)).toLowerCase(Locale.ROOT);
+        COUNTS.computeIfAbsent(kind, k -> new AtomicLong()).incrementAndGet();
+        return sql;
+    }
+
+    public static void reset() {
+        COUNTS.clear();
+    }
+
+    public static long count(String kind) {
+        var count = COUNTS.get(kind);
+        return count == null ? 0 : count.get();
+    }
+
+    public static long writes() {
+        return count("insert") + count("update") + count("delete");
+    }
+}